@@ -123,6 +123,7 @@ export class DashboardComponent implements OnInit, OnDestroy {
     if (this.devicesSubscription) {
       this.devicesSubscription.unsubscribe();
     }
+    this.simulatorService.disconnectDeviceEvents();
   }
 
   private loadAuthState(): void {
@@ -148,8 +149,8 @@ export class DashboardComponent implements OnInit, OnDestroy {
       this.isLoading = false;
     });
 
-    // Initial load of devices
-    this.simulatorService.refreshDevices();
+    // Initial snapshot and status changes are pushed by the service
+    this.simulatorService.connectDeviceEvents();
   }
 
   refreshDevices(): void {
@@ -1,4 +1,4 @@
-import { Injectable } from '@angular/core';
+import { Injectable, NgZone } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
 import { Observable, BehaviorSubject } from 'rxjs';
 import { map, catchError } from 'rxjs/operators';
@@ -26,8 +26,9 @@ export class SimulatorService {
   private readonly API_BASE_URL = 'http://localhost:8080';
   private devicesSubject = new BehaviorSubject<Device[]>([]);
   public devices$ = this.devicesSubject.asObservable();
+  private deviceEvents?: EventSource;
 
-  constructor(private http: HttpClient) {}
+  constructor(private http: HttpClient, private zone: NgZone) {}
 
   getSimulatorServiceUrl(): string {
     return this.API_BASE_URL;
@@ -56,6 +57,34 @@ export class SimulatorService {
     });
   }
 
+  /**
+   * Subscribe to the device event stream. The first event is a snapshot of all devices, later events carry the
+   * devices whose status changed. EventSource reconnects on its own and resumes with the last event ID.
+   */
+  connectDeviceEvents(): void {
+    if (this.deviceEvents) {
+      return;
+    }
+    this.deviceEvents = new EventSource(`${this.API_BASE_URL}/devices/events`);
+    this.deviceEvents.addEventListener('snapshot', event => {
+      const apiDevices: ApiDevice[] = JSON.parse((event as MessageEvent).data);
+      this.zone.run(() => this.devicesSubject.next(this.mapApiDevicesToDevices(apiDevices)));
+    });
+    this.deviceEvents.addEventListener('status', event => {
+      const apiDevices: ApiDevice[] = JSON.parse((event as MessageEvent).data);
+      this.zone.run(() => this.applyDeviceChanges(apiDevices));
+    });
+    this.deviceEvents.onerror = () => console.warn('Device event stream interrupted, reconnecting...');
+  }
+
+  /**
+   * Close the device event stream
+   */
+  disconnectDeviceEvents(): void {
+    this.deviceEvents?.close();
+    this.deviceEvents = undefined;
+  }
+
   /**
    * Start a device (API call)
    */
@@ -138,6 +167,19 @@ export class SimulatorService {
     }));
   }
 
+  /**
+   * Merge changed devices into the current list, adding devices not known yet
+   */
+  private applyDeviceChanges(apiDevices: ApiDevice[]): void {
+    const devices = new Map(this.devicesSubject.value.map(device => [device.id, device]));
+    for (const apiDevice of apiDevices) {
+      const current = devices.get(apiDevice.id);
+      const [changed] = this.mapApiDevicesToDevices([apiDevice]);
+      devices.set(apiDevice.id, current ? { ...current, status: changed.status, lastActivity: new Date() } : changed);
+    }
+    this.devicesSubject.next([...devices.values()]);
+  }
+
   /**
    * Update device status locally
    */
@@ -0,0 +1,47 @@
+package com.flender.dib.aiq.devices.simulator.service.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the credentials of databases created before the device_credentials table existed out of the devices table.
+ * Hibernate creates the new table but keeps the old columns, so on startup the credentials still stored inline are
+ * copied into device_credentials and the private_key and certificate columns are dropped from devices.
+ * Databases without these columns are left untouched.
+ */
+@Component
+public class DeviceCredentialsMigration {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DeviceCredentialsMigration.class);
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    // The entity manager factory updates the schema, the migration has to run after it
+    public DeviceCredentialsMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @PostConstruct
+    public void migrate() {
+        Integer inlineColumns = jdbcTemplate.queryForObject(
+            "select count(*) from information_schema.columns "
+                + "where table_name = 'DEVICES' and column_name in ('PRIVATE_KEY', 'CERTIFICATE')",
+            Integer.class);
+        if (inlineColumns == null || inlineColumns == 0) {
+            return;
+        }
+        
+        logger.info("Moving device credentials from table devices to device_credentials...");
+        int moved = jdbcTemplate.update(
+            "insert into device_credentials (device_id, private_key, certificate) "
+                + "select d.id, d.private_key, d.certificate from devices d "
+                + "where not exists (select 1 from device_credentials c where c.device_id = d.id)");
+        jdbcTemplate.execute("alter table devices drop column if exists private_key");
+        jdbcTemplate.execute("alter table devices drop column if exists certificate");
+        logger.info("Moved credentials of {} devices", moved);
+    }
+}
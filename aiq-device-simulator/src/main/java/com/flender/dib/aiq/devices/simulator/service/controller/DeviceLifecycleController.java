@@ -0,0 +1,74 @@
+package com.flender.dib.aiq.devices.simulator.service.controller;
+
+import com.flender.dib.aiq.devices.simulator.service.dto.DeviceTimelineEntryDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.FlapStatisticsDTO;
+import com.flender.dib.aiq.devices.simulator.service.exception.DeviceStateException;
+import com.flender.dib.aiq.devices.simulator.service.service.DeviceJournalService;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Queries of the device lifecycle journal. Time ranges are ISO-8601 instants and default to the last 24 hours.
+ */
+@RestController
+@RequestMapping("/devices")
+public class DeviceLifecycleController {
+    
+    private static final Duration DEFAULT_RANGE = Duration.ofHours(24);
+    private static final int MAX_FLAP_DEVICES = 1000;
+    
+    private final DeviceJournalService deviceJournalService;
+
+    public DeviceLifecycleController(DeviceJournalService deviceJournalService) {
+        this.deviceJournalService = deviceJournalService;
+    }
+
+    @GetMapping("/{deviceId}/timeline")
+    public List<DeviceTimelineEntryDTO> getTimeline(@PathVariable String deviceId,
+                                                    @RequestParam(required = false) String from,
+                                                    @RequestParam(required = false) String to) {
+        if (deviceId == null || deviceId.trim().isEmpty()) {
+            throw new DeviceStateException("Device ID is required");
+        }
+        
+        Instant end = parseInstant(to, "to", Instant.now());
+        Instant start = parseInstant(from, "from", end.minus(DEFAULT_RANGE));
+        validateRange(start, end);
+        return deviceJournalService.getTimeline(deviceId, start, end);
+    }
+    
+    @GetMapping("/flaps")
+    public FlapStatisticsDTO getFlapStatistics(@RequestParam(required = false) String from,
+                                               @RequestParam(required = false) String to,
+                                               @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_FLAP_DEVICES) {
+            throw new DeviceStateException("Limit must be between 1 and " + MAX_FLAP_DEVICES);
+        }
+        
+        Instant end = parseInstant(to, "to", Instant.now());
+        Instant start = parseInstant(from, "from", end.minus(DEFAULT_RANGE));
+        validateRange(start, end);
+        return deviceJournalService.getFlapStatistics(start, end, limit);
+    }
+    
+    private static Instant parseInstant(String value, String name, Instant defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new DeviceStateException("Invalid " + name + " value '" + value + "', expected e.g. 2025-01-31T12:00:00Z");
+        }
+    }
+    
+    private static void validateRange(Instant from, Instant to) {
+        if (from.isAfter(to)) {
+            throw new DeviceStateException("'from' must not be after 'to'");
+        }
+    }
+}
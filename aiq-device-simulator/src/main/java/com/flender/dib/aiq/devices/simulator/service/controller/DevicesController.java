@@ -1,11 +1,16 @@
 package com.flender.dib.aiq.devices.simulator.service.controller;
 
 import com.flender.dib.aiq.devices.simulator.service.dto.CreateDeviceDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.DevicePage;
 import com.flender.dib.aiq.devices.simulator.service.dto.DeviceResponseDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.FleetStatsDTO;
 import com.flender.dib.aiq.devices.simulator.service.exception.DeviceStateException;
+import com.flender.dib.aiq.devices.simulator.service.service.DeviceEventService;
 import com.flender.dib.aiq.devices.simulator.service.service.DeviceService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -14,9 +19,11 @@ import java.util.List;
 public class DevicesController {
     
     private final DeviceService deviceService;
+    private final DeviceEventService deviceEventService;
 
-    public DevicesController(DeviceService deviceService) {
+    public DevicesController(DeviceService deviceService, DeviceEventService deviceEventService) {
         this.deviceService = deviceService;
+        this.deviceEventService = deviceEventService;
     }
 
     @GetMapping
@@ -24,6 +31,26 @@ public class DevicesController {
         return deviceService.getAllDevices();
     }
     
+    @GetMapping("/page")
+    public DevicePage getDevicePage(@RequestParam(required = false) String after,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String status,
+                                    @RequestParam(required = false) String type,
+                                    @RequestParam(required = false) String environment,
+                                    @RequestParam(required = false) String idPrefix) {
+        return deviceService.getDevicePage(after, limit, status, type, environment, idPrefix);
+    }
+    
+    @GetMapping("/stats")
+    public FleetStatsDTO getFleetStats() {
+        return deviceService.getFleetStats();
+    }
+    
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDeviceEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return deviceEventService.subscribe(lastEventId, deviceService::getAllDevices);
+    }
+    
     @PostMapping
     public ResponseEntity<DeviceResponseDTO> createDevice(@RequestBody CreateDeviceDTO request) {
         DeviceResponseDTO createdDevice = deviceService.createDevice(request);
@@ -1,6 +1,9 @@
 package com.flender.dib.aiq.devices.simulator.service.device;
 
 import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceCredentials;
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceLifecycleEvent;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceCredentialsRepository;
 import com.flender.dib.aiq.devices.simulator.service.repository.DeviceRepository;
 import com.flender.dib.aiq.devices.simulator.service.service.DeviceProvisioningService;
 import com.microsoft.azure.sdk.iot.device.*;
@@ -33,6 +36,9 @@ public class DeviceManager implements Runnable
 {
     @Getter(AccessLevel.PROTECTED)
     private final DeviceRepository deviceRepository;
+
+    // Credentials are loaded for each provisioning only, they are not kept with the device
+    private final DeviceCredentialsRepository deviceCredentialsRepository;
     
     private final DeviceStatusCallback statusCallback;
 
@@ -67,12 +73,14 @@ public class DeviceManager implements Runnable
         Thread.currentThread().setName("ClientManager-" + device.getId());
 
         // Set initial device status to STARTING
-        statusCallback.onDeviceStatusChanged(device, Device.Status.STARTING);
+        statusCallback.onDeviceStatusChanged(device, Device.Status.STARTING, DeviceLifecycleEvent.MANAGER_STARTED);
 
         try {
             while (!shouldStop) {
                 try {
-                    this.deviceClient = DeviceProvisioningService.provision(this.device);
+                    DeviceCredentials credentials = deviceCredentialsRepository.findById(device.getId())
+                            .orElseThrow(() -> new IOException("No credentials stored for device " + device.getId()));
+                    this.deviceClient = DeviceProvisioningService.provision(credentials);
                     assert this.deviceClient != null;
 
                     this.deviceClient.setConnectionStatusChangeCallback(
@@ -82,7 +90,7 @@ public class DeviceManager implements Runnable
                     boolean encounteredFatalException = !openDeviceClientWithRetry();
                     if (encounteredFatalException) {
                         // Fatal Exception encountered - set status back to STARTING for potential restart
-                        statusCallback.onDeviceStatusChanged(device, Device.Status.STARTING);
+                        statusCallback.onDeviceStatusChanged(device, Device.Status.STARTING, DeviceLifecycleEvent.OPEN_FAILED);
                         log.warn("Fatal exception encountered for device {}, status set to STARTING", device.getId());
                         return;
                     }
@@ -121,7 +129,7 @@ public class DeviceManager implements Runnable
             }
             
             // Set device status to STOPPED when manager exits
-            statusCallback.onDeviceStatusChanged(device, Device.Status.STOPPED);
+            statusCallback.onDeviceStatusChanged(device, Device.Status.STOPPED, DeviceLifecycleEvent.MANAGER_STOPPED);
             
             log.info("DeviceManager stopped for device {}", device.getId());
         }
@@ -159,7 +167,7 @@ public class DeviceManager implements Runnable
                 && newStatusReason != IotHubConnectionStatusChangeReason.CLIENT_CLOSE)
         {
             // Update device status to CONNECTING when disconnected (attempting to reconnect)
-            statusCallback.onDeviceStatusChanged(device, Device.Status.CONNECTING);
+            statusCallback.onDeviceStatusChanged(device, Device.Status.CONNECTING, newStatusReason.name());
             log.info("Device {} disconnected, status set to CONNECTING", device.getId());
             
             // only need to reconnect if the device client reaches a DISCONNECTED state and if it wasn't
@@ -178,7 +186,7 @@ public class DeviceManager implements Runnable
     private boolean openDeviceClientWithRetry() throws InterruptedException
     {
         // Transition to CONNECTING state
-        statusCallback.onDeviceStatusChanged(device, Device.Status.CONNECTING);
+        statusCallback.onDeviceStatusChanged(device, Device.Status.CONNECTING, DeviceLifecycleEvent.OPENING_CLIENT);
         log.info("Device {} transitioned to CONNECTING", device.getId());
         
         while (!shouldStop)
@@ -192,7 +200,8 @@ public class DeviceManager implements Runnable
                 log.debug("Successfully opened the device client");
 
                 // Transition to CONNECTED state on successful connection
-                statusCallback.onDeviceStatusChanged(device, Device.Status.CONNECTED);
+                statusCallback.onDeviceStatusChanged(device, Device.Status.CONNECTED,
+                        IotHubConnectionStatusChangeReason.CONNECTION_OK.name());
                 log.info("Device {} transitioned to CONNECTED", device.getId());
 
                 return true;
@@ -282,7 +291,7 @@ public class DeviceManager implements Runnable
             }
             
             // Set device status to STOPPED
-            statusCallback.onDeviceStatusChanged(device, Device.Status.STOPPED);
+            statusCallback.onDeviceStatusChanged(device, Device.Status.STOPPED, DeviceLifecycleEvent.MANAGER_STOPPED);
             
             log.info("DeviceManager stopped successfully for device {}", device.getId());
         }
@@ -12,6 +12,7 @@ public interface DeviceStatusCallback {
      * Called when a device's status changes
      * @param device The device whose status changed
      * @param newStatus The new status
+     * @param reason The reason of the change, the IotHubConnectionStatusChangeReason name for connection changes
      */
-    void onDeviceStatusChanged(Device device, Device.Status newStatus);
+    void onDeviceStatusChanged(Device device, Device.Status newStatus, String reason);
 }
@@ -0,0 +1,19 @@
+package com.flender.dib.aiq.devices.simulator.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Transitions of one device within the time range of a {@link FlapStatisticsDTO}. A drop is a transition from
+ * CONNECTED to CONNECTING.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceFlapsDTO {
+    private String deviceId;
+    private int transitions;
+    private int drops;
+    private long connectingMillis;
+}
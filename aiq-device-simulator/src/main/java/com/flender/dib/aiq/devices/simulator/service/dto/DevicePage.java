@@ -0,0 +1,19 @@
+package com.flender.dib.aiq.devices.simulator.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a device listing. {@code nextCursor} is passed as {@code after} to get the next page and is null on
+ * the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DevicePage {
+    private List<DeviceResponseDTO> devices;
+    private String nextCursor;
+}
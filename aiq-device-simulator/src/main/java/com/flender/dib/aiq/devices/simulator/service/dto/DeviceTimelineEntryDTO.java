@@ -0,0 +1,22 @@
+package com.flender.dib.aiq.devices.simulator.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A period a device spent in one status. {@code until} is null while the device is still in it, the duration is
+ * then counted up to the end of the requested time range.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceTimelineEntryDTO {
+    private String status;
+    private String reason;
+    private Instant since;
+    private Instant until;
+    private long durationMillis;
+}
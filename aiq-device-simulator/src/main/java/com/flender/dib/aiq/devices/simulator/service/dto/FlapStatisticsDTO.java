@@ -0,0 +1,23 @@
+package com.flender.dib.aiq.devices.simulator.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Status transitions of the fleet within a time range, with the devices that dropped their connection most often.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlapStatisticsDTO {
+    private Instant from;
+    private Instant to;
+    private int devices;
+    private long transitions;
+    private long drops;
+    private List<DeviceFlapsDTO> topDevices;
+}
@@ -0,0 +1,20 @@
+package com.flender.dib.aiq.devices.simulator.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Number of devices in total and per status, type and environment. Every enum value is listed, also with 0 devices.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetStatsDTO {
+    private long total;
+    private Map<String, Long> byStatus;
+    private Map<String, Long> byType;
+    private Map<String, Long> byEnvironment;
+}
@@ -2,6 +2,7 @@ package com.flender.dib.aiq.devices.simulator.service.mapper;
 
 import com.flender.dib.aiq.devices.simulator.service.dto.DeviceResponseDTO;
 import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceSummary;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -22,9 +23,28 @@ public class DeviceMapper {
         );
     }
     
+    public DeviceResponseDTO toResponseDTO(DeviceSummary device) {
+        if (device == null) {
+            return null;
+        }
+        
+        return new DeviceResponseDTO(
+            device.getId(),
+            device.getEnvironment().name(),
+            device.getStatus().name(),
+            device.getType().name()
+        );
+    }
+    
     public List<DeviceResponseDTO> toResponseDTOList(List<Device> devices) {
         return devices.stream()
                 .map(this::toResponseDTO)
                 .toList();
     }
+    
+    public List<DeviceResponseDTO> toSummaryDTOList(List<DeviceSummary> devices) {
+        return devices.stream()
+                .map(this::toResponseDTO)
+                .toList();
+    }
 }
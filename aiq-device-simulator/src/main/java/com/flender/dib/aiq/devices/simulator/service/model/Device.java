@@ -6,7 +6,12 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "devices")
+@Table(name = "devices", indexes = {
+    // Keyset pagination orders by id within each filter
+    @Index(name = "idx_devices_status_id", columnList = "status, id"),
+    @Index(name = "idx_devices_type_id", columnList = "type, id"),
+    @Index(name = "idx_devices_environment_id", columnList = "environment, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -71,10 +76,4 @@ public class Device {
     
     @Enumerated(EnumType.STRING)
     private Type type;
-    
-    @Column(length = 4000)
-    private String privateKey;
-    
-    @Column(length = 4000)
-    private String certificate;
 }
@@ -0,0 +1,27 @@
+package com.flender.dib.aiq.devices.simulator.service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * X.509 credentials of a {@link Device}, kept in their own table so that status updates and listings of devices
+ * never read them. They are only loaded to provision the device.
+ */
+@Entity
+@Table(name = "device_credentials")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceCredentials {
+    
+    @Id
+    private String deviceId;
+    
+    @Column(length = 4000)
+    private String privateKey;
+    
+    @Column(length = 4000)
+    private String certificate;
+}
@@ -0,0 +1,52 @@
+package com.flender.dib.aiq.devices.simulator.service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One status transition of a device, appended to the lifecycle journal and never updated.
+ */
+@Entity
+@Table(name = "device_lifecycle_events", indexes = {
+    @Index(name = "idx_lifecycle_device_time", columnList = "device_id, occurred_at"),
+    @Index(name = "idx_lifecycle_time", columnList = "occurred_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceLifecycleEvent {
+    
+    // Reasons of transitions not caused by the IoT hub connection, whose reasons are IotHubConnectionStatusChangeReason names
+    public static final String CREATED = "CREATED";
+    public static final String START_REQUESTED = "START_REQUESTED";
+    public static final String STOP_REQUESTED = "STOP_REQUESTED";
+    public static final String STATUS_UPDATE = "STATUS_UPDATE";
+    public static final String SERVICE_RESTART = "SERVICE_RESTART";
+    public static final String MANAGER_STARTED = "MANAGER_STARTED";
+    public static final String MANAGER_STOPPED = "MANAGER_STOPPED";
+    public static final String OPENING_CLIENT = "OPENING_CLIENT";
+    public static final String OPEN_FAILED = "OPEN_FAILED";
+    
+    // Allocated in blocks so that inserts can be batched
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lifecycle_event_seq")
+    @SequenceGenerator(name = "lifecycle_event_seq", sequenceName = "device_lifecycle_event_seq", allocationSize = 100)
+    private Long id;
+    
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Device.Status status;
+    
+    @Column(length = 64)
+    private String reason;
+    
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+}
@@ -0,0 +1,9 @@
+package com.flender.dib.aiq.devices.simulator.service.repository;
+
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceCredentials;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DeviceCredentialsRepository extends JpaRepository<DeviceCredentials, String> {
+}
@@ -0,0 +1,21 @@
+package com.flender.dib.aiq.devices.simulator.service.repository;
+
+/**
+ * Transitions of one device within a time range, aggregated by the database. Every row also carries the totals
+ * of all devices in the range, not only of those returned.
+ */
+public interface DeviceFlaps {
+    String getDeviceId();
+
+    int getTransitions();
+
+    int getDrops();
+
+    long getConnectingMillis();
+
+    int getTotalDevices();
+
+    long getTotalTransitions();
+
+    long getTotalDrops();
+}
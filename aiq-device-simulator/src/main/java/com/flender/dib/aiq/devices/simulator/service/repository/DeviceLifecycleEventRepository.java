@@ -0,0 +1,76 @@
+package com.flender.dib.aiq.devices.simulator.service.repository;
+
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceLifecycleEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DeviceLifecycleEventRepository extends JpaRepository<DeviceLifecycleEvent, Long> {
+
+    List<DeviceLifecycleEvent> findByDeviceIdAndOccurredAtBetweenOrderByOccurredAtAscIdAsc(String deviceId,
+                                                                                          Instant from, Instant to);
+
+    /**
+     * The last event of the device before the given time, i.e. the status the device was in at that time.
+     */
+    Optional<DeviceLifecycleEvent> findFirstByDeviceIdAndOccurredAtBeforeOrderByOccurredAtDescIdDesc(String deviceId,
+                                                                                                    Instant before);
+
+    /**
+     * Transitions of the devices between {@code from} and {@code to}, those with the most drops first. Events
+     * repeating the status of the previous event of their device are not counted. A drop is a transition from
+     * CONNECTED to CONNECTING; connecting time lasts until the next transition of the device or {@code end}.
+     */
+    @Query(nativeQuery = true, value = "with events as ("
+            + "select device_id, id, status, occurred_at, "
+            + "lag(status) over (partition by device_id order by occurred_at, id) as previous_status "
+            + "from device_lifecycle_events where occurred_at between :from and :to), "
+            + "status_changes as (select device_id, status, previous_status, occurred_at, "
+            + "lead(occurred_at) over (partition by device_id order by occurred_at, id) as next_occurred_at "
+            + "from events where previous_status is null or status <> previous_status), "
+            + "device_flaps as (select device_id, cast(count(*) as int) as transitions, "
+            + "cast(sum(case when previous_status = 'CONNECTED' and status = 'CONNECTING' then 1 else 0 end) as int) "
+            + "as drops, "
+            + "cast(sum(case when status = 'CONNECTING' then "
+            + "greatest(0, datediff(millisecond, occurred_at, coalesce(next_occurred_at, :end))) else 0 end) "
+            + "as bigint) as connecting_millis "
+            + "from status_changes group by device_id) "
+            + "select device_id as deviceId, transitions, drops, connecting_millis as connectingMillis, "
+            + "cast(count(*) over () as int) as totalDevices, "
+            + "cast(sum(transitions) over () as bigint) as totalTransitions, "
+            + "cast(sum(drops) over () as bigint) as totalDrops "
+            + "from device_flaps order by drops desc, transitions desc, device_id limit :limit")
+    List<DeviceFlaps> findTopFlaps(@Param("from") Instant from, @Param("to") Instant to, @Param("end") Instant end,
+                                   @Param("limit") int limit);
+
+    /**
+     * Deletes the events before the given time, except the last event of each device, which holds the status the
+     * device is still in.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from DeviceLifecycleEvent e where e.occurredAt < :before and exists ("
+            + "select 1 from DeviceLifecycleEvent n where n.deviceId = e.deviceId "
+            + "and (n.occurredAt > e.occurredAt or (n.occurredAt = e.occurredAt and n.id > e.id)))")
+    int deleteOlderThan(@Param("before") Instant before);
+
+    /**
+     * Deletes the events before the given time that repeat the status of the previous event of their device, e.g.
+     * the CONNECTING of every reconnection attempt. The first event of each run of the same status is kept.
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "delete from device_lifecycle_events where id in ("
+            + "select id from (select id, status, lag(status) over (partition by device_id order by occurred_at, id) "
+            + "as previous_status from device_lifecycle_events where occurred_at < :before) runs "
+            + "where status = previous_status)")
+    int deleteRepeatedStatusBefore(@Param("before") Instant before);
+}
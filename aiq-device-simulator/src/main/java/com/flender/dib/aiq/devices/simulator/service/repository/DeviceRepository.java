@@ -1,9 +1,71 @@
 package com.flender.dib.aiq.devices.simulator.service.repository;
 
 import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Repository
-public interface DeviceRepository extends JpaRepository<Device, String> {
+public interface DeviceRepository extends JpaRepository<Device, String>, JpaSpecificationExecutor<Device> {
+
+    /**
+     * Sets the status of the device without loading it.
+     *
+     * @return the number of updated devices, 0 if the device does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("update Device d set d.status = :status where d.id = :id")
+    int updateStatus(@Param("id") String id, @Param("status") Device.Status status);
+
+    /**
+     * All devices without their credentials, ordered by ID.
+     */
+    @Query("select d.id as id, d.environment as environment, d.status as status, d.type as type "
+            + "from Device d order by d.id")
+    List<DeviceSummary> findAllSummaries();
+
+    /**
+     * Keyset page of devices without their credentials, ordered by ID. Only the given filters become part of the
+     * query, so each filter can use its index instead of the whole table being scanned.
+     *
+     * @param afterId ID of the last device of the previous page, null for the first page
+     * @param idPrefix devices whose ID starts with it, wildcards are matched literally
+     * @param limit maximum number of devices
+     */
+    default List<DeviceSummary> findSummariesAfter(String afterId, Device.Status status, Device.Type type,
+                                                   Device.Environment environment, String idPrefix, int limit) {
+        List<Specification<Device>> filters = new ArrayList<>();
+        if (afterId != null) {
+            filters.add((device, query, builder) -> builder.greaterThan(device.get("id"), afterId));
+        }
+        if (status != null) {
+            filters.add((device, query, builder) -> builder.equal(device.get("status"), status));
+        }
+        if (type != null) {
+            filters.add((device, query, builder) -> builder.equal(device.get("type"), type));
+        }
+        if (environment != null) {
+            filters.add((device, query, builder) -> builder.equal(device.get("environment"), environment));
+        }
+        if (idPrefix != null && !idPrefix.isEmpty()) {
+            String pattern = escapeLike(idPrefix) + "%";
+            filters.add((device, query, builder) -> builder.like(device.get("id"), pattern, '\\'));
+        }
+        return findBy(Specification.allOf(filters),
+                query -> query.sortBy(Sort.by("id")).limit(limit).as(DeviceSummary.class).all());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
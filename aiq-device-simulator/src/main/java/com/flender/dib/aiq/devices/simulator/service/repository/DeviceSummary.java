@@ -0,0 +1,16 @@
+package com.flender.dib.aiq.devices.simulator.service.repository;
+
+import com.flender.dib.aiq.devices.simulator.service.model.Device;
+
+/**
+ * Projection of a {@link Device} without its credentials, for listings.
+ */
+public interface DeviceSummary {
+    String getId();
+
+    Device.Environment getEnvironment();
+
+    Device.Status getStatus();
+
+    Device.Type getType();
+}
@@ -0,0 +1,287 @@
+package com.flender.dib.aiq.devices.simulator.service.service;
+
+import com.flender.dib.aiq.devices.simulator.service.dto.DeviceResponseDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.lang.Thread.startVirtualThread;
+
+/**
+ * Pushes device status changes to server-sent event subscribers.
+ * <p>
+ * Publishing only records the latest status of the device in a map, so status callbacks never wait for the
+ * subscribers. Every coalescing window the recorded changes are flushed as one {@code status} event carrying the
+ * latest state of each changed device; a device that changed several times within the window is sent once.
+ * Each flushed change gets a sequence number and the event ID is the highest number it contains, prefixed with the
+ * start time of the service so that IDs of an earlier run are never mistaken for current ones. The last
+ * {@code buffer-size} changes are kept, so a client reconnecting with a {@code Last-Event-ID} still within them gets
+ * the changes it missed; other clients start with a {@code snapshot} event of all devices.
+ * <p>
+ * Every subscriber is written by its own virtual thread. A subscriber whose backlog exceeds {@code max-backlog}
+ * events is disconnected and resumes on reconnect instead of slowing down the others.
+ * <p>
+ * Streams are closed after {@code emitter-timeout-seconds}. EventSource clients reconnect with their
+ * {@code Last-Event-ID} and resume, while the connections of closed dashboards are released.
+ */
+@Service
+public class DeviceEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceEventService.class);
+
+    public static final String SNAPSHOT_EVENT = "snapshot";
+    public static final String STATUS_EVENT = "status";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final int bufferSize;
+    private final int maxBacklog;
+    private final long emitterTimeoutMillis;
+    private final Map<String, DeviceResponseDTO> changed = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DeviceEventFlusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this: the flushed changes and their sequence numbers
+    private final ArrayDeque<Change> history = new ArrayDeque<>();
+    private long sequence;
+
+    public DeviceEventService(@Value("${simulator.events.coalesce-millis:250}") long coalesceMillis,
+                              @Value("${simulator.events.buffer-size:10000}") int bufferSize,
+                              @Value("${simulator.events.max-backlog:1000}") int maxBacklog,
+                              @Value("${simulator.events.heartbeat-seconds:15}") long heartbeatSeconds,
+                              @Value("${simulator.events.emitter-timeout-seconds:300}") long emitterTimeoutSeconds) {
+        this.bufferSize = bufferSize;
+        this.maxBacklog = maxBacklog;
+        this.emitterTimeoutMillis = TimeUnit.SECONDS.toMillis(emitterTimeoutSeconds);
+        flusher.scheduleWithFixedDelay(this::flush, coalesceMillis, coalesceMillis, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records the new state of a device. Never blocks, the state is sent with the next flush.
+     * The state replaces any unsent one, so the states of a device must be published in the order they were
+     * persisted; {@link DeviceService} publishes under the same per-device lock as it persists.
+     */
+    public void publish(DeviceResponseDTO device) {
+        changed.put(device.getId(), device);
+    }
+
+    /**
+     * Opens a stream of device status events.
+     * @param lastEventId ID of the last event the client received, null for a new client
+     * @param snapshot provides the current state of all devices for clients that cannot be resumed
+     */
+    public SseEmitter subscribe(String lastEventId, Supplier<List<DeviceResponseDTO>> snapshot) {
+        SseEmitter emitter = createEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        // Completing ends the stream normally, the client reconnects and resumes
+        emitter.onTimeout(() -> subscriber.close(null));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        // Registering and reading the history under the same lock as the flush makes sure that every change is
+        // either replayed or delivered live. Live changes are held back until the initial event was sent.
+        List<DeviceResponseDTO> missed;
+        long resumedAt;
+        synchronized (this) {
+            subscribers.add(subscriber);
+            missed = changesAfter(parseEventId(lastEventId));
+            resumedAt = sequence;
+        }
+
+        try {
+            if (missed != null) {
+                if (!missed.isEmpty()) {
+                    emitter.send(SseEmitter.event().id(eventId(resumedAt)).name(STATUS_EVENT).data(missed));
+                }
+            } else {
+                // Live changes delivered after the snapshot may repeat states it already contains, never older ones
+                emitter.send(SseEmitter.event().id(eventId(resumedAt)).name(SNAPSHOT_EVENT).data(snapshot.get()));
+            }
+            subscriber.release();
+        } catch (IOException | RuntimeException e) {
+            subscribers.remove(subscriber);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // Changes after the given sequence number, coalesced per device, or null if they are no longer all known
+    private List<DeviceResponseDTO> changesAfter(long lastSequence) {
+        if (lastSequence < 0 || lastSequence > sequence) {
+            return null;
+        }
+        long oldestKnown = history.isEmpty() ? sequence + 1 : history.peekFirst().sequence;
+        if (lastSequence + 1 < oldestKnown) {
+            return null;
+        }
+        Map<String, DeviceResponseDTO> latest = new LinkedHashMap<>();
+        for (Change change : history) {
+            if (change.sequence > lastSequence) {
+                latest.remove(change.device.getId());
+                latest.put(change.device.getId(), change.device);
+            }
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    void flush() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<DeviceResponseDTO> batch = new ArrayList<>();
+        for (String deviceId : changed.keySet()) {
+            DeviceResponseDTO device = changed.remove(deviceId);
+            if (device != null) {
+                batch.add(device);
+            }
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> event;
+        List<Subscriber> recipients;
+        synchronized (this) {
+            for (DeviceResponseDTO device : batch) {
+                history.addLast(new Change(++sequence, device));
+            }
+            while (history.size() > bufferSize) {
+                history.removeFirst();
+            }
+            // Built once, a built event is sent to every subscriber
+            event = SseEmitter.event().id(eventId(sequence)).name(STATUS_EVENT).data(batch).build();
+            recipients = List.copyOf(subscribers);
+        }
+        recipients.forEach(subscriber -> subscriber.offer(event));
+    }
+
+    private void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event().comment("heartbeat").build();
+        subscribers.forEach(subscriber -> subscriber.offer(event));
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    // Sequence number of an event ID of this run, -1 for other IDs
+    private long parseEventId(String lastEventId) {
+        String prefix = epoch + "-";
+        if (lastEventId == null || !lastEventId.trim().startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim().substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record Change(long sequence, DeviceResponseDTO device) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> backlog = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger backlogSize = new AtomicInteger();
+        // Held while the initial event is sent, afterwards set while a thread writes the backlog
+        private final AtomicBoolean writing = new AtomicBoolean(true);
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed) {
+                return;
+            }
+            if (backlogSize.incrementAndGet() > maxBacklog) {
+                logger.warn("Event subscriber fell {} events behind, disconnecting it", maxBacklog);
+                close(null);
+                return;
+            }
+            backlog.add(event);
+            startWriting();
+        }
+
+        private void release() {
+            writing.set(false);
+            startWriting();
+        }
+
+        private void startWriting() {
+            if (!backlog.isEmpty() && writing.compareAndSet(false, true)) {
+                startVirtualThread(this::write);
+            }
+        }
+
+        private void write() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                while (!closed && (event = backlog.poll()) != null) {
+                    backlogSize.decrementAndGet();
+                    emitter.send(event);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Event subscriber disconnected: {}", e.getMessage());
+                close(e);
+            } finally {
+                writing.set(false);
+            }
+            // An event offered after the last poll but before the flag was reset would be left behind otherwise
+            if (!closed) {
+                startWriting();
+            }
+        }
+
+        private void close(Throwable error) {
+            closed = true;
+            subscribers.remove(this);
+            backlog.clear();
+            if (error != null) {
+                emitter.completeWithError(error);
+            } else {
+                emitter.complete();
+            }
+        }
+    }
+}
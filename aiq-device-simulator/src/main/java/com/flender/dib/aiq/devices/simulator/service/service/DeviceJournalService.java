@@ -0,0 +1,176 @@
+package com.flender.dib.aiq.devices.simulator.service.service;
+
+import com.flender.dib.aiq.devices.simulator.service.dto.DeviceFlapsDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.DeviceTimelineEntryDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.FlapStatisticsDTO;
+import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceLifecycleEvent;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceFlaps;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceLifecycleEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only journal of device status transitions with the reason of each transition.
+ * <p>
+ * Recording only queues the event, a single writer thread inserts the queued events in batches every
+ * {@code flush-millis}, so status callbacks never wait for the database. When the queue is full new events are
+ * dropped and counted rather than blocking the callback. A maintenance run every {@code maintenance-minutes}
+ * deletes events older than {@code retention-days}, except the last event of each device, and compacts the events
+ * older than {@code compact-after-hours} by removing those that only repeat the status of the previous event of
+ * their device.
+ */
+@Service
+public class DeviceJournalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceJournalService.class);
+
+    private final DeviceLifecycleEventRepository eventRepository;
+    private final BlockingQueue<DeviceLifecycleEvent> queue;
+    private final int batchSize;
+    private final Duration retention;
+    private final Duration compactAfter;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DeviceJournalWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DeviceJournalService(DeviceLifecycleEventRepository eventRepository,
+                                @Value("${simulator.journal.queue-capacity:100000}") int queueCapacity,
+                                @Value("${simulator.journal.batch-size:500}") int batchSize,
+                                @Value("${simulator.journal.flush-millis:500}") long flushMillis,
+                                @Value("${simulator.journal.retention-days:30}") long retentionDays,
+                                @Value("${simulator.journal.compact-after-hours:24}") long compactAfterHours,
+                                @Value("${simulator.journal.maintenance-minutes:60}") long maintenanceMinutes) {
+        this.eventRepository = eventRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.retention = Duration.ofDays(retentionDays);
+        this.compactAfter = Duration.ofHours(compactAfterHours);
+        writer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        writer.scheduleWithFixedDelay(this::maintain, maintenanceMinutes, maintenanceMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Queues a transition of the device to the given status. Never blocks.
+     * @param reason name of the IotHubConnectionStatusChangeReason or one of the reasons of
+     *               {@link DeviceLifecycleEvent}
+     */
+    public void record(String deviceId, Device.Status status, String reason) {
+        DeviceLifecycleEvent event = new DeviceLifecycleEvent(null, deviceId, status, reason, Instant.now());
+        if (!queue.offer(event)) {
+            // Logged once per thousand to not flood the log while the database is stuck
+            if (dropped.getAndIncrement() % 1000 == 0) {
+                logger.warn("Lifecycle journal queue full, dropped {} events so far", dropped.get());
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * The statuses the device went through in the given time range, starting with the status it was in at
+     * {@code from}.
+     */
+    public List<DeviceTimelineEntryDTO> getTimeline(String deviceId, Instant from, Instant to) {
+        List<DeviceLifecycleEvent> events = new ArrayList<>();
+        eventRepository.findFirstByDeviceIdAndOccurredAtBeforeOrderByOccurredAtDescIdDesc(deviceId, from)
+            .ifPresent(events::add);
+        events.addAll(eventRepository.findByDeviceIdAndOccurredAtBetweenOrderByOccurredAtAscIdAsc(deviceId, from, to));
+
+        Instant end = min(to, Instant.now());
+        List<DeviceTimelineEntryDTO> timeline = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            DeviceLifecycleEvent event = events.get(i);
+            Instant since = event.getOccurredAt().isBefore(from) ? from : event.getOccurredAt();
+            Instant until = i + 1 < events.size() ? events.get(i + 1).getOccurredAt() : null;
+            long durationMillis = Math.max(0, Duration.between(since, until != null ? until : end).toMillis());
+            timeline.add(new DeviceTimelineEntryDTO(event.getStatus().name(), event.getReason(), since, until,
+                durationMillis));
+        }
+        return timeline;
+    }
+
+    /**
+     * Transitions of all devices in the given time range, aggregated by the database. Repeated events of the same
+     * status are not counted as transitions; time spent connecting is counted from the first event of each device
+     * within the range.
+     * @param limit maximum number of devices listed, those with the most drops first
+     */
+    public FlapStatisticsDTO getFlapStatistics(Instant from, Instant to, int limit) {
+        List<DeviceFlaps> flaps = eventRepository.findTopFlaps(from, to, min(to, Instant.now()), limit);
+        if (flaps.isEmpty()) {
+            return new FlapStatisticsDTO(from, to, 0, 0, 0, List.of());
+        }
+        List<DeviceFlapsDTO> topDevices = flaps.stream()
+            .map(device -> new DeviceFlapsDTO(device.getDeviceId(), device.getTransitions(), device.getDrops(),
+                device.getConnectingMillis()))
+            .toList();
+        DeviceFlaps totals = flaps.get(0);
+        return new FlapStatisticsDTO(from, to, totals.getTotalDevices(), totals.getTotalTransitions(),
+            totals.getTotalDrops(), topDevices);
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * Stops the writer and writes the events still queued.
+     */
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdownNow();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private synchronized void flush() {
+        List<DeviceLifecycleEvent> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                eventRepository.saveAll(batch);
+            } catch (Exception e) {
+                logger.error("Failed to write {} lifecycle events: {}", batch.size(), e.getMessage());
+                dropped.addAndGet(batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    private void maintain() {
+        try {
+            Instant now = Instant.now();
+            int expired = eventRepository.deleteOlderThan(now.minus(retention));
+            int compacted = eventRepository.deleteRepeatedStatusBefore(now.minus(compactAfter));
+            if (expired > 0 || compacted > 0) {
+                logger.info("Lifecycle journal maintenance removed {} expired and {} repeated events",
+                        expired, compacted);
+            }
+        } catch (Exception e) {
+            logger.error("Lifecycle journal maintenance failed: {}", e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.flender.dib.aiq.devices.simulator.service.service;
 
-import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceCredentials;
 import com.microsoft.azure.sdk.iot.device.DeviceClient;
 import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
 import com.microsoft.azure.sdk.iot.provisioning.device.ProvisioningDeviceClient;
@@ -38,13 +38,13 @@ public class DeviceProvisioningService {
     private static final String GLOBAL_ENDPOINT = "global.azure-devices-provisioning.net";
     private static final  ProvisioningDeviceClientTransportProtocol DEVICE_PROTOCOL = ProvisioningDeviceClientTransportProtocol.MQTT;
 
-    public static DeviceClient provision(Device device) throws ProvisioningDeviceClientException, InterruptedException, IOException, CertificateException {
+    public static DeviceClient provision(DeviceCredentials credentials) throws ProvisioningDeviceClientException, InterruptedException, IOException, CertificateException {
         logger.info("Starting device provisioning...");
         logger.info("Beginning setup.");
 
 
-        X509Certificate leafPublicCert = parsePublicKeyCertificate(device.getCertificate());
-        Key leafPrivateKey = parsePrivateKey(device.getPrivateKey());
+        X509Certificate leafPublicCert = parsePublicKeyCertificate(credentials.getCertificate());
+        Key leafPrivateKey = parsePrivateKey(credentials.getPrivateKey());
         Collection<X509Certificate> signerCertificates = new LinkedList<>();
 
         SecurityProvider securityProviderX509 = new SecurityProviderX509Cert(leafPublicCert, leafPrivateKey, signerCertificates);
@@ -2,15 +2,23 @@ package com.flender.dib.aiq.devices.simulator.service.service;
 
 import com.flender.dib.aiq.devices.simulator.service.device.DeviceManager;
 import com.flender.dib.aiq.devices.simulator.service.dto.CreateDeviceDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.DevicePage;
 import com.flender.dib.aiq.devices.simulator.service.dto.DeviceResponseDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.FleetStatsDTO;
 import com.flender.dib.aiq.devices.simulator.service.exception.DeviceStateException;
 import com.flender.dib.aiq.devices.simulator.service.mapper.DeviceMapper;
 import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceCredentials;
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceLifecycleEvent;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceCredentialsRepository;
 import com.flender.dib.aiq.devices.simulator.service.repository.DeviceRepository;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceSummary;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -18,25 +26,83 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import static java.lang.Thread.startVirtualThread;
 
 @Service
 @RequiredArgsConstructor
+@DependsOn("deviceCredentialsMigration")
 public class DeviceService {
     
     private static final Logger logger = LoggerFactory.getLogger(DeviceService.class);
     
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    
+    private static final int STATUS_LOCK_STRIPES = 64;
+    
     private final DeviceRepository deviceRepository;
+    private final DeviceCredentialsRepository deviceCredentialsRepository;
     private final DeviceMapper deviceMapper;
+    private final DeviceEventService deviceEventService;
+    private final DeviceJournalService deviceJournalService;
+    private final FleetStatisticsService fleetStatisticsService;
     
     // Device manager state - moved from DeviceManagerService
     private final ConcurrentHashMap<String, DeviceManager> deviceManagers = new ConcurrentHashMap<>();
+    
+    // Status changes of a device are written and then published, journaled and counted under the lock of its
+    // stripe, so the event stream and the fleet counters see the transitions of a device in database order
+    private final Lock[] statusLocks = createStatusLocks();
 
 
+    public FleetStatsDTO getFleetStats() {
+        return fleetStatisticsService.getStats();
+    }
+    
     public List<DeviceResponseDTO> getAllDevices() {
-        List<Device> devices = deviceRepository.findAll();
-        return deviceMapper.toResponseDTOList(devices);
+        List<DeviceSummary> devices = deviceRepository.findAllSummaries();
+        return deviceMapper.toSummaryDTOList(devices);
+    }
+    
+    /**
+     * Lists the devices page by page in ID order. Filters are optional and case-insensitive.
+     * @param after ID of the last device of the previous page, null for the first page
+     * @param limit maximum number of devices, null for {@value #DEFAULT_PAGE_SIZE}
+     */
+    public DevicePage getDevicePage(String after, Integer limit, String status, String type, String environment,
+                                    String idPrefix) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new DeviceStateException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        
+        List<DeviceSummary> devices = deviceRepository.findSummariesAfter(
+            after,
+            parseFilter(Device.Status.class, status, "status"),
+            parseFilter(Device.Type.class, type, "type"),
+            parseFilter(Device.Environment.class, environment, "environment"),
+            idPrefix,
+            pageSize
+        );
+        
+        // A full page may be followed by more devices, a short one is the last
+        String nextCursor = devices.size() == pageSize ? devices.get(devices.size() - 1).getId() : null;
+        return new DevicePage(deviceMapper.toSummaryDTOList(devices), nextCursor);
+    }
+    
+    private static <E extends Enum<E>> E parseFilter(Class<E> enumType, String value, String name) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(enumType, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new DeviceStateException("Invalid " + name + " value '" + value + "'");
+        }
     }
     
     public Optional<DeviceResponseDTO> getDeviceById(String id) {
@@ -44,6 +110,7 @@ public class DeviceService {
         return device.map(deviceMapper::toResponseDTO);
     }
     
+    @Transactional
     public DeviceResponseDTO createDevice(CreateDeviceDTO request) {
         // Validate required fields
         if (request.getId() == null || request.getId().trim().isEmpty()) {
@@ -80,12 +147,19 @@ public class DeviceService {
             request.getId(),
             environment,
             Device.Status.STOPPED, // Default status
-            Device.Type.AIQ_CORE,  // Default type
-            request.getPrivateKey(),
-            request.getCertificate()
+            Device.Type.AIQ_CORE  // Default type
         );
         
-        Device savedDevice = deviceRepository.save(device);
+        Device savedDevice = withStatusLock(device.getId(), () -> {
+            Device saved = deviceRepository.save(device);
+            deviceCredentialsRepository.save(new DeviceCredentials(
+                request.getId(),
+                request.getPrivateKey(),
+                request.getCertificate()
+            ));
+            statusChanged(saved, DeviceLifecycleEvent.CREATED);
+            return saved;
+        });
         return deviceMapper.toResponseDTO(savedDevice);
     }
      public DeviceResponseDTO updateDeviceStatus(String deviceId, Device.Status newStatus) {
@@ -103,7 +177,7 @@ public class DeviceService {
         }
         
         device.setStatus(newStatus);
-        Device savedDevice = deviceRepository.save(device);
+        Device savedDevice = saveStatus(device, DeviceLifecycleEvent.STATUS_UPDATE);
         
         // Handle thread management based on new status
         handleThreadManagement(device, newStatus, oldStatus);
@@ -166,6 +240,7 @@ public class DeviceService {
 
         DeviceManager manager = new DeviceManager(
             this.deviceRepository,
+            this.deviceCredentialsRepository,
             this::updateDeviceStatusInternal, // Callback delegate
             device
         );
@@ -263,7 +338,7 @@ public class DeviceService {
             if (device.getStatus() != Device.Status.STOPPED) {
                 logger.info("Device {} was in state {}, transitioning to STARTING", device.getId(), device.getStatus());
                 device.setStatus(Device.Status.STARTING);
-                Device savedDevice = deviceRepository.save(device);
+                Device savedDevice = saveStatus(device, DeviceLifecycleEvent.SERVICE_RESTART);
 
                 // Start the thread for this device
                 startManager(savedDevice);
@@ -289,7 +364,7 @@ public class DeviceService {
         
         if (currentStatus == Device.Status.STOPPED) {
             device.setStatus(Device.Status.STARTING);
-            Device savedDevice = deviceRepository.save(device);
+            Device savedDevice = saveStatus(device, DeviceLifecycleEvent.START_REQUESTED);
             
             // Start the device thread
             startManager(savedDevice);
@@ -318,7 +393,7 @@ public class DeviceService {
         
         if (currentStatus != Device.Status.STOPPED) {
             device.setStatus(Device.Status.STOPPED);
-            Device savedDevice = deviceRepository.save(device);
+            Device savedDevice = saveStatus(device, DeviceLifecycleEvent.STOP_REQUESTED);
             
             // Stop the device thread
             stopManager(deviceId);
@@ -338,27 +413,82 @@ public class DeviceService {
      * @param newStatus The new status to set
      */
     public void updateDeviceStatusInternal(String deviceId, Device.Status newStatus) {
-        try {
-            Optional<Device> deviceOpt = deviceRepository.findById(deviceId);
-            if (deviceOpt.isPresent()) {
-                Device device = deviceOpt.get();
-                device.setStatus(newStatus);
-                deviceRepository.save(device);
-                logger.debug("Updated device {} status to {}", deviceId, newStatus);
-            } else {
-                logger.warn("Device {} not found when trying to update status", deviceId);
+        withStatusLock(deviceId, () -> {
+            if (persistStatus(deviceId, newStatus)) {
+                deviceRepository.findById(deviceId)
+                    .ifPresent(device -> statusChanged(device, DeviceLifecycleEvent.STATUS_UPDATE));
             }
-        } catch (Exception e) {
-            logger.error("Failed to update device {} status to {}: {}", deviceId, newStatus, e.getMessage());
-        }
+            return null;
+        });
     }
 
     /**
      * Update device status directly in the database using a Device entity (internal use)
+     * Called by the device managers, the status change is published without reading the device again
      * @param device The device entity
      * @param newStatus The new status to set
+     * @param reason The reason of the change for the lifecycle journal
      */
-    public void updateDeviceStatusInternal(Device device, Device.Status newStatus) {
-        updateDeviceStatusInternal(device.getId(), newStatus);
+    public void updateDeviceStatusInternal(Device device, Device.Status newStatus, String reason) {
+        withStatusLock(device.getId(), () -> {
+            if (persistStatus(device.getId(), newStatus)) {
+                deviceEventService.publish(new DeviceResponseDTO(
+                    device.getId(),
+                    device.getEnvironment().name(),
+                    newStatus.name(),
+                    device.getType().name()
+                ));
+                deviceJournalService.record(device.getId(), newStatus, reason);
+                fleetStatisticsService.statusChanged(device, newStatus);
+            }
+            return null;
+        });
+    }
+    
+    // Writes the device with its new status and notifies the change, see statusChanged
+    private Device saveStatus(Device device, String reason) {
+        return withStatusLock(device.getId(), () -> {
+            Device savedDevice = deviceRepository.save(device);
+            statusChanged(savedDevice, reason);
+            return savedDevice;
+        });
+    }
+    
+    // Pushes the new status of the device to the event stream, appends it to the lifecycle journal and counts it
+    private void statusChanged(Device device, String reason) {
+        deviceEventService.publish(deviceMapper.toResponseDTO(device));
+        deviceJournalService.record(device.getId(), device.getStatus(), reason);
+        fleetStatisticsService.statusChanged(device, device.getStatus());
+    }
+
+    private boolean persistStatus(String deviceId, Device.Status newStatus) {
+        try {
+            if (deviceRepository.updateStatus(deviceId, newStatus) > 0) {
+                logger.debug("Updated device {} status to {}", deviceId, newStatus);
+                return true;
+            }
+            logger.warn("Device {} not found when trying to update status", deviceId);
+        } catch (Exception e) {
+            logger.error("Failed to update device {} status to {}: {}", deviceId, newStatus, e.getMessage());
+        }
+        return false;
+    }
+
+    private <T> T withStatusLock(String deviceId, Supplier<T> change) {
+        Lock lock = statusLocks[Math.floorMod(deviceId.hashCode(), statusLocks.length)];
+        lock.lock();
+        try {
+            return change.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Lock[] createStatusLocks() {
+        Lock[] locks = new Lock[STATUS_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
     }
 }
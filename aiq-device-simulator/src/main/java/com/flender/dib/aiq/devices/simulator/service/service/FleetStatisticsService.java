@@ -0,0 +1,104 @@
+package com.flender.dib.aiq.devices.simulator.service.service;
+
+import com.flender.dib.aiq.devices.simulator.service.dto.FleetStatsDTO;
+import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceRepository;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of devices per status, type and environment, kept up to date on every transition instead of counting
+ * the devices on request. The counters are loaded from the database once on startup; afterwards each transition
+ * moves one device from the counter of its previous status to the one of its new status. Counters are atomics, so
+ * reading them never waits for transitions. They are also published as the gauges {@code simulator.devices.status},
+ * {@code simulator.devices.type} and {@code simulator.devices.environment}.
+ * <p>
+ * {@link DeviceService} counts the transitions of a device under the same per-device lock as it writes them, so
+ * the counted status of a device is always the one last written to the database.
+ */
+@Service
+public class FleetStatisticsService {
+    
+    private final DeviceRepository deviceRepository;
+    private final Map<String, Device.Status> statuses = new ConcurrentHashMap<>();
+    private final AtomicLong total = new AtomicLong();
+    private final Map<Device.Status, AtomicLong> byStatus = counters(Device.Status.class);
+    private final Map<Device.Type, AtomicLong> byType = counters(Device.Type.class);
+    private final Map<Device.Environment, AtomicLong> byEnvironment = counters(Device.Environment.class);
+
+    public FleetStatisticsService(DeviceRepository deviceRepository, MeterRegistry meterRegistry) {
+        this.deviceRepository = deviceRepository;
+        registerGauges(meterRegistry, "simulator.devices.status", "status", byStatus);
+        registerGauges(meterRegistry, "simulator.devices.type", "type", byType);
+        registerGauges(meterRegistry, "simulator.devices.environment", "environment", byEnvironment);
+    }
+    
+    /**
+     * Counts the devices of the database that are not counted yet.
+     */
+    @PostConstruct
+    public void loadCounters() {
+        for (DeviceSummary device : deviceRepository.findAllSummaries()) {
+            if (statuses.putIfAbsent(device.getId(), device.getStatus()) == null) {
+                added(device.getStatus(), device.getType(), device.getEnvironment());
+            }
+        }
+    }
+    
+    /**
+     * Counts the device with its new status, or as a new device if it was not counted before.
+     */
+    public void statusChanged(Device device, Device.Status newStatus) {
+        statuses.compute(device.getId(), (id, previous) -> {
+            if (previous == null) {
+                added(newStatus, device.getType(), device.getEnvironment());
+            } else if (previous != newStatus) {
+                byStatus.get(previous).decrementAndGet();
+                byStatus.get(newStatus).incrementAndGet();
+            }
+            return newStatus;
+        });
+    }
+    
+    public FleetStatsDTO getStats() {
+        return new FleetStatsDTO(total.get(), values(byStatus), values(byType), values(byEnvironment));
+    }
+    
+    private void added(Device.Status status, Device.Type type, Device.Environment environment) {
+        total.incrementAndGet();
+        byStatus.get(status).incrementAndGet();
+        byType.get(type).incrementAndGet();
+        byEnvironment.get(environment).incrementAndGet();
+    }
+    
+    private static <E extends Enum<E>> Map<E, AtomicLong> counters(Class<E> enumType) {
+        Map<E, AtomicLong> counters = new EnumMap<>(enumType);
+        for (E value : enumType.getEnumConstants()) {
+            counters.put(value, new AtomicLong());
+        }
+        return counters;
+    }
+    
+    private static <E extends Enum<E>> Map<String, Long> values(Map<E, AtomicLong> counters) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        counters.forEach((key, counter) -> values.put(key.name(), counter.get()));
+        return values;
+    }
+    
+    private static <E extends Enum<E>> void registerGauges(MeterRegistry registry, String name, String tag,
+                                                          Map<E, AtomicLong> counters) {
+        counters.forEach((key, counter) -> Gauge.builder(name, counter, AtomicLong::get)
+            .description("Number of devices per " + tag)
+            .tag(tag, key.name())
+            .register(registry));
+    }
+}
@@ -0,0 +1,139 @@
+package flender.dib.aiq.deviceemulationservice;
+
+import com.flender.vda.Base;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Little-endian encoding of the {@link Base.ValueType} widths directly into and out of byte arrays and buffers.
+ * Unlike {@link ByteUtils}, nothing is allocated per value: the view var handles read and write the target
+ * at the given offset, which the JIT compiles to plain (unaligned) loads and stores.
+ */
+public final class ByteCodec {
+
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, LITTLE_ENDIAN);
+    private static final VarHandle FLOAT = MethodHandles.byteArrayViewVarHandle(float[].class, LITTLE_ENDIAN);
+    private static final VarHandle DOUBLE = MethodHandles.byteArrayViewVarHandle(double[].class, LITTLE_ENDIAN);
+
+    private static final VarHandle BUFFER_SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_INT = MethodHandles.byteBufferViewVarHandle(int[].class, LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONG = MethodHandles.byteBufferViewVarHandle(long[].class, LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_FLOAT = MethodHandles.byteBufferViewVarHandle(float[].class, LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_DOUBLE = MethodHandles.byteBufferViewVarHandle(double[].class, LITTLE_ENDIAN);
+
+    private ByteCodec() {
+    }
+
+    public static void putInt16(byte[] target, int offset, int value) {
+        SHORT.set(target, offset, (short) value);
+    }
+
+    public static void putInt32(byte[] target, int offset, int value) {
+        INT.set(target, offset, value);
+    }
+
+    public static void putInt64(byte[] target, int offset, long value) {
+        LONG.set(target, offset, value);
+    }
+
+    public static void putFloat(byte[] target, int offset, float value) {
+        FLOAT.set(target, offset, value);
+    }
+
+    public static void putDouble(byte[] target, int offset, double value) {
+        DOUBLE.set(target, offset, value);
+    }
+
+    public static int getUInt16(byte[] source, int offset) {
+        return Short.toUnsignedInt((short) SHORT.get(source, offset));
+    }
+
+    public static int getInt16(byte[] source, int offset) {
+        return (short) SHORT.get(source, offset);
+    }
+
+    public static long getUInt32(byte[] source, int offset) {
+        return Integer.toUnsignedLong((int) INT.get(source, offset));
+    }
+
+    public static int getInt32(byte[] source, int offset) {
+        return (int) INT.get(source, offset);
+    }
+
+    public static long getInt64(byte[] source, int offset) {
+        return (long) LONG.get(source, offset);
+    }
+
+    public static float getFloat(byte[] source, int offset) {
+        return (float) FLOAT.get(source, offset);
+    }
+
+    public static double getDouble(byte[] source, int offset) {
+        return (double) DOUBLE.get(source, offset);
+    }
+
+    /**
+     * Writes {@code value} with the width of {@code valueType}, converted to floating point for FLOAT and DOUBLE.
+     */
+    public static void put(byte[] target, int offset, Base.ValueType valueType, long value) {
+        switch (valueType) {
+            case UINT16, SINT16 -> SHORT.set(target, offset, (short) value);
+            case UINT32, SINT32 -> INT.set(target, offset, (int) value);
+            case UINT64, SINT64 -> LONG.set(target, offset, value);
+            case FLOAT -> FLOAT.set(target, offset, (float) value);
+            case DOUBLE -> DOUBLE.set(target, offset, (double) value);
+            default -> throw new IllegalArgumentException("Unknown ValueType: " + valueType);
+        }
+    }
+
+    /**
+     * Reads a value of {@code valueType}, unsigned types are zero extended and floating point values truncated.
+     * UINT64 values above {@link Long#MAX_VALUE} come back negative, see {@link ByteUtils#toUnsignedBigInteger(long)}.
+     */
+    public static long get(byte[] source, int offset, Base.ValueType valueType) {
+        return switch (valueType) {
+            case UINT16 -> getUInt16(source, offset);
+            case SINT16 -> getInt16(source, offset);
+            case UINT32 -> getUInt32(source, offset);
+            case SINT32 -> getInt32(source, offset);
+            case UINT64, SINT64 -> getInt64(source, offset);
+            case FLOAT -> (long) getFloat(source, offset);
+            case DOUBLE -> (long) getDouble(source, offset);
+            default -> throw new IllegalArgumentException("Unknown ValueType: " + valueType);
+        };
+    }
+
+    /**
+     * Buffer counterpart of {@link #put(byte[], int, Base.ValueType, long)}, using the absolute {@code index}
+     * regardless of the byte order and position of the buffer. Works for heap, direct and mapped buffers.
+     */
+    public static void put(ByteBuffer target, int index, Base.ValueType valueType, long value) {
+        switch (valueType) {
+            case UINT16, SINT16 -> BUFFER_SHORT.set(target, index, (short) value);
+            case UINT32, SINT32 -> BUFFER_INT.set(target, index, (int) value);
+            case UINT64, SINT64 -> BUFFER_LONG.set(target, index, value);
+            case FLOAT -> BUFFER_FLOAT.set(target, index, (float) value);
+            case DOUBLE -> BUFFER_DOUBLE.set(target, index, (double) value);
+            default -> throw new IllegalArgumentException("Unknown ValueType: " + valueType);
+        }
+    }
+
+    public static long get(ByteBuffer source, int index, Base.ValueType valueType) {
+        return switch (valueType) {
+            case UINT16 -> Short.toUnsignedInt((short) BUFFER_SHORT.get(source, index));
+            case SINT16 -> (short) BUFFER_SHORT.get(source, index);
+            case UINT32 -> Integer.toUnsignedLong((int) BUFFER_INT.get(source, index));
+            case SINT32 -> (int) BUFFER_INT.get(source, index);
+            case UINT64, SINT64 -> (long) BUFFER_LONG.get(source, index);
+            case FLOAT -> (long) (float) BUFFER_FLOAT.get(source, index);
+            case DOUBLE -> (long) (double) BUFFER_DOUBLE.get(source, index);
+            default -> throw new IllegalArgumentException("Unknown ValueType: " + valueType);
+        };
+    }
+}
@@ -3,9 +3,6 @@ package flender.dib.aiq.deviceemulationservice;
 import com.flender.vda.Base;
 
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
-
-import static java.nio.ByteOrder.LITTLE_ENDIAN;
 
 public class ByteUtils {
 
@@ -22,38 +19,37 @@ public class ByteUtils {
     }
 
     public static long intValueOfBytes(byte[] bytes) {
-        return ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN).getInt();
+        return ByteCodec.getInt32(bytes, 0);
     }
 
     public static long longValueOfBytes(byte[] bytes) {
         if (bytes.length == 4) {
             return intValueOfBytes(bytes);
         }
-        return ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN).getLong();
+        return ByteCodec.getInt64(bytes, 0);
     }
 
     public static byte[] bytesOfLongValue(long value, int length) {
-        ByteBuffer buffer = ByteBuffer.allocate(length).order(LITTLE_ENDIAN);
+        byte[] bytes = new byte[length];
         if (length == 4) {
-            buffer.putInt((int) value); // Store as 4-byte integer
+            ByteCodec.putInt32(bytes, 0, (int) value); // Store as 4-byte integer
         } else {
-            buffer.putLong(value); // Store as 8-byte long
+            ByteCodec.putInt64(bytes, 0, value); // Store as 8-byte long
         }
-        return buffer.array();
+        return bytes;
     }
 
     public static long longValueOfBytes(byte[] byteArray, int offset, int length) {
-        ByteBuffer buffer = ByteBuffer.wrap(byteArray, offset, length).order(LITTLE_ENDIAN);
         if (length == 4) {
-            return buffer.getInt() & 0xFFFFFFFFL; // Convert unsigned int to long
+            return ByteCodec.getUInt32(byteArray, offset); // Convert unsigned int to long
         } else {
-            return buffer.getLong();
+            return ByteCodec.getInt64(byteArray, offset);
         }
     }
 
 
     public static BigInteger unsignedlongValueOfBytes(byte[] bytes) {
-        return toUnsignedBigInteger(ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN).getLong());
+        return toUnsignedBigInteger(ByteCodec.getInt64(bytes, 0));
     }
 
     public static BigInteger toUnsignedBigInteger(long i) {
@@ -69,14 +65,14 @@ public class ByteUtils {
     }
 
     public static int shortValueOfBytes(byte[] bytes) {
-        return Short.toUnsignedInt(ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN).getShort());
+        return ByteCodec.getUInt16(bytes, 0);
     }
 
     public static double doubleValueOfBytes(byte[] bytes) {
-        return ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN).getDouble();
+        return ByteCodec.getDouble(bytes, 0);
     }
 
     public static Float floatValueOfBytes(byte[] bytes) {
-        return ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN).getFloat();
+        return ByteCodec.getFloat(bytes, 0);
     }
 }
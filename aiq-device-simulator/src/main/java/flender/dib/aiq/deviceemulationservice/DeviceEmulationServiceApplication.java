@@ -3,17 +3,33 @@ package flender.dib.aiq.deviceemulationservice;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.flender.vda.Base;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubClientException;
+import flender.dib.aiq.deviceemulationservice.classifications.ClassificationBatchService;
+import flender.dib.aiq.deviceemulationservice.classifications.ClassificationStore;
+import flender.dib.aiq.deviceemulationservice.classifications.DeviceClassifications;
+import flender.dib.aiq.deviceemulationservice.classifications.MappedClassificationStore;
 import flender.dib.aiq.deviceemulationservice.classifications.SpeedTorqueClassificationGenerator;
 import flender.dib.aiq.deviceemulationservice.classifications.StartTempClassificationGenerator;
 import flender.dib.aiq.deviceemulationservice.classifications.TempSpeedClassificationGenerator;
 import flender.dib.aiq.deviceemulationservice.messages.MessageService;
 import flender.dib.aiq.deviceemulationservice.operationCounters.OperationCounterGenerator;
+import flender.dib.aiq.deviceemulationservice.storage.ArtifactMetrics;
+import flender.dib.aiq.deviceemulationservice.storage.ArtifactWriter;
 import flender.dib.aiq.deviceemulationservice.storage.AzureBlobStorage;
 import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
+import flender.dib.aiq.deviceemulationservice.storage.UploadOutbox;
+import flender.dib.aiq.deviceemulationservice.storage.UploadScheduler;
 import flender.dib.aiq.deviceemulationservice.trends.CoreIOTrendGenerator0to20;
 import flender.dib.aiq.deviceemulationservice.trends.CoreIOTrendGenerator21to41;
 import flender.dib.aiq.deviceemulationservice.trends.CoreTorqueTrendGenerator0to20;
 import flender.dib.aiq.deviceemulationservice.trends.CoreTorqueTrendGenerator21to41;
+import flender.dib.aiq.deviceemulationservice.trends.SignalModelProperties;
+import flender.dib.aiq.deviceemulationservice.trends.SignalSampler;
+import flender.dib.aiq.deviceemulationservice.trends.StreamedTrendProperties;
+import flender.dib.aiq.deviceemulationservice.trends.TrendDuration;
+import flender.dib.aiq.deviceemulationservice.trends.TrendGenerator;
+import flender.dib.aiq.deviceemulationservice.trends.TrendPyramidGenerator;
+import flender.dib.aiq.deviceemulationservice.trends.TrendWindow;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
@@ -23,11 +39,15 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import static flender.dib.aiq.deviceemulationservice.trends.TrendDuration.*;
 
@@ -46,6 +66,16 @@ public class DeviceEmulationServiceApplication {
         private MessageService messageService;
         @Autowired
         private AzureBlobStorage azureBlobStorage;
+        @Autowired
+        private UploadOutbox uploadOutbox;
+        @Autowired
+        private UploadScheduler uploadScheduler;
+        @Autowired
+        private SignalModelProperties signalModelProperties;
+        @Autowired
+        private StreamedTrendProperties streamedTrendProperties;
+        @Autowired
+        private ArtifactMetrics artifactMetrics;
 
         @Value("${device-emulation.device-id}")
         private String deviceId;
@@ -86,6 +116,43 @@ public class DeviceEmulationServiceApplication {
         @Value("${device-emulation.uuids.job-temp-speed-classification}")
         private String jobTempSpeedClassification;
 
+        @Value("${device-emulation.classifications.store-directory:}")
+        private String classificationStoreDirectory;
+
+        @Value("${device-emulation.classifications.parallelism:0}")
+        private int classificationParallelism;
+
+        @Value("${device-emulation.output.in-memory:true}")
+        private boolean outputInMemory;
+
+        @Value("${device-emulation.output.debug-files:false}")
+        private boolean outputDebugFiles;
+
+        @Value("${device-emulation.upload.outbox.drain-seconds:60}")
+        private long outboxDrainSeconds;
+
+        @Value("${device-emulation.schedule.enabled:false}")
+        private boolean scheduleEnabled;
+
+        @Value("${device-emulation.schedule.trend-period-minutes:60}")
+        private long trendPeriodMinutes;
+
+        @Value("${device-emulation.schedule.operation-counter-period-minutes:30}")
+        private long operationCounterPeriodMinutes;
+
+        @Value("${device-emulation.schedule.classification-period-minutes:60}")
+        private long classificationPeriodMinutes;
+
+        @Value("${device-emulation.schedule.telemetry-period-minutes:15}")
+        private long telemetryPeriodMinutes;
+
+        private static final long SYNTHETIC_SAMPLE_COUNT = 16200000;
+
+        private DeviceClassifications classifications;
+        private SignalSampler telemetrySampler;
+        private float[] telemetryValues;
+        private long lastTelemetryTimestamp;
+
         @Override
         public void run(String... args) {
             try {
@@ -93,86 +160,197 @@ public class DeviceEmulationServiceApplication {
                 if (boardType == Base.BOARD_TYPE.CORE_WIFI) {
                     releaseAlarm();
                 }
+                uploadOutbox.resume();
+                if (scheduleEnabled) {
+                    scheduleArtifacts();
+                    sendTelemetry();
+                    if (boardType == Base.BOARD_TYPE.CORE_WIFI) {
+                        sendAlarm();
+                    }
+                    return;
+                }
                 sendTrends();
                 sendOperationCounters();
                 sendClassifications();
-                azureBlobStorage.shutdown();
+                shutdownUploads();
                 sendTelemetry();
                 if (boardType == Base.BOARD_TYPE.CORE_WIFI) {
                     sendAlarm();
                 }
             } catch (IOException | IotHubClientException e) {
-                azureBlobStorage.shutdown();
+                shutdownUploads();
                 throw new RuntimeException(e);
             }
         }
 
+        // Artifacts are generated and uploaded periodically until the application is stopped, the telemetry is sent
+        // on its own cadence in between
+        private void scheduleArtifacts() {
+            uploadScheduler.schedule(deviceId, "trends", Duration.ofMinutes(trendPeriodMinutes), slot -> sendTrends());
+            uploadScheduler.schedule(deviceId, "operation-counters", Duration.ofMinutes(operationCounterPeriodMinutes),
+                    slot -> sendOperationCounters());
+            uploadScheduler.schedule(deviceId, "classifications", Duration.ofMinutes(classificationPeriodMinutes),
+                    slot -> sendClassifications());
+            uploadScheduler.schedule(deviceId, "telemetry", Duration.ofMinutes(telemetryPeriodMinutes),
+                    slot -> sendTelemetry());
+        }
+
+        @PreDestroy
+        public void stopSchedule() {
+            if (scheduleEnabled) {
+                uploadScheduler.shutdown();
+                shutdownUploads();
+            }
+        }
+
         private void sendTrends() throws IOException, IotHubClientException {
-            ProtobufFile[] trendFiles = new ProtobufFile[7];
-            if (boardType == Base.BOARD_TYPE.CORE_ETHERNET) {
-                trendFiles[0] = new CoreTorqueTrendGenerator0to20(kpis0to20, DURATION_7_DAYS, deviceId, jobUuid7days).generateCompressedTrend();
-                trendFiles[1] = new CoreTorqueTrendGenerator21to41(kpis21to41, DURATION_7_DAYS, deviceId, jobUuid7days).generateCompressedTrend();
-                trendFiles[2] = new CoreTorqueTrendGenerator0to20(kpis0to20, DURATION_90_DAYS, deviceId, jobUuid90days).generateCompressedTrend();
-                trendFiles[3] = new CoreTorqueTrendGenerator21to41(kpis21to41, DURATION_90_DAYS, deviceId, jobUuid90days).generateCompressedTrend();
-                trendFiles[4] = new CoreTorqueTrendGenerator0to20(kpis0to20, DURATION_3_YEARS, deviceId, jobUuid3years).generateCompressedTrend();
-                trendFiles[5] = new CoreTorqueTrendGenerator21to41(kpis21to41, DURATION_3_YEARS, deviceId, jobUuid3years).generateCompressedTrend();
-                trendFiles[6] = new CoreTorqueTrendGenerator0to20(kpis0to20, DURATION_60_MINUTES, deviceId, jobUuid60min).generateCompressedTrend();
+            ProtobufFile[] trends0to20 = new TrendPyramidGenerator(
+                    duration -> createTrendGenerator0to20(duration, jobUuidOf(duration)),
+                    DURATION_7_DAYS, DURATION_90_DAYS, DURATION_3_YEARS, DURATION_60_MINUTES)
+                    .setSampleListener(getClassifications())
+                    .setMetrics(artifactMetrics)
+                    .generateCompressedTrends();
+            ProtobufFile[] trends21to41 = new TrendPyramidGenerator(
+                    duration -> createTrendGenerator21to41(duration, jobUuidOf(duration)),
+                    DURATION_7_DAYS, DURATION_90_DAYS, DURATION_3_YEARS).setMetrics(artifactMetrics).generateCompressedTrends();
+            ProtobufFile[] trendFiles = {
+                    trends0to20[0], trends21to41[0],
+                    trends0to20[1], trends21to41[1],
+                    trends0to20[2], trends21to41[2],
+                    trends0to20[3]
+            };
+            for (ProtobufFile trendFile : trendFiles) {
+                upload(trendFile);
             }
-            else {
-                trendFiles[0] = new CoreIOTrendGenerator0to20(kpis0to20, DURATION_7_DAYS, deviceId, jobUuid7days).generateCompressedTrend();
-                trendFiles[1] = new CoreIOTrendGenerator21to41(kpis21to41, DURATION_7_DAYS, deviceId, jobUuid7days).generateCompressedTrend();
-                trendFiles[2] = new CoreIOTrendGenerator0to20(kpis0to20, DURATION_90_DAYS, deviceId, jobUuid90days).generateCompressedTrend();
-                trendFiles[3] = new CoreIOTrendGenerator21to41(kpis21to41, DURATION_90_DAYS, deviceId, jobUuid90days).generateCompressedTrend();
-                trendFiles[4] = new CoreIOTrendGenerator0to20(kpis0to20, DURATION_3_YEARS, deviceId, jobUuid3years).generateCompressedTrend();
-                trendFiles[5] = new CoreIOTrendGenerator21to41(kpis21to41, DURATION_3_YEARS, deviceId, jobUuid3years).generateCompressedTrend();
-                trendFiles[6] = new CoreIOTrendGenerator0to20(kpis0to20, DURATION_60_MINUTES, deviceId, jobUuid60min).generateCompressedTrend();
+            sendStreamedTrends();
+        }
+
+        // Configured windows beyond the device's own durations, generated chunk by chunk in constant memory
+        private void sendStreamedTrends() throws IOException {
+            for (StreamedTrendProperties.Window window : streamedTrendProperties.getStreamed()) {
+                TrendWindow trendWindow = window.toTrendWindow();
+                TrendGenerator generator = switch (window.getTrend()) {
+                    case StreamedTrendProperties.KPIS_0_TO_20 -> createTrendGenerator0to20(trendWindow, window.getJobUuid());
+                    case StreamedTrendProperties.KPIS_21_TO_41 -> createTrendGenerator21to41(trendWindow, window.getJobUuid());
+                    default -> throw new IllegalArgumentException("Unknown streamed trend: " + window.getTrend());
+                };
+                upload(artifactMetrics.recordGeneration(ArtifactMetrics.TREND, trendWindow.getLabel(),
+                        generator::generateStreamedTrend));
             }
-            for (ProtobufFile trendFile : trendFiles) {
-                azureBlobStorage.uploadProtobufFile(trendFile);
-                if (!trendFile.getFile().delete()) {
-                    System.err.println("Failed to delete local trend file: " + trendFile.getFilename());
+        }
+
+        // Uploads run in the background through the outbox, shutdownUploads() waits for them
+        private void upload(ProtobufFile file) throws IOException {
+            uploadOutbox.submit(file).whenComplete((submitted, error) -> {
+                if (!file.discard()) {
+                    System.err.println("Failed to delete local file: " + file.getFilename());
                 }
+            });
+        }
+
+        // Failed uploads get some time for their retries, whatever is left stays in the outbox for the next run
+        private void shutdownUploads() {
+            try {
+                uploadOutbox.awaitEmpty(outboxDrainSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            azureBlobStorage.shutdown();
+            uploadOutbox.shutdown();
+        }
+
+        // Artifacts are uploaded from memory unless written to disk, debug files keep a local copy in memory mode
+        private ArtifactWriter artifactWriter() {
+            return outputInMemory ? ArtifactWriter.inMemory(outputDebugFiles) : ArtifactWriter.FILES;
+        }
+
+        private TrendGenerator createTrendGenerator0to20(TrendWindow window, String jobUuid) {
+            TrendGenerator generator = boardType == Base.BOARD_TYPE.CORE_ETHERNET
+                    ? new CoreTorqueTrendGenerator0to20(kpis0to20, window, deviceId, jobUuid)
+                    : new CoreIOTrendGenerator0to20(kpis0to20, window, deviceId, jobUuid);
+            return generator.setArtifactWriter(artifactWriter())
+                    .setSignalModel(generator.getSignalModel().override(signalModelProperties.getKpis0to20()));
+        }
+
+        private TrendGenerator createTrendGenerator21to41(TrendWindow window, String jobUuid) {
+            TrendGenerator generator = boardType == Base.BOARD_TYPE.CORE_ETHERNET
+                    ? new CoreTorqueTrendGenerator21to41(kpis21to41, window, deviceId, jobUuid)
+                    : new CoreIOTrendGenerator21to41(kpis21to41, window, deviceId, jobUuid);
+            return generator.setArtifactWriter(artifactWriter())
+                    .setSignalModel(generator.getSignalModel().override(signalModelProperties.getKpis21to41()));
+        }
+
+        private String jobUuidOf(TrendDuration duration) {
+            return switch (duration) {
+                case DURATION_60_MINUTES -> jobUuid60min;
+                case DURATION_7_DAYS -> jobUuid7days;
+                case DURATION_90_DAYS -> jobUuid90days;
+                case DURATION_3_YEARS -> jobUuid3years;
+                default -> throw new IllegalArgumentException("No job configured for " + duration);
+            };
         }
 
         private void sendOperationCounters() throws IOException, IotHubClientException {
             // Operation time = 4500hrs + time since 31.03.2025
             ZonedDateTime startDateHMI = ZonedDateTime.of(2025, 3, 31, 0, 0, 0, 0, ZoneId.of("UTC"));
             int secondsElapsed = (int) (Instant.now().getEpochSecond() - startDateHMI.toInstant().getEpochSecond());
-            ProtobufFile oc_file = new OperationCounterGenerator(deviceId, jobUuidOperationCounters,
-                    4500*3600+secondsElapsed, 3600).generateOperationCounterFile();
-            azureBlobStorage.uploadProtobufFile(oc_file);
-            if (!oc_file.getFile().delete()) {
-                System.err.println("Failed to delete local operation counters file: " + oc_file.getFilename());
-            }
+            ProtobufFile oc_file = artifactMetrics.recordGeneration(ArtifactMetrics.OPERATION_COUNTER, null,
+                    () -> new OperationCounterGenerator(deviceId, jobUuidOperationCounters, 4500*3600+secondsElapsed, 3600)
+                            .setArtifactWriter(artifactWriter()).generateOperationCounterFile());
+            upload(oc_file);
         }
 
-        private void sendClassifications() throws IOException, IotHubClientException {
-            ProtobufFile temp_speed_cvc_file = new TempSpeedClassificationGenerator(deviceId,
-                    jobTempSpeedClassification, 16200000).generateClassificationFile();
-            azureBlobStorage.uploadProtobufFile(temp_speed_cvc_file);
-            if (!temp_speed_cvc_file.getFile().delete()) {
-                System.err.println("Failed to delete local operation counters file: " + temp_speed_cvc_file.getFilename());
+        // Counted from the samples of the kpi0-20 trends: rpm is kpi0, temperature kpi1 and torque kpi2.
+        // With a store directory the counters are memory-mapped and continue across runs.
+        private synchronized DeviceClassifications getClassifications() throws IOException {
+            if (classifications == null) {
+                ClassificationStore store = classificationStoreDirectory.isBlank()
+                        ? ClassificationStore.HEAP
+                        : new MappedClassificationStore(Path.of(classificationStoreDirectory));
+                classifications = new DeviceClassifications(store, deviceId, 0, 1,
+                        boardType == Base.BOARD_TYPE.CORE_ETHERNET ? 2 : -1);
             }
+            return classifications;
+        }
 
-            ArrayList<int[]> startupTemperatures = new ArrayList<>();
-            startupTemperatures.add(new int[]{26,123});
-            startupTemperatures.add(new int[]{58,286});
-            ProtobufFile start_temp_cvc_file = new StartTempClassificationGenerator(deviceId,
-                    jobStartTempClassification, 16200000, startupTemperatures).generateClassificationFile();
-            azureBlobStorage.uploadProtobufFile(start_temp_cvc_file);
-            if (!start_temp_cvc_file.getFile().delete()) {
-                System.err.println("Failed to delete local operation counters file: " + start_temp_cvc_file.getFilename());
+        private void sendClassifications() throws IOException {
+            try (ClassificationBatchService batchService = new ClassificationBatchService(classificationParallelism)) {
+                List<Callable<ProtobufFile>> tasks = getClassifications().generationTasks(artifactWriter(), deviceId,
+                        jobTempSpeedClassification, jobStartTempClassification, jobSpeedTorqueClassification);
+                if (tasks.isEmpty()) {
+                    tasks = syntheticClassificationTasks();
+                }
+                batchService.generate(tasks.stream()
+                        .map(task -> artifactMetrics.timed(ArtifactMetrics.CLASSIFICATION, task))
+                        .toList(), this::upload);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while generating classifications", e);
             }
+        }
+
+        // Stand-ins until a trend has been sampled, e.g. when the schedule runs the classifications first: a typical
+        // load profile rendered from peaks and spread by the stencil instead of counted
+        private List<Callable<ProtobufFile>> syntheticClassificationTasks() {
+            List<Callable<ProtobufFile>> tasks = new ArrayList<>();
+            TempSpeedClassificationGenerator tempSpeed = new TempSpeedClassificationGenerator(deviceId,
+                    jobTempSpeedClassification, SYNTHETIC_SAMPLE_COUNT);
+            tempSpeed.setArtifactWriter(artifactWriter());
+            tasks.add(tempSpeed::generateClassificationFile);
+
+            List<int[]> startupTemperatures = List.of(new int[]{26, 123}, new int[]{58, 286});
+            StartTempClassificationGenerator startTemp = new StartTempClassificationGenerator(deviceId,
+                    jobStartTempClassification, SYNTHETIC_SAMPLE_COUNT, startupTemperatures);
+            startTemp.setArtifactWriter(artifactWriter());
+            tasks.add(startTemp::generateClassificationFile);
 
             if (boardType == Base.BOARD_TYPE.CORE_ETHERNET) {
-                ProtobufFile speed_torque_cvc_file = new SpeedTorqueClassificationGenerator(deviceId,
-                        jobSpeedTorqueClassification, 16200000).generateClassificationFile();
-                azureBlobStorage.uploadProtobufFile(speed_torque_cvc_file);
-            if (!speed_torque_cvc_file.getFile().delete()) {
-                System.err.println("Failed to delete local operation counters file: " + speed_torque_cvc_file.getFilename());
-            }
+                SpeedTorqueClassificationGenerator speedTorque = new SpeedTorqueClassificationGenerator(deviceId,
+                        jobSpeedTorqueClassification, SYNTHETIC_SAMPLE_COUNT);
+                speedTorque.setArtifactWriter(artifactWriter());
+                tasks.add(speedTorque::generateClassificationFile);
             }
+            return tasks;
         }
 
         private void releaseAlarm() throws JsonProcessingException {
@@ -203,27 +381,43 @@ public class DeviceEmulationServiceApplication {
             );
         }
 
+        // Current values of the same signal model the trends are generated from. The model is compiled once and the
+        // sampler advanced by the time since the previous message, so random walks and damage growth carry on.
+        private synchronized float[] sampleTelemetry() {
+            long now = Instant.now().getEpochSecond();
+            if (telemetrySampler == null) {
+                telemetrySampler = createTrendGenerator0to20(DURATION_60_MINUTES, jobUuid60min).getSignalModel().compile(now);
+                telemetryValues = new float[telemetrySampler.getSignalCount()];
+                lastTelemetryTimestamp = now - 1;
+            }
+            int stepSeconds = (int) Math.min(Integer.MAX_VALUE, Math.max(1, now - lastTelemetryTimestamp));
+            telemetrySampler.sample(now, stepSeconds, telemetryValues);
+            lastTelemetryTimestamp = now;
+            return telemetryValues.clone();
+        }
+
         private void sendTelemetry() throws JsonProcessingException {
+            float[] kpis = sampleTelemetry();
             if (boardType == Base.BOARD_TYPE.CORE_ETHERNET) {
                 messageService.sendCoreTorqueStateMessage(
                         deviceId,
                         boardType,
-                        (double) kpis0to20.get(1),  // tempValue
+                        (double) kpis[1],           // tempValue
                         100.0,                      // tempUpperMain
                         90.0,                       // tempUpperPre
                         null,                       // tempLowerPre
                         -10.0,                      // tempLowerMain
-                        (double) kpis0to20.get(0),  // rpmValue
+                        (double) kpis[0],           // rpmValue
                         1800.0,                     // rpmUpperMain
                         null,                       // rpmUpperPre
                         null,                       // rpmLowerPre
                         null,                       // rpmLowerMain
-                        (double) kpis0to20.get(5),  // vibrValue
+                        (double) kpis[5],           // vibrValue
                         50.0,                       // vibrUpperMain
                         null,                       // vibrUpperPre
                         null,                       // vibrLowerPre
                         null,                       // vibrLowerMain
-                        (double) kpis0to20.get(4),  // vibrValue
+                        (double) kpis[4],           // vibrValue
                         700.0,                       // vibrUpperMain
                         null,                       // vibrUpperPre
                         null,                       // vibrLowerPre
@@ -235,17 +429,17 @@ public class DeviceEmulationServiceApplication {
                 messageService.sendCoreIOStateMessage(
                         deviceId,
                         boardType,
-                        (double) kpis0to20.get(1),  // tempValue
+                        (double) kpis[1],           // tempValue
                         100.0,                      // tempUpperMain
                         90.0,                       // tempUpperPre
                         null,                       // tempLowerPre
                         -10.0,                      // tempLowerMain
-                        (double) kpis0to20.get(0),  // rpmValue
+                        (double) kpis[0],           // rpmValue
                         1800.0,                     // rpmUpperMain
                         null,                       // rpmUpperPre
                         null,                       // rpmLowerPre
                         null,                       // rpmLowerMain
-                        (double) kpis0to20.get(2),  // vibrValue
+                        (double) kpis[2],           // vibrValue
                         50.0,                       // vibrUpperMain
                         null,                       // vibrUpperPre
                         null,                       // vibrLowerPre
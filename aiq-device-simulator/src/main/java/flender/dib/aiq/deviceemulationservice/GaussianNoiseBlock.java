@@ -0,0 +1,46 @@
+package flender.dib.aiq.deviceemulationservice;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Block of pre-generated standard normal noise.
+ * Generators that need one Gaussian per value read consecutive values from a random position instead of calling
+ * {@link Random#nextGaussian()} per value. The block is padded with a copy of its first values, so a read of up to
+ * {@link #PADDING} consecutive values starting at any position below {@link #SIZE} never wraps around.
+ */
+public final class GaussianNoiseBlock {
+
+    public static final int SIZE = 1 << 16;
+    public static final int MASK = SIZE - 1;
+    public static final int PADDING = 64;
+
+    private static final float[] VALUES = generate();
+
+    private GaussianNoiseBlock() {
+    }
+
+    /**
+     * The noise values, {@link #SIZE} + {@link #PADDING} long. Must not be modified.
+     */
+    public static float[] values() {
+        return VALUES;
+    }
+
+    /**
+     * Random start position for a new series, so that series do not share their noise.
+     */
+    public static int randomOffset() {
+        return ThreadLocalRandom.current().nextInt(SIZE);
+    }
+
+    private static float[] generate() {
+        Random random = new Random();
+        float[] values = new float[SIZE + PADDING];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        System.arraycopy(values, 0, values, SIZE, PADDING);
+        return values;
+    }
+}
@@ -0,0 +1,55 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.ClassificationOuterClass.Classification;
+import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes a snapshot of the counters of a {@link ClassificationAccumulator} as continuous classification file.
+ * The snapshot is taken beforehand while counting is paused, so counting can go on while the file is generated.
+ */
+public class AccumulatedClassificationGenerator extends ClassificationGenerator {
+
+    private final ClassificationAccumulator accumulator;
+    private final ClassificationAccumulator.EncodedSnapshot snapshot;
+    private final String fileNameSuffix;
+
+    /**
+     * @param fileNameSuffix classification specific part of the file name, e.g. "cont" or "start"
+     */
+    public AccumulatedClassificationGenerator(String deviceId, String jobUUID, ClassificationAccumulator accumulator,
+                                              ClassificationAccumulator.EncodedSnapshot snapshot, int sampleRate,
+                                              Instant startTime, Instant lastTimeWritten, String fileNameSuffix) {
+        super(deviceId, jobUUID, Classification.Type.CVC, Classification.PeriodType.CONTINUOUS, startTime, lastTimeWritten,
+                snapshot.sampleCount(), sampleRate, accumulator.getCounters().getValueType());
+        this.accumulator = accumulator;
+        this.snapshot = snapshot;
+        this.fileNameSuffix = fileNameSuffix;
+    }
+
+    public ProtobufFile generateClassificationFile() throws IOException {
+        return generateClassificationFile(accumulator.getDimensions());
+    }
+
+    @Override
+    protected ByteBuffer generateData() {
+        return snapshot.data().duplicate();
+    }
+
+    @Override
+    protected String generateFileName() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+        String timestamp = LocalDateTime.now().format(formatter);
+        String uuidStr = jobUUID.replace("-", "");
+        return String.format("%s_cvc_%s_%s_%s.dxcd",
+                deviceId.replace(":", "").toLowerCase(),
+                uuidStr,
+                fileNameSuffix,
+                timestamp);
+    }
+}
@@ -0,0 +1,132 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+import com.flender.vda.ClassificationOuterClass.Classification;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live histogram of a one- or two-dimensional classification, counted like the device does.
+ * Every sample increments one class in O(1); values outside the borders are counted in the outermost class,
+ * NaN values are ignored. Counters are updated lock-free, so samples can be added while a snapshot is taken.
+ * The counters are kept in {@link ClassificationCounters}, on the heap or memory-mapped, in the layout of the
+ * classification data: index {@code column + row * columnCount} with the first dimension as columns.
+ */
+public class ClassificationAccumulator {
+
+    private final List<Classification.Dimension> dimensions;
+    private final int columnCount;
+    private final int rowCount;
+    private final float columnLowerBorder;
+    private final float columnScale;
+    private final float rowLowerBorder;
+    private final float rowScale;
+    private final ClassificationCounters counters;
+    private final AtomicLong sampleCount;
+
+    public ClassificationAccumulator(Classification.Dimension... dimensions) {
+        this(null, dimensions);
+    }
+
+    /**
+     * @param counters counters to continue, null for new heap counters
+     */
+    public ClassificationAccumulator(ClassificationCounters counters, Classification.Dimension... dimensions) {
+        if (dimensions.length != 1 && dimensions.length != 2) {
+            throw new IllegalArgumentException("Classifications have one or two dimensions, got " + dimensions.length);
+        }
+        this.dimensions = List.of(dimensions);
+        Classification.Dimension columns = dimensions[0];
+        columnCount = columns.getNumberOfClasses();
+        columnLowerBorder = columns.getLowerBorder();
+        columnScale = columnCount / (columns.getUpperBorder() - columns.getLowerBorder());
+        if (dimensions.length == 2) {
+            Classification.Dimension rows = dimensions[1];
+            rowCount = rows.getNumberOfClasses();
+            rowLowerBorder = rows.getLowerBorder();
+            rowScale = rowCount / (rows.getUpperBorder() - rows.getLowerBorder());
+        } else {
+            rowCount = 1;
+            rowLowerBorder = 0;
+            rowScale = 0;
+        }
+        if (counters == null) {
+            counters = new HeapClassificationCounters(columnCount * rowCount, Base.ValueType.UINT64);
+        } else if (counters.getCellCount() != columnCount * rowCount) {
+            throw new IllegalArgumentException("Counters have " + counters.getCellCount() + " cells, expected " + columnCount * rowCount);
+        }
+        this.counters = counters;
+        long existing = 0;
+        for (int cell = 0; cell < counters.getCellCount(); cell++) {
+            existing += counters.get(cell);
+        }
+        sampleCount = new AtomicLong(existing);
+    }
+
+    public void add(float value, long count) {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        counters.add(classOf(value, columnLowerBorder, columnScale, columnCount), count);
+        sampleCount.addAndGet(count);
+    }
+
+    public void add(float columnValue, float rowValue, long count) {
+        if (Float.isNaN(columnValue) || Float.isNaN(rowValue)) {
+            return;
+        }
+        int column = classOf(columnValue, columnLowerBorder, columnScale, columnCount);
+        int row = classOf(rowValue, rowLowerBorder, rowScale, rowCount);
+        counters.add(column + row * columnCount, count);
+        sampleCount.addAndGet(count);
+    }
+
+    /**
+     * Copy of the current counters.
+     */
+    public long[] snapshot() {
+        long[] snapshot = new long[counters.getCellCount()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counters.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * The encoded counters together with the number of samples they add up to. The two only match if no sample is
+     * added while the snapshot is taken, so callers have to keep counting paused meanwhile.
+     */
+    public EncodedSnapshot encodedSnapshot() {
+        return new EncodedSnapshot(counters.encoded(), sampleCount.get());
+    }
+
+    /**
+     * Resets all counters to zero, e.g. when it is unknown which samples they contain.
+     */
+    public void clear() {
+        counters.clear();
+        sampleCount.set(0);
+    }
+
+    public ClassificationCounters getCounters() {
+        return counters;
+    }
+
+    public long getSampleCount() {
+        return sampleCount.get();
+    }
+
+    public List<Classification.Dimension> getDimensions() {
+        return dimensions;
+    }
+
+    public record EncodedSnapshot(ByteBuffer data, long sampleCount) {
+    }
+
+    private static int classOf(float value, float lowerBorder, float scale, int classCount) {
+        int index = (int) ((value - lowerBorder) * scale);
+        return Math.max(0, Math.min(classCount - 1, index));
+    }
+}
@@ -0,0 +1,102 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Generates the classification files of many devices in parallel. Every task produces one file, typically one
+ * classification of one device, and runs on a work-stealing pool limited to the configured parallelism.
+ * Finished files are handed to the upload stage on the calling thread in the order they complete, so uploading
+ * overlaps with the generation of the remaining files.
+ */
+public class ClassificationBatchService implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism maximum number of files generated at the same time, 0 for one per processor
+     */
+    public ClassificationBatchService(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Runs all tasks and passes each generated file to {@code uploadStage}. Failing tasks and uploads are logged
+     * and counted, the remaining files are still processed.
+     */
+    public BatchResult generate(Collection<? extends Callable<ProtobufFile>> tasks, UploadStage uploadStage) throws InterruptedException {
+        long start = System.nanoTime();
+        CompletionService<ProtobufFile> completionService = new ExecutorCompletionService<>(pool);
+        for (Callable<ProtobufFile> task : tasks) {
+            completionService.submit(task);
+        }
+
+        int fileCount = 0;
+        int failedCount = 0;
+        long byteCount = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            Future<ProtobufFile> future = completionService.take();
+            try {
+                ProtobufFile file = future.get();
+                long length = file.contentLength();  // before the upload stage may discard it
+                uploadStage.upload(file);
+                fileCount++;
+                byteCount += length;
+            } catch (ExecutionException e) {
+                failedCount++;
+                // The pool wraps checked exceptions of the task into a RuntimeException
+                Throwable cause = e.getCause() instanceof RuntimeException && e.getCause().getCause() != null
+                        ? e.getCause().getCause()
+                        : e.getCause();
+                System.err.println("Error generating classification file: " + cause.getMessage());
+            } catch (Exception e) {
+                failedCount++;
+                System.err.println("Error uploading classification file: " + e.getMessage());
+            }
+        }
+
+        BatchResult result = new BatchResult(fileCount, failedCount, byteCount, System.nanoTime() - start);
+        System.out.printf("Generated %d classification files (%d failed) in %.2f s: %.1f files/s, %.2f MB/s%n",
+                result.fileCount(), result.failedCount(), result.nanos() / 1e9, result.filesPerSecond(), result.megabytesPerSecond());
+        return result;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    @FunctionalInterface
+    public interface UploadStage {
+        void upload(ProtobufFile file) throws Exception;
+    }
+
+    /**
+     * @param byteCount total size of the generated files
+     * @param nanos wall time of generation and upload
+     */
+    public record BatchResult(int fileCount, int failedCount, long byteCount, long nanos) {
+
+        public double filesPerSecond() {
+            return nanos > 0 ? fileCount * 1e9 / nanos : 0;
+        }
+
+        public double megabytesPerSecond() {
+            return nanos > 0 ? byteCount * 1e9 / nanos / (1024 * 1024) : 0;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counters of one classification matrix, indexed {@code column + row * columnCount}. Implementations are safe for
+ * concurrent {@link #add(int, long)} calls.
+ */
+public interface ClassificationCounters {
+
+    int getCellCount();
+
+    /**
+     * Value type the counters are encoded with in the classification data.
+     */
+    Base.ValueType getValueType();
+
+    void add(int cell, long count);
+
+    long get(int cell);
+
+    void clear();
+
+    /**
+     * Copy of the counters little-endian encoded with {@link #getValueType()}, as the classification data field
+     * expects them, starting at position 0. Additions made while the copy is taken may or may not be included.
+     */
+    ByteBuffer encoded();
+}
@@ -0,0 +1,34 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+import com.flender.vda.ClassificationOuterClass.Classification;
+
+/**
+ * Class layouts of the classifications reported by the devices.
+ */
+public final class ClassificationDimensions {
+
+    public static final Classification.Dimension SPEED = Classification.Dimension.newBuilder()
+            .setUnit(Base.Unit.RPM)
+            .setNumberOfClasses(100)
+            .setLowerBorder(0f)
+            .setUpperBorder(3000f)
+            .build();
+
+    public static final Classification.Dimension TEMPERATURE = Classification.Dimension.newBuilder()
+            .setUnit(Base.Unit.DEGREE_CELSIUS)
+            .setNumberOfClasses(175)
+            .setLowerBorder(-40f)
+            .setUpperBorder(135f)
+            .build();
+
+    public static final Classification.Dimension TORQUE = Classification.Dimension.newBuilder()
+            .setUnit(Base.Unit.KILO_NEWTON_METRE)
+            .setNumberOfClasses(100)
+            .setLowerBorder(-703f)   // todo: limits as parameters
+            .setUpperBorder(703f)
+            .build();
+
+    private ClassificationDimensions() {
+    }
+}
@@ -5,12 +5,15 @@ import com.flender.vda.Base.ValueType;
 import com.flender.vda.ClassificationOuterClass.Classification;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Timestamp;
+import com.google.protobuf.UnsafeByteOperations;
 import com.google.protobuf.Value;
+import flender.dib.aiq.deviceemulationservice.ByteCodec;
 import flender.dib.aiq.deviceemulationservice.ByteUtils;
+import flender.dib.aiq.deviceemulationservice.compression.DeflateCompressor;
+import flender.dib.aiq.deviceemulationservice.storage.ArtifactWriter;
 import flender.dib.aiq.deviceemulationservice.storage.ClassificationFile;
 import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -37,6 +40,16 @@ public abstract class ClassificationGenerator {
     private static final Random random = new Random();
     private static final String FILE_PATH = "ClassificationOutputs/";
 
+    // Automatic compression: only dense data of at least this size with enough empty cells is compressed,
+    // and the result is kept only if it saves a noticeable share of the data
+    private static final int MIN_COMPRESSION_SIZE = 1024;
+    private static final double MIN_EMPTY_CELL_FRACTION = 0.25;
+    private static final double MAX_COMPRESSION_RATIO = 0.9;
+
+    private Compression compression;   // null selects the compression automatically
+    private DeflateCompressor compressor = DeflateCompressor.DEFAULT;
+    private ArtifactWriter artifactWriter = ArtifactWriter.FILES;
+
     public ClassificationGenerator(String deviceId, String jobUUID, Classification.Type type,
                                    Classification.PeriodType periodType, long sampleCount, int sampleRate, ValueType valueType) {
         this.deviceId = deviceId;
@@ -53,11 +66,65 @@ public abstract class ClassificationGenerator {
         this.valueType = valueType;
     }
 
+    protected ClassificationGenerator(String deviceId, String jobUUID, Classification.Type type,
+                                      Classification.PeriodType periodType, Instant startTime, Instant lastTimeWritten,
+                                      long sampleCount, int sampleRate, ValueType valueType) {
+        this.deviceId = deviceId;
+        this.jobUUID = jobUUID;
+        this.measurementUUID = UUID.randomUUID();
+        this.type = type;
+        this.periodType = periodType;
+        this.startTime = startTime.truncatedTo(ChronoUnit.SECONDS);
+        this.lastTimeWritten = lastTimeWritten.truncatedTo(ChronoUnit.SECONDS);
+        this.sampleRate = sampleRate;
+        this.sampleCount = sampleCount;
+        this.valueType = valueType;
+    }
+
+    /**
+     * Fixes the compression of the data field to {@link Compression#NONE} or {@link Compression#ZLIB}, or selects it
+     * automatically from the size and sparsity of each generated matrix when {@code null} (the default).
+     */
+    public ClassificationGenerator setCompression(Compression compression) {
+        if (compression != null && compression != Compression.NONE && compression != Compression.ZLIB) {
+            throw new IllegalArgumentException("Unsupported classification compression: " + compression);
+        }
+        this.compression = compression;
+        return this;
+    }
+
+    public ClassificationGenerator setCompressor(DeflateCompressor compressor) {
+        this.compressor = compressor;
+        return this;
+    }
+
+    public ClassificationGenerator setArtifactWriter(ArtifactWriter artifactWriter) {
+        this.artifactWriter = artifactWriter;
+        return this;
+    }
+
     protected ProtobufFile generateClassificationFile(List<Classification.Dimension> dimensions) throws IOException {
+        ByteBuffer data = generateData().slice();
+        int dataSize = data.remaining();
+        Compression dataCompression = compression != null ? compression : selectCompression(data);
+        // Wrapping instead of copying, the data buffer is not modified until the file is written
+        ByteString payload = null;
+        if (dataCompression == Compression.ZLIB) {
+            byte[] compressed = compressor.compress(data);
+            if (compression == null && compressed.length > dataSize * MAX_COMPRESSION_RATIO) {
+                dataCompression = Compression.NONE;
+            } else {
+                payload = UnsafeByteOperations.unsafeWrap(compressed);
+            }
+        }
+        if (payload == null) {
+            payload = UnsafeByteOperations.unsafeWrap(data);
+        }
+
         Classification.Builder classificationBuilder = Classification.newBuilder()
                 .setVersion(1)
                 .setDeviceID(deviceId)
-                .setCompression(Compression.NONE)
+                .setCompression(dataCompression)
                 .setJobUUID(convertUUIDToByteString(UUID.fromString(jobUUID)))
                 .setMeasurementUUID(convertUUIDToByteString(measurementUUID))
                 .setType(type)
@@ -67,14 +134,34 @@ public abstract class ClassificationGenerator {
                 .setValueType(valueType)
                 .setSampleRate(sampleRate)
                 .setSampleCount(sampleCount)
-                .setData(ByteString.copyFrom(generateData()));
+                .setData(payload);
 
         for (Classification.Dimension dimension : dimensions) {
             classificationBuilder.addDimension(dimension);
         }
 
         Classification classification = classificationBuilder.build();
-        return writeToFile(generateFileName(), classification);
+        return writeToFile(generateFileName(), classification, dataSize);
+    }
+
+    private Compression selectCompression(ByteBuffer data) {
+        if (data.remaining() < MIN_COMPRESSION_SIZE) {
+            return Compression.NONE;
+        }
+        int width = ByteUtils.lengthOfValueType(valueType);
+        ValueType cellType = switch (width) {
+            case 2 -> ValueType.SINT16;
+            case 4 -> ValueType.SINT32;
+            default -> ValueType.SINT64;
+        };
+        int cellCount = data.remaining() / width;
+        int emptyCells = 0;
+        for (int offset = 0; offset < data.remaining(); offset += width) {
+            if (ByteCodec.get(data, offset, cellType) == 0) {
+                emptyCells++;
+            }
+        }
+        return emptyCells >= cellCount * MIN_EMPTY_CELL_FRACTION ? Compression.ZLIB : Compression.NONE;
     }
 
     private ByteString convertUUIDToByteString(UUID uuid) {
@@ -91,14 +178,14 @@ public abstract class ClassificationGenerator {
                 .build();
     }
 
-    private ProtobufFile writeToFile(String filename, Classification classification) throws IOException {
+    private ProtobufFile writeToFile(String filename, Classification classification, int uncompressedDataSize) throws IOException {
         byte[] dataBytes = classification.toByteArray();
         byte[] crcBytes = calculateCRC32(dataBytes);
 
-        try (FileOutputStream fos = new FileOutputStream(FILE_PATH + filename)) {
-            fos.write(dataBytes);
-            fos.write(crcBytes);
-            return new ClassificationFile(FILE_PATH+filename, classification);
+        try (ArtifactWriter.Output out = artifactWriter.open(FILE_PATH, filename, dataBytes.length + crcBytes.length)) {
+            out.write(dataBytes);
+            out.write(crcBytes);
+            return new ClassificationFile(out.finish(), classification, uncompressedDataSize);
         }
     }
 
@@ -108,7 +195,11 @@ public abstract class ClassificationGenerator {
         return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue()).array();
     }
 
-    protected abstract byte[] generateData() ;
+    /**
+     * The encoded matrix, starting at the buffer's position. It is serialized without copying, so it must not
+     * change until the file is written.
+     */
+    protected abstract ByteBuffer generateData();
 
     protected abstract String generateFileName();
 }
@@ -0,0 +1,24 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+/**
+ * Time range of the samples counted into the classifications of one device. It is kept by the same
+ * {@link ClassificationStore} as the counters, so a count that continues across runs knows which samples it
+ * already contains.
+ */
+public interface ClassificationProgress {
+
+    /** Timestamp of a progress without any counted sample */
+    long NONE = Long.MIN_VALUE;
+
+    /**
+     * Start of the first counted sample in epoch seconds, {@link #NONE} if nothing was counted yet.
+     */
+    long getFirstTimestamp();
+
+    /**
+     * Timestamp of the last counted sample in epoch seconds, {@link #NONE} if nothing was counted yet.
+     */
+    long getLastTimestamp();
+
+    void update(long firstTimestamp, long lastTimestamp);
+}
@@ -0,0 +1,26 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+
+/**
+ * Provides the counters of each device's classifications, one matrix per device and classification.
+ */
+public interface ClassificationStore {
+
+    /**
+     * Store keeping the counters on the Java heap.
+     */
+    ClassificationStore HEAP = (deviceId, classification, cellCount, valueType) -> new HeapClassificationCounters(cellCount, valueType);
+
+    /**
+     * @param classification name of the classification within the device, e.g. "temp-speed"
+     */
+    ClassificationCounters counters(String deviceId, String classification, int cellCount, Base.ValueType valueType);
+
+    /**
+     * Time range counted into the device's counters, kept on the heap unless the store persists it.
+     */
+    default ClassificationProgress progress(String deviceId) {
+        return new HeapClassificationProgress();
+    }
+}
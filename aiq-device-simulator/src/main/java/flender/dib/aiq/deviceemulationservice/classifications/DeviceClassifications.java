@@ -0,0 +1,183 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+import com.flender.vda.ClassificationOuterClass.Classification;
+import flender.dib.aiq.deviceemulationservice.storage.ArtifactWriter;
+import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
+import flender.dib.aiq.deviceemulationservice.trends.SampleListener;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Live temperature/speed, speed/torque and start temperature classifications of one device, counted from its
+ * continuous signal samples. Each sample stands for {@code stepSeconds} seconds and is counted with the sample rate
+ * of the respective classification. Samples at or before the last counted one are skipped, so the history that is
+ * regenerated with every trend upload is counted only once. The counted time range is kept by the store next to
+ * the counters, so this also holds across runs; counters found without it are cleared, as it is unknown which
+ * samples they contain. A start is detected when the speed rises above {@link #START_SPEED_RPM}; the first sample
+ * counts as a start, like a device that is switched on.
+ */
+public class DeviceClassifications implements SampleListener {
+
+    public static final float START_SPEED_RPM = 10;
+    public static final int TEMP_SPEED_SAMPLE_RATE = 1;
+    public static final int SPEED_TORQUE_SAMPLE_RATE = 500;
+
+    private final int speedSignal;
+    private final int temperatureSignal;
+    private final int torqueSignal;
+    private final ClassificationAccumulator tempSpeed;
+    private final ClassificationAccumulator startTemp;
+    private final ClassificationAccumulator speedTorque;
+
+    private final ClassificationProgress progress;
+    private boolean running;
+
+    /**
+     * Classifications counted on the heap.
+     */
+    public DeviceClassifications(int speedSignal, int temperatureSignal, int torqueSignal) {
+        this(ClassificationStore.HEAP, "", speedSignal, temperatureSignal, torqueSignal);
+    }
+
+    /**
+     * @param store provides the counters of the device's classifications
+     * @param deviceId device the counters of the store belong to
+     * @param speedSignal index of the speed within the sampled values
+     * @param temperatureSignal index of the temperature within the sampled values
+     * @param torqueSignal index of the torque within the sampled values, -1 for devices without torque measurement
+     */
+    public DeviceClassifications(ClassificationStore store, String deviceId, int speedSignal, int temperatureSignal,
+                                 int torqueSignal) {
+        this.speedSignal = speedSignal;
+        this.temperatureSignal = temperatureSignal;
+        this.torqueSignal = torqueSignal;
+        tempSpeed = accumulator(store, deviceId, "temp-speed", Base.ValueType.UINT32,
+                ClassificationDimensions.SPEED, ClassificationDimensions.TEMPERATURE);
+        startTemp = accumulator(store, deviceId, "start-temp", Base.ValueType.UINT32, ClassificationDimensions.TEMPERATURE);
+        speedTorque = torqueSignal >= 0
+                ? accumulator(store, deviceId, "speed-torque", Base.ValueType.UINT64,
+                        ClassificationDimensions.SPEED, ClassificationDimensions.TORQUE)
+                : null;
+        progress = store.progress(deviceId);
+        if (progress.getLastTimestamp() == ClassificationProgress.NONE) {
+            tempSpeed.clear();
+            startTemp.clear();
+            if (speedTorque != null) {
+                speedTorque.clear();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onSample(long timestamp, int stepSeconds, float[] values) {
+        long lastTimestamp = progress.getLastTimestamp();
+        if (timestamp <= lastTimestamp) {
+            return;
+        }
+        float speed = values[speedSignal];
+        float temperature = values[temperatureSignal];
+        tempSpeed.add(speed, temperature, (long) stepSeconds * TEMP_SPEED_SAMPLE_RATE);
+        if (speedTorque != null) {
+            speedTorque.add(speed, values[torqueSignal], (long) stepSeconds * SPEED_TORQUE_SAMPLE_RATE);
+        }
+
+        boolean nowRunning = speed >= START_SPEED_RPM;
+        if (nowRunning && !running) {
+            startTemp.add(temperature, 1);
+        }
+        running = nowRunning;
+
+        long firstTimestamp = lastTimestamp == ClassificationProgress.NONE
+                ? timestamp - stepSeconds
+                : progress.getFirstTimestamp();
+        progress.update(firstTimestamp, timestamp);
+    }
+
+    private static ClassificationAccumulator accumulator(ClassificationStore store, String deviceId, String classification,
+                                                         Base.ValueType valueType, Classification.Dimension... dimensions) {
+        int cellCount = 1;
+        for (Classification.Dimension dimension : dimensions) {
+            cellCount *= dimension.getNumberOfClasses();
+        }
+        return new ClassificationAccumulator(store.counters(deviceId, classification, cellCount, valueType), dimensions);
+    }
+
+    /**
+     * One task per classification of the device, each generating the classification file of the current counters.
+     * The counters and the time range are copied while counting is paused when the tasks are created, the tasks
+     * themselves run concurrently with further counting. Classifications without any counted sample are left out,
+     * e.g. all of them when no trend has been generated yet.
+     *
+     * @param artifactWriter destination of the generated files
+     * @param speedTorqueJob job of the speed/torque classification, ignored for devices without torque measurement
+     */
+    public List<Callable<ProtobufFile>> generationTasks(ArtifactWriter artifactWriter, String deviceId, String tempSpeedJob,
+                                                       String startTempJob, String speedTorqueJob) {
+        List<Callable<ProtobufFile>> tasks = new ArrayList<>();
+        synchronized (this) {
+            Instant startTime = getFirstSampleTime();
+            Instant lastTimeWritten = getLastSampleTime();
+            addTask(tasks, artifactWriter, deviceId, tempSpeedJob, tempSpeed, TEMP_SPEED_SAMPLE_RATE,
+                    startTime, lastTimeWritten, "cont");
+            addTask(tasks, artifactWriter, deviceId, startTempJob, startTemp, 1,
+                    startTime, lastTimeWritten, "start");
+            if (speedTorque != null) {
+                addTask(tasks, artifactWriter, deviceId, speedTorqueJob, speedTorque, SPEED_TORQUE_SAMPLE_RATE,
+                        startTime, lastTimeWritten, "cont");
+            }
+        }
+        return tasks;
+    }
+
+    private static void addTask(List<Callable<ProtobufFile>> tasks, ArtifactWriter artifactWriter, String deviceId,
+                                String jobUuid, ClassificationAccumulator accumulator, int sampleRate,
+                                Instant startTime, Instant lastTimeWritten, String fileNameSuffix) {
+        if (accumulator.getSampleCount() == 0) {
+            return;
+        }
+        ClassificationAccumulator.EncodedSnapshot snapshot = accumulator.encodedSnapshot();
+        tasks.add(() -> generateFile(artifactWriter, deviceId, jobUuid, accumulator, snapshot, sampleRate,
+                startTime, lastTimeWritten, fileNameSuffix));
+    }
+
+    private static ProtobufFile generateFile(ArtifactWriter artifactWriter, String deviceId, String jobUuid,
+                                             ClassificationAccumulator accumulator,
+                                             ClassificationAccumulator.EncodedSnapshot snapshot, int sampleRate,
+                                             Instant startTime, Instant lastTimeWritten, String fileNameSuffix)
+            throws IOException {
+        AccumulatedClassificationGenerator generator = new AccumulatedClassificationGenerator(deviceId, jobUuid,
+                accumulator, snapshot, sampleRate, startTime, lastTimeWritten, fileNameSuffix);
+        generator.setArtifactWriter(artifactWriter);
+        return generator.generateClassificationFile();
+    }
+
+    public ClassificationAccumulator getTempSpeed() {
+        return tempSpeed;
+    }
+
+    public ClassificationAccumulator getStartTemp() {
+        return startTemp;
+    }
+
+    /**
+     * @return the speed/torque classification, or null for devices without torque measurement
+     */
+    public ClassificationAccumulator getSpeedTorque() {
+        return speedTorque;
+    }
+
+    public synchronized Instant getFirstSampleTime() {
+        long firstTimestamp = progress.getFirstTimestamp();
+        return firstTimestamp == ClassificationProgress.NONE ? Instant.now() : Instant.ofEpochSecond(firstTimestamp);
+    }
+
+    public synchronized Instant getLastSampleTime() {
+        long lastTimestamp = progress.getLastTimestamp();
+        return lastTimestamp == ClassificationProgress.NONE ? Instant.now() : Instant.ofEpochSecond(lastTimestamp);
+    }
+}
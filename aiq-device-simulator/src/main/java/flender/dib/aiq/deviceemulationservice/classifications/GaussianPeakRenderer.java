@@ -0,0 +1,92 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import flender.dib.aiq.deviceemulationservice.GaussianNoiseBlock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders isotropic Gaussian peaks into a flat classification matrix indexed {@code column + row * columnCount}.
+ * An isotropic Gaussian separates into {@code amplitude * g(column) * g(row)}, so each peak is precomputed once as
+ * a column and a row table and rendered as their outer product, without any {@code exp} per cell. The tables only
+ * cover the cells where the peak can still contribute a count, everything further out would be truncated to zero.
+ * One-dimensional classifications use a row count of 1 and peaks at row 0.
+ */
+public class GaussianPeakRenderer {
+
+    private final int columnCount;
+    private final int rowCount;
+    private final List<Peak> peaks = new ArrayList<>();
+
+    public GaussianPeakRenderer(int columnCount, int rowCount) {
+        if (columnCount <= 0 || rowCount <= 0) {
+            throw new IllegalArgumentException("Invalid matrix size " + columnCount + "x" + rowCount);
+        }
+        this.columnCount = columnCount;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * @param column column of the peak center, may lie outside the matrix
+     * @param row row of the peak center, may lie outside the matrix
+     * @param amplitude count at the peak center
+     * @param sigma standard deviation in classes
+     * @param relativeNoise standard deviation of the multiplicative noise applied per cell, e.g. 0.1 for 10 %
+     */
+    public GaussianPeakRenderer addPeak(double column, double row, double amplitude, double sigma, double relativeNoise) {
+        if (amplitude < 1) {
+            return this;    // never reaches a single count
+        }
+        // Distance at which amplitude * exp(-d² / 2σ²) drops below half a count
+        double radius = sigma * Math.sqrt(2 * Math.log(2 * amplitude));
+        int firstColumn = (int) Math.max(0, Math.ceil(column - radius));
+        int lastColumn = (int) Math.min(columnCount - 1, Math.floor(column + radius));
+        int firstRow = (int) Math.max(0, Math.ceil(row - radius));
+        int lastRow = (int) Math.min(rowCount - 1, Math.floor(row + radius));
+        if (firstColumn > lastColumn || firstRow > lastRow) {
+            return this;    // entirely outside the matrix
+        }
+
+        double[] columnWeights = gaussianTable(firstColumn, lastColumn, column, sigma, 1);
+        double[] rowWeights = gaussianTable(firstRow, lastRow, row, sigma, amplitude);
+        peaks.add(new Peak(firstColumn, firstRow, columnWeights, rowWeights, (float) relativeNoise));
+        return this;
+    }
+
+    /**
+     * Adds the counts of all peaks to {@code counts}, truncating each peak's contribution per cell like a
+     * {@code (long)} cast. Every call draws new noise.
+     */
+    public void render(long[] counts) {
+        if (counts.length < columnCount * rowCount) {
+            throw new IllegalArgumentException("Target has " + counts.length + " cells, expected " + columnCount * rowCount);
+        }
+        float[] noise = GaussianNoiseBlock.values();
+        for (Peak peak : peaks) {
+            int noiseIndex = GaussianNoiseBlock.randomOffset();
+            double[] columnWeights = peak.columnWeights;
+            float relativeNoise = peak.relativeNoise;
+            for (int r = 0; r < peak.rowWeights.length; r++) {
+                double rowWeight = peak.rowWeights[r];
+                int cell = peak.firstColumn + (peak.firstRow + r) * columnCount;
+                for (int c = 0; c < columnWeights.length; c++) {
+                    double noiseFactor = 1 + noise[noiseIndex++ & GaussianNoiseBlock.MASK] * relativeNoise;
+                    counts[cell + c] += (long) (rowWeight * columnWeights[c] * noiseFactor);
+                }
+            }
+        }
+    }
+
+    private static double[] gaussianTable(int first, int last, double center, double sigma, double scale) {
+        double[] table = new double[last - first + 1];
+        double divisor = 2 * sigma * sigma;
+        for (int i = 0; i < table.length; i++) {
+            double distance = first + i - center;
+            table[i] = scale * Math.exp(-distance * distance / divisor);
+        }
+        return table;
+    }
+
+    private record Peak(int firstColumn, int firstRow, double[] columnWeights, double[] rowWeights, float relativeNoise) {
+    }
+}
@@ -0,0 +1,59 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+import flender.dib.aiq.deviceemulationservice.ByteCodec;
+import flender.dib.aiq.deviceemulationservice.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters on the Java heap, encoded into a new array on every {@link #encoded()} call.
+ */
+public class HeapClassificationCounters implements ClassificationCounters {
+
+    private final AtomicLongArray counts;
+    private final Base.ValueType valueType;
+
+    public HeapClassificationCounters(int cellCount, Base.ValueType valueType) {
+        this.counts = new AtomicLongArray(cellCount);
+        this.valueType = valueType;
+    }
+
+    @Override
+    public int getCellCount() {
+        return counts.length();
+    }
+
+    @Override
+    public Base.ValueType getValueType() {
+        return valueType;
+    }
+
+    @Override
+    public void add(int cell, long count) {
+        counts.getAndAdd(cell, count);
+    }
+
+    @Override
+    public long get(int cell) {
+        return counts.get(cell);
+    }
+
+    @Override
+    public void clear() {
+        for (int cell = 0; cell < counts.length(); cell++) {
+            counts.set(cell, 0);
+        }
+    }
+
+    @Override
+    public ByteBuffer encoded() {
+        int lengthOfValueType = ByteUtils.lengthOfValueType(valueType);
+        byte[] data = new byte[counts.length() * lengthOfValueType];
+        for (int cell = 0; cell < counts.length(); cell++) {
+            ByteCodec.put(data, cell * lengthOfValueType, valueType, counts.get(cell));
+        }
+        return ByteBuffer.wrap(data);
+    }
+}
@@ -0,0 +1,26 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+/**
+ * Progress on the Java heap, lost with the counters when the application stops.
+ */
+public class HeapClassificationProgress implements ClassificationProgress {
+
+    private volatile long firstTimestamp = NONE;
+    private volatile long lastTimestamp = NONE;
+
+    @Override
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    @Override
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    @Override
+    public void update(long firstTimestamp, long lastTimestamp) {
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+    }
+}
@@ -0,0 +1,90 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+import flender.dib.aiq.deviceemulationservice.ByteCodec;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Counters kept off-heap in a memory-mapped region, already in the encoding of the classification data.
+ * Counting updates the region in place with atomic adds, and {@link #encoded()} copies the region as it is, without
+ * encoding the counters one by one. Only 32 and 64 bit integer types are supported, narrower or floating point
+ * counters cannot be updated atomically.
+ */
+public class MappedClassificationCounters implements ClassificationCounters {
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, LITTLE_ENDIAN);
+
+    private final MappedByteBuffer region;
+    private final Base.ValueType valueType;
+    private final int cellCount;
+    private final boolean wide;
+
+    /**
+     * @param region mapping of exactly {@code cellCount} values of {@code valueType}, aligned to the value width
+     */
+    public MappedClassificationCounters(MappedByteBuffer region, int cellCount, Base.ValueType valueType) {
+        this.wide = switch (valueType) {
+            case UINT32, SINT32 -> false;
+            case UINT64, SINT64 -> true;
+            default -> throw new IllegalArgumentException("Mapped counters do not support " + valueType);
+        };
+        if (region.capacity() != cellCount * (wide ? 8 : 4)) {
+            throw new IllegalArgumentException("Region of " + region.capacity() + " bytes does not hold " + cellCount + " " + valueType);
+        }
+        this.region = region;
+        this.cellCount = cellCount;
+        this.valueType = valueType;
+    }
+
+    @Override
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    @Override
+    public Base.ValueType getValueType() {
+        return valueType;
+    }
+
+    @Override
+    public void add(int cell, long count) {
+        if (wide) {
+            LONG.getAndAdd(region, cell * 8, count);
+        } else {
+            INT.getAndAdd(region, cell * 4, (int) count);
+        }
+    }
+
+    @Override
+    public long get(int cell) {
+        return ByteCodec.get(region, cell * (wide ? 8 : 4), valueType);
+    }
+
+    @Override
+    public void clear() {
+        for (int cell = 0; cell < cellCount; cell++) {
+            ByteCodec.put(region, cell * (wide ? 8 : 4), valueType, 0);
+        }
+    }
+
+    @Override
+    public ByteBuffer encoded() {
+        ByteBuffer copy = ByteBuffer.allocate(region.capacity());
+        copy.put(region.duplicate().clear());
+        return copy.flip();
+    }
+
+    /**
+     * Writes changed pages back to the file.
+     */
+    public void force() {
+        region.force();
+    }
+}
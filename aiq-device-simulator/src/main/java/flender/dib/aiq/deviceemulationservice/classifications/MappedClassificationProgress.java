@@ -0,0 +1,53 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import java.nio.MappedByteBuffer;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Progress kept in a memory-mapped region of {@value #SIZE} bytes next to the counters, updated in place like them.
+ */
+public class MappedClassificationProgress implements ClassificationProgress {
+
+    public static final int SIZE = 16;
+
+    private final MappedByteBuffer region;
+
+    /**
+     * @param region mapping of {@value #SIZE} bytes
+     * @param initialize whether the region is new and has to be set to {@link #NONE}
+     */
+    public MappedClassificationProgress(MappedByteBuffer region, boolean initialize) {
+        if (region.capacity() != SIZE) {
+            throw new IllegalArgumentException("Progress region has " + region.capacity() + " bytes, expected " + SIZE);
+        }
+        this.region = region;
+        region.order(LITTLE_ENDIAN);
+        if (initialize) {
+            update(NONE, NONE);
+        }
+    }
+
+    @Override
+    public long getFirstTimestamp() {
+        return region.getLong(0);
+    }
+
+    @Override
+    public long getLastTimestamp() {
+        return region.getLong(8);
+    }
+
+    @Override
+    public void update(long firstTimestamp, long lastTimestamp) {
+        region.putLong(0, firstTimestamp);
+        region.putLong(8, lastTimestamp);
+    }
+
+    /**
+     * Writes the progress back to the file.
+     */
+    public void force() {
+        region.force();
+    }
+}
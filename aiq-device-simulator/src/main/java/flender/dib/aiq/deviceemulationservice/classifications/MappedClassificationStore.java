@@ -0,0 +1,88 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+import flender.dib.aiq.deviceemulationservice.ByteUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the counters of every device and classification in a memory-mapped file of its own below a directory.
+ * The heap only holds one small handle per matrix, the counters themselves live in the page cache, so the class
+ * resolution and the number of devices are limited by disk space rather than heap size. Existing files of the
+ * same size are mapped as they are, which continues the counting of a previous run; files of a different size,
+ * e.g. after a change of the class resolution, start from zero. The time range counted so far is kept in a
+ * {@code .progress} file per device next to the counters.
+ */
+public class MappedClassificationStore implements ClassificationStore, Closeable {
+
+    private final Path directory;
+    private final Map<String, MappedClassificationCounters> counters = new ConcurrentHashMap<>();
+    private final Map<String, MappedClassificationProgress> progress = new ConcurrentHashMap<>();
+
+    public MappedClassificationStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public ClassificationCounters counters(String deviceId, String classification, int cellCount, Base.ValueType valueType) {
+        String name = fileName(deviceId) + "_" + classification + ".cls";
+        return counters.computeIfAbsent(name, key -> map(directory.resolve(key), cellCount, valueType));
+    }
+
+    @Override
+    public ClassificationProgress progress(String deviceId) {
+        return progress.computeIfAbsent(fileName(deviceId) + ".progress", key -> mapProgress(directory.resolve(key)));
+    }
+
+    /**
+     * Writes all counters back to their files. The mappings themselves stay valid until they are garbage collected.
+     */
+    @Override
+    public void close() {
+        counters.values().forEach(MappedClassificationCounters::force);
+        progress.values().forEach(MappedClassificationProgress::force);
+    }
+
+    private static String fileName(String deviceId) {
+        return deviceId.replace(":", "").toLowerCase();
+    }
+
+    private static MappedClassificationProgress mapProgress(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean initialize = channel.size() != MappedClassificationProgress.SIZE;
+            if (initialize) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, 0, MappedClassificationProgress.SIZE);
+            return new MappedClassificationProgress(region, initialize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map classification progress " + file, e);
+        }
+    }
+
+    private static MappedClassificationCounters map(Path file, int cellCount, Base.ValueType valueType) {
+        long size = (long) cellCount * ByteUtils.lengthOfValueType(valueType);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(cellCount + " classes of " + valueType + " exceed a single mapping");
+        }
+        // The channel can be closed right away, the mapping does not depend on it
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() != size) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new MappedClassificationCounters(region, cellCount, valueType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map classification counters " + file, e);
+        }
+    }
+}
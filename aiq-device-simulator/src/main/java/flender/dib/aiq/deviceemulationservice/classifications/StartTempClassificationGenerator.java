@@ -2,10 +2,12 @@ package flender.dib.aiq.deviceemulationservice.classifications;
 
 import com.flender.vda.Base;
 import com.flender.vda.ClassificationOuterClass.*;
+import flender.dib.aiq.deviceemulationservice.ByteCodec;
 import flender.dib.aiq.deviceemulationservice.ByteUtils;
 import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -18,19 +20,21 @@ public class StartTempClassificationGenerator extends ClassificationGenerator {
     private final Classification.Dimension dimension;
     private final Random random;
     private final List<int[]> temperaturePeaks;
+    private final GaussianPeakRenderer peakRenderer;
 
     public StartTempClassificationGenerator(String deviceId, String jobUUID, long sampleCount, List<int[]> temperaturePeaks) {
         super(deviceId, jobUUID, Classification.Type.CVC, Classification.PeriodType.CONTINUOUS, sampleCount,1, Base.ValueType.UINT32);
 
-        dimension = Classification.Dimension.newBuilder()
-                .setUnit(Base.Unit.DEGREE_CELSIUS)
-                .setNumberOfClasses(175)
-                .setLowerBorder(-40f)
-                .setUpperBorder(135f)
-                .build();
+        dimension = ClassificationDimensions.TEMPERATURE;
 
         random = new Random();
         this.temperaturePeaks = temperaturePeaks;
+
+        double sigma = 2.0; // Standardabweichung für die Peaks
+        peakRenderer = new GaussianPeakRenderer(dimension.getNumberOfClasses(), 1);
+        for (int[] peak : temperaturePeaks) {
+            peakRenderer.addPeak(peak[0] + 40, 0, peak[1], sigma, 0.2);
+        }
     }
 
     public ProtobufFile generateClassificationFile() throws IOException {
@@ -38,37 +42,29 @@ public class StartTempClassificationGenerator extends ClassificationGenerator {
     }
 
     @Override
-    protected byte[] generateData() {
+    protected ByteBuffer generateData() {
         int numClasses = dimension.getNumberOfClasses();
         int lengthOfValueType = ByteUtils.lengthOfValueType(valueType);
         byte[] byteData = new byte[numClasses * lengthOfValueType];
-        double sigma = 2.0; // Standardabweichung für die Peaks
+        long[] counts = new long[numClasses];
 
-        for (int column = 0; column < numClasses; column++) {
-            // Basiswert
-            long count = 0;
-
-            // Zufällige Ausreißer zwischen 15°C und 75°C
+        // Zufällige Ausreißer zwischen 15°C und 75°C
+        for (int column = 55; column <= Math.min(115, numClasses - 1); column++) {
             for (int i = 0; i < 100; i++) {
-                if (column >= 55 && column <= 115 && random.nextDouble() < 0.01) {
-                    count += random.nextInt(2);
+                if (random.nextDouble() < 0.01) {
+                    counts[column] += random.nextInt(2);
                 }
             }
+        }
 
-            // Addiere normalverteilte Peaks aus der Liste
-            for (int[] peak : temperaturePeaks) {
-                int peakPosition = peak[0] + 40;
-                int peakValue = peak[1];
-                double noise = 1 + (random.nextGaussian() * 0.2); // Leichte Variation für eine realistischere Verteilung
-                count += (long) (peakValue * Math.exp(-Math.pow(column - peakPosition, 2) / (2 * Math.pow(sigma, 2))) * noise);
-            }
+        // Addiere normalverteilte Peaks aus der Liste
+        peakRenderer.render(counts);
 
-            // Konvertiere und speichere den Wert
-            int byteOffset = lengthOfValueType * column;
-            byte[] countBytes = ByteUtils.bytesOfLongValue(count, lengthOfValueType);
-            System.arraycopy(countBytes, 0, byteData, byteOffset, lengthOfValueType);
+        // Konvertiere und speichere die Werte
+        for (int column = 0; column < numClasses; column++) {
+            ByteCodec.put(byteData, lengthOfValueType * column, valueType, counts[column]);
         }
-        return byteData;
+        return ByteBuffer.wrap(byteData);
     }
 
     @Override
@@ -0,0 +1,152 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Randomized 4-neighbour stencils over a flat classification matrix indexed {@code column + row * columnCount}.
+ * The matrix is double buffered: every pass reads the current buffer, writes the other one and swaps them, so
+ * any number of passes runs on the same two arrays. Passes are computed in parallel by bands of rows. Each band
+ * draws from its own {@link SplittableRandom} stream, split off the engine's generator before the pass, so the
+ * result for a given seed does not depend on the thread scheduling.
+ */
+public class StencilEngine {
+
+    private static final int MIN_ROWS_PER_BAND = 8;
+
+    private final int columnCount;
+    private final int rowCount;
+    private final int rowsPerBand;
+    private final int bandCount;
+    private final SplittableRandom random;
+    private long[] current;
+    private long[] next;
+    private final double[] factors;
+
+    public StencilEngine(int columnCount, int rowCount) {
+        this(columnCount, rowCount, new SplittableRandom());
+    }
+
+    public StencilEngine(int columnCount, int rowCount, SplittableRandom random) {
+        if (columnCount < 3 || rowCount < 3) {
+            throw new IllegalArgumentException("Stencil needs at least 3x3 cells, got " + columnCount + "x" + rowCount);
+        }
+        this.columnCount = columnCount;
+        this.rowCount = rowCount;
+        this.random = random;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        rowsPerBand = Math.max(MIN_ROWS_PER_BAND, rowCount / (parallelism * 4));
+        bandCount = (rowCount + rowsPerBand - 1) / rowsPerBand;
+        current = new long[columnCount * rowCount];
+        next = new long[columnCount * rowCount];
+        factors = new double[columnCount * rowCount];
+    }
+
+    /**
+     * The current matrix. Writes go directly into the engine; the array changes after every pass.
+     */
+    public long[] cells() {
+        return current;
+    }
+
+    public void clear() {
+        Arrays.fill(current, 0);
+    }
+
+    /**
+     * Spreads every non-empty inner cell to its four neighbours and adds the spread values to the matrix.
+     * A cell passes {@code value * factor * noise} to each neighbour, with one factor per cell drawn uniformly
+     * from [minFactor, maxFactor) and a noise of {@code 1 + N(0, relativeNoise)} per neighbour.
+     */
+    public void spread(double minFactor, double maxFactor, double relativeNoise) {
+        SplittableRandom[] bandRandoms = splitPerBand();
+        // Factors first, the gather below reads the factors of the neighbouring bands
+        IntStream.range(0, bandCount).parallel().forEach(band -> {
+            SplittableRandom bandRandom = bandRandoms[band];
+            for (int row = firstRow(band); row < lastRow(band); row++) {
+                for (int cell = row * columnCount, end = cell + columnCount; cell < end; cell++) {
+                    factors[cell] = current[cell] > 0 && minFactor != maxFactor
+                            ? minFactor + bandRandom.nextDouble() * (maxFactor - minFactor)
+                            : minFactor;
+                }
+            }
+        });
+
+        SplittableRandom[] noiseRandoms = splitPerBand();
+        IntStream.range(0, bandCount).parallel().forEach(band -> {
+            SplittableRandom bandRandom = noiseRandoms[band];
+            for (int row = firstRow(band); row < lastRow(band); row++) {
+                for (int column = 0; column < columnCount; column++) {
+                    int cell = column + row * columnCount;
+                    long sum = current[cell];
+                    // Gather from the sources that would spread into this cell, only inner cells spread
+                    if (column > 0) sum += spreadFrom(cell - 1, bandRandom, relativeNoise, column - 1, row);
+                    if (column < columnCount - 1) sum += spreadFrom(cell + 1, bandRandom, relativeNoise, column + 1, row);
+                    if (row > 0) sum += spreadFrom(cell - columnCount, bandRandom, relativeNoise, column, row - 1);
+                    if (row < rowCount - 1) sum += spreadFrom(cell + columnCount, bandRandom, relativeNoise, column, row + 1);
+                    next[cell] = sum;
+                }
+            }
+        });
+        swap();
+    }
+
+    /**
+     * Replaces every inner cell by {@code factor * (centerWeight * cell + neighbourWeight * sum of neighbours)}
+     * with a factor per cell drawn uniformly from [minFactor, maxFactor). Border cells become empty.
+     */
+    public void smooth(double centerWeight, double neighbourWeight, double minFactor, double maxFactor) {
+        SplittableRandom[] bandRandoms = splitPerBand();
+        IntStream.range(0, bandCount).parallel().forEach(band -> {
+            SplittableRandom bandRandom = bandRandoms[band];
+            for (int row = firstRow(band); row < lastRow(band); row++) {
+                int rowStart = row * columnCount;
+                if (row == 0 || row == rowCount - 1) {
+                    Arrays.fill(next, rowStart, rowStart + columnCount, 0);
+                    continue;
+                }
+                next[rowStart] = 0;
+                next[rowStart + columnCount - 1] = 0;
+                for (int cell = rowStart + 1, end = rowStart + columnCount - 1; cell < end; cell++) {
+                    double factor = minFactor + bandRandom.nextDouble() * (maxFactor - minFactor);
+                    next[cell] = (long) (factor * (centerWeight * current[cell]
+                            + neighbourWeight * (current[cell - 1] + current[cell + 1])
+                            + neighbourWeight * (current[cell - columnCount] + current[cell + columnCount])));
+                }
+            }
+        });
+        swap();
+    }
+
+    private long spreadFrom(int source, SplittableRandom random, double relativeNoise, int sourceColumn, int sourceRow) {
+        long value = current[source];
+        if (value <= 0 || sourceColumn == 0 || sourceRow == 0 || sourceColumn == columnCount - 1 || sourceRow == rowCount - 1) {
+            return 0;
+        }
+        double noiseFactor = 1 + random.nextGaussian() * relativeNoise;
+        return (long) (value * factors[source] * noiseFactor);
+    }
+
+    private SplittableRandom[] splitPerBand() {
+        SplittableRandom[] bandRandoms = new SplittableRandom[bandCount];
+        for (int band = 0; band < bandCount; band++) {
+            bandRandoms[band] = random.split();
+        }
+        return bandRandoms;
+    }
+
+    private int firstRow(int band) {
+        return band * rowsPerBand;
+    }
+
+    private int lastRow(int band) {
+        return Math.min(rowCount, (band + 1) * rowsPerBand);
+    }
+
+    private void swap() {
+        long[] swap = current;
+        current = next;
+        next = swap;
+    }
+}
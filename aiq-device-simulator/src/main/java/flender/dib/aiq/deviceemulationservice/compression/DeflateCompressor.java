@@ -0,0 +1,132 @@
+package flender.dib.aiq.deviceemulationservice.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Reusable zlib compression with a configurable level and strategy.
+ * Deflaters are kept in a small pool instead of being created and ended per payload. A pool is used rather than a
+ * thread local because generators run on virtual threads, which would each get their own native Deflater.
+ * Output is written in chunks, so incompressible input that expands during deflate is never truncated.
+ */
+public class DeflateCompressor {
+
+    public static final DeflateCompressor DEFAULT = new DeflateCompressor(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+    public static final DeflateCompressor FAST = new DeflateCompressor(Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY);
+    public static final DeflateCompressor BEST = new DeflateCompressor(Deflater.BEST_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_DEFLATERS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final int level;
+    private final int strategy;
+    private final ConcurrentLinkedQueue<Deflater> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    /**
+     * @param level {@link Deflater#DEFAULT_COMPRESSION} or 0 to 9
+     * @param strategy {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} or {@link Deflater#HUFFMAN_ONLY}
+     */
+    public DeflateCompressor(int level, int strategy) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentException("Invalid compression strategy: " + strategy);
+        }
+        this.level = level;
+        this.strategy = strategy;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getStrategy() {
+        return strategy;
+    }
+
+    public byte[] compress(byte[] data) {
+        return compress(data, 0, data.length);
+    }
+
+    public byte[] compress(byte[] data, int offset, int length) {
+        // Deflate output of trend and classification data is typically well below half of the input
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+        try {
+            compress(data, offset, length, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // not thrown by ByteArrayOutputStream
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Compresses the remaining bytes of {@code data} without moving its position. Works on heap, direct and
+     * mapped buffers without copying the input onto the heap.
+     */
+    public byte[] compress(ByteBuffer data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.remaining() / 2));
+        Deflater deflater = acquire();
+        try {
+            deflater.setInput(data.duplicate());
+            deflater.finish();
+            byte[] buffer = new byte[Math.min(CHUNK_SIZE, data.remaining() + 64)];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            release(deflater);
+        }
+        return out.toByteArray();
+    }
+
+    public void compress(byte[] data, int offset, int length, OutputStream out) throws IOException {
+        Deflater deflater = acquire();
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            byte[] buffer = new byte[Math.min(CHUNK_SIZE, length + 64)];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            release(deflater);
+        }
+    }
+
+    /**
+     * Takes a deflater from the pool. It has to be handed back with {@link #release(Deflater)} and must not be
+     * ended by the caller.
+     */
+    public Deflater acquire() {
+        Deflater deflater = pool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level);
+            deflater.setStrategy(strategy);
+            return deflater;
+        }
+        pooledCount.decrementAndGet();
+        return deflater;
+    }
+
+    public void release(Deflater deflater) {
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setStrategy(strategy);
+        if (pooledCount.incrementAndGet() <= MAX_POOLED_DEFLATERS) {
+            pool.offer(deflater);
+        } else {
+            pooledCount.decrementAndGet();
+            deflater.end();
+        }
+    }
+}
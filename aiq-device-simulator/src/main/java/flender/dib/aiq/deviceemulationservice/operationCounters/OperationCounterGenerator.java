@@ -5,10 +5,10 @@ import com.flender.vda.OperationCountersOuterClass.OperationCounters;
 import com.flender.vda.OperationCountersOuterClass.OperationStates;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Timestamp;
+import flender.dib.aiq.deviceemulationservice.storage.ArtifactWriter;
 import flender.dib.aiq.deviceemulationservice.storage.OperationCounterFile;
 import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -28,6 +28,7 @@ public class OperationCounterGenerator {
     private final Instant lastTimeWritten;
     private static final Random random = new Random();
     private static final String FILE_PATH = "OperationCounterOutputs/";
+    private ArtifactWriter artifactWriter = ArtifactWriter.FILES;
     private int currentDay;
     private int dayOfYear;
     private int currentMonth;
@@ -42,6 +43,11 @@ public class OperationCounterGenerator {
         this.lastTimeWritten = Instant.now().truncatedTo(ChronoUnit.SECONDS);
     }
 
+    public OperationCounterGenerator setArtifactWriter(ArtifactWriter artifactWriter) {
+        this.artifactWriter = artifactWriter;
+        return this;
+    }
+
     public ProtobufFile generateOperationCounterFile() throws IOException {
         currentDay = LocalDate.now(ZoneId.of("Europe/Berlin")).getDayOfMonth();
         dayOfYear = LocalDate.now(ZoneId.of("Europe/Berlin")).getDayOfYear();
@@ -186,10 +192,10 @@ public class OperationCounterGenerator {
         byte[] dataBytes = counters.toByteArray();
         byte[] crcBytes = calculateCRC32(dataBytes);
 
-        try (FileOutputStream fos = new FileOutputStream(FILE_PATH + filename)) {
-            fos.write(dataBytes);
-            fos.write(crcBytes);
-            return new OperationCounterFile(FILE_PATH+filename, counters);
+        try (ArtifactWriter.Output out = artifactWriter.open(FILE_PATH, filename, dataBytes.length + crcBytes.length)) {
+            out.write(dataBytes);
+            out.write(crcBytes);
+            return new OperationCounterFile(out.finish(), counters);
         }
     }
 
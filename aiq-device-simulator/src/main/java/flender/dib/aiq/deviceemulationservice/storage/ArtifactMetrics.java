@@ -0,0 +1,203 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Metrics of the artifact pipeline from generation to the completed upload. Meters are tagged by artifact type
+ * and board type, never by device, so their number does not grow with the fleet.
+ * <ul>
+ *     <li>{@code artifact.generation.duration}, also tagged by trend duration, and {@code artifact.generation.failures}</li>
+ *     <li>{@code artifact.trend.sampling.duration}, the signal sampling shared by the trends of a pyramid</li>
+ *     <li>{@code artifact.size} in bytes, tagged raw or compressed, and {@code artifact.compression.ratio}</li>
+ *     <li>{@code artifact.sas.duration}, the SAS URI request, tagged by outcome</li>
+ *     <li>{@code artifact.upload.duration}, from submission to the completion notification, tagged by outcome</li>
+ *     <li>{@code artifact.upload.failures}, tagged by the failed step: sas, transfer or completion</li>
+ *     <li>{@code artifact.upload.queue}, {@code artifact.outbox.pending} and {@code artifact.outbox.bytes}</li>
+ * </ul>
+ */
+@Component
+public class ArtifactMetrics {
+
+    public static final String TREND = "trend";
+    public static final String OPERATION_COUNTER = "operation-counter";
+    public static final String CLASSIFICATION = "classification";
+    public static final String OTHER = "other";
+
+    private static final String NO_DURATION = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final String boardType;
+
+    public ArtifactMetrics(MeterRegistry meterRegistry, @Value("${device-emulation.board-type}") String boardType) {
+        this.meterRegistry = meterRegistry;
+        this.boardType = boardType;
+    }
+
+    /**
+     * Generates an artifact.
+     */
+    @FunctionalInterface
+    public interface Generation {
+
+        ProtobufFile generate() throws IOException;
+    }
+
+    /**
+     * Type of the artifact, taken from its file extension so it survives spooling.
+     */
+    public static String artifactType(ProtobufFile protobufFile) {
+        String filename = protobufFile.getFilename();
+        if (filename == null) {
+            return OTHER;
+        }
+        if (filename.endsWith(".dxtd")) {
+            return TREND;
+        } else if (filename.endsWith(".dxoc")) {
+            return OPERATION_COUNTER;
+        } else if (filename.endsWith(".dxcd")) {
+            return CLASSIFICATION;
+        }
+        return OTHER;
+    }
+
+    /**
+     * Times the generation and records the size of the generated artifact.
+     *
+     * @param duration trend duration of the artifact, null for other artifacts
+     */
+    public ProtobufFile recordGeneration(String artifactType, String duration, Generation generation) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            ProtobufFile protobufFile = generation.generate();
+            sample.stop(generationTimer(artifactType, duration));
+            recordSize(artifactType, protobufFile);
+            return protobufFile;
+        } catch (IOException | RuntimeException e) {
+            generationFailures(artifactType).increment();
+            throw e;
+        }
+    }
+
+    /**
+     * The task, timed like {@link #recordGeneration}.
+     */
+    public Callable<ProtobufFile> timed(String artifactType, Callable<ProtobufFile> task) {
+        return () -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                ProtobufFile protobufFile = task.call();
+                sample.stop(generationTimer(artifactType, null));
+                recordSize(artifactType, protobufFile);
+                return protobufFile;
+            } catch (Exception e) {
+                generationFailures(artifactType).increment();
+                throw e;
+            }
+        };
+    }
+
+    public void recordTrendSampling(long nanos) {
+        Timer.builder("artifact.trend.sampling.duration")
+                .tags(tags(TREND))
+                .description("Signal sampling shared by the trends of a pyramid")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordSasRequest(ProtobufFile protobufFile, Timer.Sample sample, boolean success) {
+        sample.stop(Timer.builder("artifact.sas.duration")
+                .tags(tags(artifactType(protobufFile)).and("outcome", outcome(success)))
+                .description("Latency of SAS URI requests")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Records the upload from its submission on.
+     *
+     * @param failedStep step that failed, null for a successful upload
+     */
+    public void recordUpload(ProtobufFile protobufFile, Timer.Sample sample, String failedStep) {
+        String artifactType = artifactType(protobufFile);
+        sample.stop(Timer.builder("artifact.upload.duration")
+                .tags(tags(artifactType).and("outcome", outcome(failedStep == null)))
+                .description("Duration from the submission of an upload to its completion notification")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry));
+        if (failedStep != null) {
+            Counter.builder("artifact.upload.failures")
+                    .tags(tags(artifactType).and("step", failedStep))
+                    .description("Failed uploads by the step that failed")
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    public <T> void registerGauge(String name, String description, T target, ToDoubleFunction<T> value) {
+        Gauge.builder(name, target, value)
+                .tags(Tags.of("board", boardType))
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private void recordSize(String artifactType, ProtobufFile protobufFile) throws IOException {
+        long compressed = protobufFile.contentLength();
+        long raw = protobufFile.getUncompressedSize();
+        sizeSummary(artifactType, "compressed").record(compressed);
+        sizeSummary(artifactType, "raw").record(raw);
+        if (compressed > 0) {
+            DistributionSummary.builder("artifact.compression.ratio")
+                    .tags(tags(artifactType))
+                    .description("Raw size divided by the compressed size of generated artifacts")
+                    .register(meterRegistry)
+                    .record((double) raw / compressed);
+        }
+    }
+
+    private DistributionSummary sizeSummary(String artifactType, String stage) {
+        return DistributionSummary.builder("artifact.size")
+                .tags(tags(artifactType).and("stage", stage))
+                .baseUnit("bytes")
+                .description("Size of generated artifacts")
+                .register(meterRegistry);
+    }
+
+    private Timer generationTimer(String artifactType, String duration) {
+        return Timer.builder("artifact.generation.duration")
+                .tags(tags(artifactType).and("duration", duration != null ? duration : NO_DURATION))
+                .description("Duration of artifact generation")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Counter generationFailures(String artifactType) {
+        return Counter.builder("artifact.generation.failures")
+                .tags(tags(artifactType))
+                .description("Failed artifact generations")
+                .register(meterRegistry);
+    }
+
+    private Tags tags(String artifactType) {
+        return Tags.of("type", artifactType, "board", boardType);
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "failure";
+    }
+}
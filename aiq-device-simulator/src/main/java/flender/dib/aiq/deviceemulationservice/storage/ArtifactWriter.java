@@ -0,0 +1,117 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Destination of the serialized artifacts of the generators. By default every artifact is written to its output
+ * directory and uploaded from there. In memory mode the artifact is kept in a byte array and uploaded straight
+ * from memory; the output directory then only receives an optional debug copy.
+ */
+public class ArtifactWriter {
+
+    public static final ArtifactWriter FILES = new ArtifactWriter(false, false);
+
+    private final boolean inMemory;
+    private final boolean debugFiles;
+
+    /**
+     * @param inMemory keep artifacts in memory instead of writing them to disk
+     * @param debugFiles in memory mode, additionally write each artifact to its output directory
+     */
+    public ArtifactWriter(boolean inMemory, boolean debugFiles) {
+        this.inMemory = inMemory;
+        this.debugFiles = debugFiles;
+    }
+
+    public static ArtifactWriter inMemory(boolean debugFiles) {
+        return new ArtifactWriter(true, debugFiles);
+    }
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    /**
+     * @param expectedSize size hint for in-memory artifacts
+     */
+    public Output open(String directory, String filename, int expectedSize) throws IOException {
+        String path = directory + filename;
+        return inMemory
+                ? new Output(path, new ExposedByteArrayOutputStream(Math.max(32, expectedSize)))
+                : new Output(path, new BufferedOutputStream(new FileOutputStream(path)));
+    }
+
+    /**
+     * Stream of a single artifact. {@link #finish()} completes the artifact; closing without finishing
+     * abandons it.
+     */
+    public class Output extends OutputStream {
+
+        private final String path;
+        private final OutputStream target;
+
+        private Output(String path, OutputStream target) {
+            this.path = path;
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.close();
+        }
+
+        /**
+         * Closes the stream and returns the written artifact, in memory or on disk.
+         */
+        public Artifact finish() throws IOException {
+            target.close();
+            if (!(target instanceof ExposedByteArrayOutputStream memory)) {
+                return new Artifact(path, null, 0);
+            }
+            if (debugFiles) {
+                try (FileOutputStream fos = new FileOutputStream(path)) {
+                    fos.write(memory.buffer(), 0, memory.size());
+                }
+            }
+            return new Artifact(path, memory.buffer(), memory.size());
+        }
+    }
+
+    /**
+     * A written artifact. {@code data} holds the first {@code length} bytes of an in-memory artifact and is null
+     * for artifacts on disk.
+     */
+    public record Artifact(String path, byte[] data, int length) {
+    }
+
+    // Hands out the internal buffer instead of the copy of toByteArray()
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        private ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -1,61 +1,214 @@
 package flender.dib.aiq.deviceemulationservice.storage;
 
-import com.azure.storage.blob.BlobClient;
-import com.azure.storage.blob.BlobClientBuilder;
-import com.microsoft.azure.sdk.iot.device.DeviceClient;
-import com.microsoft.azure.sdk.iot.device.FileUploadSasUriRequest;
-import com.microsoft.azure.sdk.iot.device.FileUploadSasUriResponse;
-import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
-import com.microsoft.azure.sdk.iot.device.FileUploadCompletionNotification;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubClientException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Uploads protobuf files through the file upload of the {@link BlobStorageBackend}: SAS URI request, blob transfer
+ * and completion notification. Up to {@code concurrency} transfers run at the same time and up to {@code queueCapacity} more
+ * files wait for a free upload thread; further submissions block until a slot is free. Completion notifications
+ * are sent by a single thread in the order the files were submitted, so the backend sees the files of a device in
+ * a stable order no matter which transfer finishes first.
+ */
 @Component
 public class AzureBlobStorage {
 
-    private final DeviceClient client;
+    private final BlobStorageBackend backend;
+    private final BlobUploadPipeline uploadPipeline;
+    private final ArtifactMetrics metrics;
     private final ExecutorService executorService;
+    private final ExecutorService notificationService;
+    private final Semaphore slots;
+    private final long shutdownTimeoutSeconds;
+    private CompletableFuture<Void> lastNotification = CompletableFuture.completedFuture(null);
+    private boolean shutdown;
 
-    public AzureBlobStorage(@Value("${device-emulation.connection-string}") String connString) throws IotHubClientException {
-        this.client = new DeviceClient(connString, IotHubClientProtocol.MQTT);
-        this.executorService = Executors.newFixedThreadPool(4);
-        this.client.open(true);
+    public AzureBlobStorage(BlobStorageBackend backend,
+                            @Value("${device-emulation.upload.concurrency:4}") int concurrency,
+                            @Value("${device-emulation.upload.queue-capacity:32}") int queueCapacity,
+                            @Value("${device-emulation.upload.shutdown-timeout-seconds:120}") long shutdownTimeoutSeconds,
+                            BlobHttpProperties httpProperties, BlockUploadProperties blockProperties,
+                            MeterRegistry meterRegistry, ArtifactMetrics metrics) {
+        this.backend = backend;
+        this.metrics = metrics;
+        this.uploadPipeline = new BlobUploadPipeline(httpProperties, blockProperties, meterRegistry);
+        this.executorService = Executors.newFixedThreadPool(concurrency);
+        this.notificationService = Executors.newSingleThreadExecutor();
+        this.slots = new Semaphore(concurrency + queueCapacity);
+        metrics.registerGauge("artifact.upload.queue", "Files submitted for upload and not yet completed",
+                slots, s -> concurrency + queueCapacity - s.availablePermits());
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
     }
 
+    /**
+     * Uploads the file and waits for it. Upload errors are logged and reported to the IoT hub as before, only a
+     * missing file is thrown.
+     */
     public void uploadProtobufFile(ProtobufFile protobufFile) throws IOException, IotHubClientException {
         if (!protobufFile.exists()) {
             throw new IOException("Resource not found: " + protobufFile.getFilename());
         }
+        try {
+            uploadProtobufFileAsync(protobufFile).join();
+        } catch (CompletionException e) {
+            // already logged by the upload stage
+        }
+    }
+
+    /**
+     * Queues the file for upload, blocking while the queue is full. The future completes after the completion
+     * notification of this file and of all files submitted before it were sent, exceptionally if the upload failed.
+     * Fails if the blob already exists.
+     *
+     * @throws IllegalStateException after {@link #shutdown()}
+     */
+    public CompletableFuture<ProtobufFile> uploadProtobufFileAsync(ProtobufFile protobufFile) {
+        return uploadProtobufFileAsync(protobufFile, false);
+    }
 
-        String blobName = protobufFile.getAzureBlobName();
+    /**
+     * Like {@link #uploadProtobufFileAsync(ProtobufFile)}.
+     * @param overwrite whether an existing blob of the same name is replaced, e.g. by the retry of an upload whose
+     *                  transfer succeeded before
+     */
+    public CompletableFuture<ProtobufFile> uploadProtobufFileAsync(ProtobufFile protobufFile, boolean overwrite) {
+        if (!protobufFile.exists()) {
+            return CompletableFuture.failedFuture(new IOException("Resource not found: " + protobufFile.getFilename()));
+        }
         try {
-            FileUploadSasUriResponse sasUriResponse = client.getFileUploadSasUri(new FileUploadSasUriRequest(blobName));
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
 
-            BlobClient blobClient = new BlobClientBuilder()
-                    .endpoint(sasUriResponse.getBlobUri().toString())
-                    .buildClient();
+        Timer.Sample sample = metrics.startTimer();
+        CompletableFuture<ProtobufFile> completion;
+        synchronized (this) {
+            if (shutdown) {
+                slots.release();
+                throw new IllegalStateException("Upload stage is shut down, rejected " + protobufFile.getFilename());
+            }
+            CompletableFuture<Transfer> transfer = CompletableFuture.supplyAsync(() -> transfer(protobufFile, overwrite), executorService);
+            completion = lastNotification.thenCombineAsync(transfer, (ignored, result) -> complete(protobufFile, result),
+                    notificationService);
+            lastNotification = completion.handle((file, error) -> null);
+        }
+        completion.whenComplete((file, error) -> {
+            slots.release();
+            metrics.recordUpload(protobufFile, sample, error == null ? null : failedStep(error));
+        });
+        return completion;
+    }
 
-            blobClient.upload(protobufFile.getInputStream(), protobufFile.contentLength());
+    /**
+     * Stops accepting files, waits up to the configured timeout for queued and running uploads including their
+     * notifications, and closes the backend.
+     */
+    public void shutdown() {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            pending = lastNotification;
+        }
+        executorService.shutdown();
+        try {
+            pending.get(shutdownTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Uploads still pending after " + shutdownTimeoutSeconds + " s, closing anyway");
+        }
+        executorService.shutdownNow();
+        notificationService.shutdownNow();
+        uploadPipeline.close();
+        backend.close();
+    }
 
-            // Mark upload as complete
-            FileUploadCompletionNotification completionNotification = new FileUploadCompletionNotification(sasUriResponse.getCorrelationId(), true);
-            client.completeFileUpload(completionNotification);
-            System.out.println("Uploaded file: " + protobufFile.getFilename());
+    private Transfer transfer(ProtobufFile protobufFile, boolean overwrite) {
+        BlobStorageBackend.UploadTarget target = null;
+        try {
+            Timer.Sample sasSample = metrics.startTimer();
+            try {
+                target = backend.requestUpload(protobufFile.getAzureBlobName());
+            } finally {
+                metrics.recordSasRequest(protobufFile, sasSample, target != null);
+            }
 
+            try (InputStream inputStream = protobufFile.getInputStream()) {
+                uploadPipeline.upload(target.sasUri(), inputStream, protobufFile.contentLength(), overwrite);
+            }
+            return new Transfer(target, null);
         } catch (Exception e) {
-            System.err.println("Error uploading file: " + e.getMessage());
-            FileUploadCompletionNotification completionNotification = new FileUploadCompletionNotification(blobName, false);
-            client.completeFileUpload(completionNotification);
+            return new Transfer(target, e);
         }
     }
 
-    public void shutdown() {
-        client.close();
-        executorService.shutdown();
+    // Runs in submission order, after the notifications of all earlier files
+    private ProtobufFile complete(ProtobufFile protobufFile, Transfer transfer) {
+        if (transfer.target() != null) {
+            try {
+                backend.completeUpload(transfer.target(), transfer.error() == null);
+            } catch (IOException e) {
+                if (transfer.error() == null) {
+                    System.err.println("Error completing upload of " + protobufFile.getFilename() + ": " + e.getMessage());
+                    throw new CompletionException(new UploadException("completion", e));
+                }
+            }
+        }
+        if (transfer.error() != null) {
+            System.err.println("Error uploading file: " + transfer.error().getMessage());
+            throw new CompletionException(new UploadException(transfer.target() == null ? "sas" : "transfer", transfer.error()));
+        }
+
+        if (protobufFile instanceof ClassificationFile classificationFile && classificationFile.getBytesSaved() > 0) {
+            System.out.println("Uploaded file: " + protobufFile.getFilename() + " (compression saved "
+                    + classificationFile.getBytesSaved() + " of " + classificationFile.getUncompressedDataSize() + " bytes)");
+        } else {
+            System.out.println("Uploaded file: " + protobufFile.getFilename());
+        }
+        return protobufFile;
+    }
+
+    private static String failedStep(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof UploadException uploadException ? uploadException.getStep() : "transfer";
+    }
+
+    private record Transfer(BlobStorageBackend.UploadTarget target, Exception error) {
+    }
+
+    /**
+     * A failed upload, with the step that failed: sas, transfer or completion.
+     */
+    public static class UploadException extends IOException {
+
+        private final String step;
+
+        public UploadException(String step, Throwable cause) {
+            super(cause.getMessage(), cause);
+            this.step = step;
+        }
+
+        public String getStep() {
+            return step;
+        }
     }
 }
@@ -0,0 +1,21 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tuning of the HTTP client shared by all blob uploads.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-emulation.upload.http")
+public class BlobHttpProperties {
+
+    private int maxConnections = 16;
+    private int keepAliveSeconds = 60;
+    private int connectTimeoutSeconds = 10;
+    private int responseTimeoutSeconds = 60;
+    private int readTimeoutSeconds = 60;
+    private int writeTimeoutSeconds = 60;
+}
@@ -0,0 +1,26 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import java.io.IOException;
+
+/**
+ * The service behind the blob uploads of {@link AzureBlobStorage}: hands out an upload URI per blob and is told
+ * whether the transfer to it succeeded. The transfer itself always goes through the {@link BlobUploadPipeline}.
+ */
+public interface BlobStorageBackend extends AutoCloseable {
+
+    /**
+     * Requests a SAS URI the blob can be uploaded to.
+     */
+    UploadTarget requestUpload(String blobName) throws IOException;
+
+    /**
+     * Notifies the backend that the transfer to the target finished.
+     */
+    void completeUpload(UploadTarget target, boolean success) throws IOException;
+
+    @Override
+    void close();
+
+    record UploadTarget(String correlationId, String sasUri) {
+    }
+}
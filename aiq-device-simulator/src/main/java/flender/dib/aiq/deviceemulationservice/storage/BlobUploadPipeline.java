@@ -0,0 +1,199 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.netty.NettyAsyncHttpClientBuilder;
+import com.azure.storage.blob.BlobClient;
+import com.azure.core.util.BinaryData;
+import com.azure.storage.blob.BlobClientBuilder;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One HTTP client with a bounded keep-alive connection pool for all blob uploads. Every upload goes to its own
+ * SAS URI, so a blob client is still built per upload, but only as a thin layer of policies on top of the shared
+ * client: TLS connections to the storage account are reused across files instead of being set up per file.
+ * <p>
+ * Blobs above the configured threshold are uploaded as blocks: up to {@code concurrency} blocks per blob are
+ * staged at the same time over separate connections, a failed block is staged again on its own, and the block list
+ * is committed once all blocks are staged. Only {@code concurrency} blocks of a blob are buffered at a time.
+ * <p>
+ * Metrics: {@code blob.upload.duration} (percentiles, tagged by outcome), {@code blob.upload.connections}
+ * (tagged new or reused), {@code blob.upload.connection.reuse}, the share of requests served by a pooled
+ * connection, and {@code blob.upload.blocks} (tagged staged or retried).
+ */
+public class BlobUploadPipeline implements AutoCloseable {
+
+    private final ConnectionProvider connectionProvider;
+    private final HttpClient httpClient;
+    private final Counter newConnections;
+    private final Counter reusedConnections;
+    private final Timer successfulUploads;
+    private final Timer failedUploads;
+    private final Counter stagedBlocks;
+    private final Counter retriedBlocks;
+    private final BlockUploadProperties blockProperties;
+    private final ExecutorService blockExecutor = Executors.newCachedThreadPool();
+
+    public BlobUploadPipeline(BlobHttpProperties properties, BlockUploadProperties blockProperties, MeterRegistry meterRegistry) {
+        this.blockProperties = blockProperties;
+        newConnections = Counter.builder("blob.upload.connections").tag("type", "new")
+                .description("Connections opened for blob uploads").register(meterRegistry);
+        reusedConnections = Counter.builder("blob.upload.connections").tag("type", "reused")
+                .description("Pooled connections reused for blob uploads").register(meterRegistry);
+        Gauge.builder("blob.upload.connection.reuse", this, BlobUploadPipeline::getConnectionReuseRate)
+                .description("Share of blob upload requests served by a pooled connection").register(meterRegistry);
+        successfulUploads = uploadTimer(meterRegistry, "success");
+        failedUploads = uploadTimer(meterRegistry, "failure");
+        stagedBlocks = Counter.builder("blob.upload.blocks").tag("type", "staged")
+                .description("Blocks staged by block uploads").register(meterRegistry);
+        retriedBlocks = Counter.builder("blob.upload.blocks").tag("type", "retried")
+                .description("Blocks staged again after a failure").register(meterRegistry);
+
+        connectionProvider = ConnectionProvider.builder("blob-uploads")
+                .maxConnections(properties.getMaxConnections())
+                .maxIdleTime(Duration.ofSeconds(properties.getKeepAliveSeconds()))
+                .evictInBackground(Duration.ofSeconds(properties.getKeepAliveSeconds()))
+                .build();
+        // A new connection is reported as CONNECTED, one taken from the pool as ACQUIRED
+        reactor.netty.http.client.HttpClient nettyClient = reactor.netty.http.client.HttpClient.create(connectionProvider)
+                .observe((connection, state) -> {
+                    if (state == ConnectionObserver.State.CONNECTED) {
+                        newConnections.increment();
+                    } else if (state == ConnectionObserver.State.ACQUIRED) {
+                        reusedConnections.increment();
+                    }
+                });
+        httpClient = new NettyAsyncHttpClientBuilder(nettyClient)
+                .connectTimeout(Duration.ofSeconds(properties.getConnectTimeoutSeconds()))
+                .responseTimeout(Duration.ofSeconds(properties.getResponseTimeoutSeconds()))
+                .readTimeout(Duration.ofSeconds(properties.getReadTimeoutSeconds()))
+                .writeTimeout(Duration.ofSeconds(properties.getWriteTimeoutSeconds()))
+                .build();
+    }
+
+    /**
+     * Uploads {@code length} bytes to the blob the SAS URI points to, as blocks above the block threshold.
+     * @param overwrite whether an existing blob is replaced, otherwise the upload fails if the blob exists
+     */
+    public void upload(String sasUri, InputStream data, long length, boolean overwrite) {
+        BlobClient blobClient = new BlobClientBuilder()
+                .endpoint(sasUri)
+                .httpClient(httpClient)
+                .buildClient();
+        long start = System.nanoTime();
+        try {
+            if (length > blockProperties.getThresholdBytes()) {
+                uploadBlocks(blobClient.getBlockBlobClient(), data, length, overwrite);
+            } else {
+                blobClient.upload(data, length, overwrite);
+            }
+            successfulUploads.record(Duration.ofNanos(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            failedUploads.record(Duration.ofNanos(System.nanoTime() - start));
+            throw e;
+        }
+    }
+
+    public double getConnectionReuseRate() {
+        double reused = reusedConnections.count();
+        double total = reused + newConnections.count();
+        return total > 0 ? reused / total : 0;
+    }
+
+    @Override
+    public void close() {
+        blockExecutor.shutdownNow();
+        connectionProvider.dispose();
+    }
+
+    private void uploadBlocks(BlockBlobClient blockBlobClient, InputStream data, long length, boolean overwrite) {
+        int blockSize = blockProperties.getBlockSizeBytes();
+        Semaphore buffers = new Semaphore(blockProperties.getConcurrency());
+        AtomicBoolean failed = new AtomicBoolean();
+        List<String> blockIds = new ArrayList<>();
+        List<CompletableFuture<Void>> stagings = new ArrayList<>();
+        try {
+            // Read ahead only while a buffer is free, stop reading once a block failed for good
+            for (long offset = 0; offset < length && !failed.get(); offset += blockSize) {
+                buffers.acquire();
+                byte[] block = data.readNBytes((int) Math.min(blockSize, length - offset));
+                if (block.length == 0) {
+                    buffers.release();
+                    throw new IOException("Stream ended after " + offset + " of " + length + " bytes");
+                }
+                String blockId = blockId(blockIds.size());
+                blockIds.add(blockId);
+                stagings.add(CompletableFuture.runAsync(() -> stageBlock(blockBlobClient, blockId, block), blockExecutor)
+                        .whenComplete((staged, error) -> {
+                            if (error != null) {
+                                failed.set(true);
+                            }
+                            buffers.release();
+                        }));
+            }
+            CompletableFuture.allOf(stagings.toArray(CompletableFuture[]::new)).join();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while staging blocks", e);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        blockBlobClient.commitBlockList(blockIds, overwrite);
+    }
+
+    private void stageBlock(BlockBlobClient blockBlobClient, String blockId, byte[] block) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                blockBlobClient.stageBlock(blockId, BinaryData.fromBytes(block));
+                stagedBlocks.increment();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= blockProperties.getMaxRetries()) {
+                    throw e;
+                }
+                retriedBlocks.increment();
+                try {
+                    Thread.sleep(blockProperties.getRetryDelayMillis() << attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Block ids of a blob must all have the same length
+    private static String blockId(int index) {
+        return Base64.getEncoder().encodeToString(String.format("block-%08d", index).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Timer uploadTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("blob.upload.duration")
+                .tag("outcome", outcome)
+                .description("Duration of blob uploads")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry);
+    }
+}
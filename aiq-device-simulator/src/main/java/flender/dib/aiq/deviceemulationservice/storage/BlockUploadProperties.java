@@ -0,0 +1,21 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Block-staged uploads of large artifacts: blobs above the threshold are split into blocks that are staged in
+ * parallel and retried one by one, then committed as a block list.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-emulation.upload.blocks")
+public class BlockUploadProperties {
+
+    private long thresholdBytes = 8 * 1024 * 1024;
+    private int blockSizeBytes = 4 * 1024 * 1024;
+    private int concurrency = 4;
+    private int maxRetries = 3;
+    private long retryDelayMillis = 500;
+}
@@ -3,13 +3,43 @@ package flender.dib.aiq.deviceemulationservice.storage;
 
 import com.flender.vda.ClassificationOuterClass.Classification;
 
+import java.io.IOException;
+
 public class ClassificationFile extends ProtobufFile{
 
     private final Classification classification;
+    private final int uncompressedDataSize;
 
     public ClassificationFile(String path, Classification classification) {
+        this(path, classification, classification.getData().size());
+    }
+
+    public ClassificationFile(String path, Classification classification, int uncompressedDataSize) {
         super(path);
         this.classification = classification;
+        this.uncompressedDataSize = uncompressedDataSize;
+    }
+
+    public ClassificationFile(ArtifactWriter.Artifact artifact, Classification classification, int uncompressedDataSize) {
+        super(artifact);
+        this.classification = classification;
+        this.uncompressedDataSize = uncompressedDataSize;
+    }
+
+    /**
+     * Bytes the compression of the data field saved compared to the dense matrix.
+     */
+    public int getBytesSaved() {
+        return uncompressedDataSize - classification.getData().size();
+    }
+
+    public int getUncompressedDataSize() {
+        return uncompressedDataSize;
+    }
+
+    @Override
+    public long getUncompressedSize() throws IOException {
+        return contentLength() + getBytesSaved();
     }
 
     @Override
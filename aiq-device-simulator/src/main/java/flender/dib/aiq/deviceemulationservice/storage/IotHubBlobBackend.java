@@ -0,0 +1,53 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClient;
+import com.microsoft.azure.sdk.iot.device.FileUploadCompletionNotification;
+import com.microsoft.azure.sdk.iot.device.FileUploadSasUriRequest;
+import com.microsoft.azure.sdk.iot.device.FileUploadSasUriResponse;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubClientException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+/**
+ * The IoT hub file upload: SAS URIs of the hub's linked storage account and completion notifications to the hub.
+ */
+@Component
+@ConditionalOnProperty(name = "device-emulation.upload.backend", havingValue = "iot-hub", matchIfMissing = true)
+public class IotHubBlobBackend implements BlobStorageBackend {
+
+    private final DeviceClient client;
+
+    public IotHubBlobBackend(@Value("${device-emulation.connection-string}") String connString) throws IotHubClientException {
+        this.client = new DeviceClient(connString, IotHubClientProtocol.MQTT);
+        this.client.open(true);
+    }
+
+    @Override
+    public UploadTarget requestUpload(String blobName) throws IOException {
+        try {
+            FileUploadSasUriResponse sasUriResponse = client.getFileUploadSasUri(new FileUploadSasUriRequest(blobName));
+            return new UploadTarget(sasUriResponse.getCorrelationId(), sasUriResponse.getBlobUri().toString());
+        } catch (IotHubClientException | URISyntaxException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void completeUpload(UploadTarget target, boolean success) throws IOException {
+        try {
+            client.completeFileUpload(new FileUploadCompletionNotification(target.correlationId(), success));
+        } catch (IotHubClientException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
@@ -0,0 +1,67 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline stand-in for the IoT hub file upload: SAS URIs point to a {@link LocalBlobServer} and completion
+ * notifications are only counted. Latency and failures are injected as configured in {@link LocalBlobProperties}.
+ */
+@Component
+@ConditionalOnProperty(name = "device-emulation.upload.backend", havingValue = "local")
+public class LocalBlobBackend implements BlobStorageBackend {
+
+    private final LocalBlobProperties properties;
+    private final LocalBlobServer server;
+    private final AtomicLong completedUploads = new AtomicLong();
+    private final AtomicLong failedUploads = new AtomicLong();
+
+    public LocalBlobBackend(LocalBlobProperties properties) throws IOException {
+        this.properties = properties;
+        this.server = new LocalBlobServer(properties);
+        System.out.println("Uploading to local blob storage in " + server.getDirectory());
+    }
+
+    @Override
+    public UploadTarget requestUpload(String blobName) throws IOException {
+        delay();
+        if (ThreadLocalRandom.current().nextDouble() < properties.getSasFailureRate()) {
+            throw new IOException("Injected failure of the SAS URI request for " + blobName);
+        }
+        return new UploadTarget(UUID.randomUUID().toString(), server.uri(blobName));
+    }
+
+    @Override
+    public void completeUpload(UploadTarget target, boolean success) throws IOException {
+        delay();
+        (success ? completedUploads : failedUploads).incrementAndGet();
+    }
+
+    public long getCompletedUploads() {
+        return completedUploads.get();
+    }
+
+    public long getFailedUploads() {
+        return failedUploads.get();
+    }
+
+    @Override
+    public void close() {
+        server.close();
+    }
+
+    private void delay() throws InterruptedIOException {
+        try {
+            LocalBlobServer.sleep(properties.getLatencyMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during injected latency");
+        }
+    }
+}
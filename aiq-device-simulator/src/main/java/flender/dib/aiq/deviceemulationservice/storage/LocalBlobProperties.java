@@ -0,0 +1,48 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * The local stand-in for the IoT hub file upload, used with {@code device-emulation.upload.backend: local}.
+ * Latency, bandwidth and failure rates are injected to benchmark the upload stage and its retries offline.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-emulation.upload.local")
+public class LocalBlobProperties {
+
+    /**
+     * Directory the uploaded blobs are written to, by blob name.
+     */
+    private String directory = "LocalBlobStorage/";
+    /**
+     * Port of the local blob endpoint, 0 for any free port.
+     */
+    private int port = 0;
+    /**
+     * Added to every SAS request, completion notification and blob request.
+     */
+    private long latencyMillis = 0;
+    /**
+     * Upload bandwidth shared by all requests, 0 for unlimited.
+     */
+    private long bandwidthBytesPerSecond = 0;
+    /**
+     * Upload bandwidth of a single request, like the throughput of one TCP stream, 0 for unlimited.
+     */
+    private long streamBandwidthBytesPerSecond = 0;
+    /**
+     * Share of blob requests answered with {@link #failureStatus}.
+     */
+    private double failureRate = 0;
+    /**
+     * Status of the failed blob requests: 503 and 500 are retried by the blob client, 403 is not.
+     */
+    private int failureStatus = 503;
+    /**
+     * Share of SAS requests that fail.
+     */
+    private double sasFailureRate = 0;
+}
@@ -0,0 +1,242 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A local HTTP endpoint answering the Put Blob, Put Block and Put Block List requests of the blob client, so
+ * uploads run through the same client, connection pool and retry policy as against Azure. Blobs are written to a
+ * directory by blob name, staged blocks next to them until their block list is committed. Every request can be
+ * delayed, throttled to a bandwidth and failed at random.
+ */
+public class LocalBlobServer implements AutoCloseable {
+
+    private static final String ACCOUNT_PATH = "/devstoreaccount1/uploads/";
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final Pattern BLOCK_LIST_ENTRY = Pattern.compile("<(?:Latest|Uncommitted|Committed)>([^<]*)</");
+
+    private final Path directory;
+    private final LocalBlobProperties properties;
+    private final Throttle throttle;
+    private final HttpServer server;
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    public LocalBlobServer(LocalBlobProperties properties) throws IOException {
+        this.directory = Path.of(properties.getDirectory()).toAbsolutePath().normalize();
+        this.properties = properties;
+        this.throttle = properties.getBandwidthBytesPerSecond() > 0 ? new Throttle(properties.getBandwidthBytesPerSecond()) : null;
+        Files.createDirectories(directory);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), properties.getPort()), 0);
+        server.createContext(ACCOUNT_PATH, this::handle);
+        server.setExecutor(executorService);
+        server.start();
+    }
+
+    /**
+     * SAS URI of the blob on this server. The signature is not checked.
+     */
+    public String uri(String blobName) {
+        StringBuilder uri = new StringBuilder("http://127.0.0.1:").append(server.getAddress().getPort()).append(ACCOUNT_PATH);
+        String[] segments = blobName.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            uri.append(i > 0 ? "/" : "").append(URLEncoder.encode(segments[i], StandardCharsets.UTF_8).replace("+", "%20"));
+        }
+        return uri.append("?sv=2020-08-04&sr=b&sp=cw&sig=local").toString();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            sleep(properties.getLatencyMillis());
+            if (!exchange.getRequestMethod().equals("PUT")) {
+                sendError(exchange, 405, "UnsupportedHttpVerb");
+                return;
+            }
+            Path blob = directory.resolve(exchange.getRequestURI().getPath().substring(ACCOUNT_PATH.length())).normalize();
+            if (!blob.startsWith(directory) || blob.equals(directory)) {
+                sendError(exchange, 400, "InvalidResourceName");
+                return;
+            }
+
+            Path partFile = blob.resolveSibling(blob.getFileName() + "." + UUID.randomUUID() + ".part");
+            Files.createDirectories(blob.getParent());
+            try {
+                receive(exchange.getRequestBody(), partFile);
+                // The body is read in any case, the client only sees the failure after sending it like with Azure
+                if (ThreadLocalRandom.current().nextDouble() < properties.getFailureRate()) {
+                    int status = properties.getFailureStatus();
+                    sendError(exchange, status, status == 403 ? "AuthenticationFailed" : status == 503 ? "ServerBusy" : "InternalError");
+                    return;
+                }
+                String comp = queryParameters(exchange.getRequestURI()).get("comp");
+                if ("block".equals(comp)) {
+                    Path blockFile = blockFile(blob, queryParameters(exchange.getRequestURI()).get("blockid"));
+                    Files.createDirectories(blockFile.getParent());
+                    Files.move(partFile, blockFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else if ("blocklist".equals(comp)) {
+                    if (!commitBlocks(blob, partFile)) {
+                        sendError(exchange, 400, "InvalidBlockList");
+                        return;
+                    }
+                } else {
+                    Files.move(partFile, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                Files.deleteIfExists(partFile);
+            }
+
+            exchange.getResponseHeaders().add("ETag", "\"" + UUID.randomUUID() + "\"");
+            exchange.getResponseHeaders().add("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+            exchange.getResponseHeaders().add("x-ms-request-server-encrypted", "true");
+            exchange.getResponseHeaders().add("x-ms-request-id", UUID.randomUUID().toString());
+            exchange.sendResponseHeaders(201, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Concatenates the listed blocks into the blob and drops all staged blocks of it
+    private boolean commitBlocks(Path blob, Path blockListFile) throws IOException {
+        Matcher entries = BLOCK_LIST_ENTRY.matcher(Files.readString(blockListFile, StandardCharsets.UTF_8));
+        List<Path> blockFiles = new ArrayList<>();
+        while (entries.find()) {
+            Path blockFile = blockFile(blob, entries.group(1));
+            if (!Files.exists(blockFile)) {
+                return false;
+            }
+            blockFiles.add(blockFile);
+        }
+        Path partFile = blob.resolveSibling(blob.getFileName() + "." + UUID.randomUUID() + ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(partFile)) {
+                for (Path blockFile : blockFiles) {
+                    Files.copy(blockFile, out);
+                }
+            }
+            Files.move(partFile, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+        Path blocksDirectory = blocksDirectory(blob);
+        try (Stream<Path> staged = Files.list(blocksDirectory)) {
+            for (Path blockFile : staged.toList()) {
+                Files.delete(blockFile);
+            }
+        } catch (NoSuchFileException e) {
+            // nothing staged
+        }
+        Files.deleteIfExists(blocksDirectory);
+        return true;
+    }
+
+    private static Path blocksDirectory(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + ".blocks");
+    }
+
+    // Block ids are base64 and may contain slashes, the file name is their hex form
+    private static Path blockFile(Path blob, String blockId) {
+        return blocksDirectory(blob).resolve(HexFormat.of().formatHex(blockId.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static Map<String, String> queryParameters(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        if (uri.getRawQuery() != null) {
+            for (String parameter : uri.getRawQuery().split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(parameter.substring(0, separator),
+                            URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private void receive(InputStream body, Path file) throws IOException, InterruptedException {
+        Throttle streamThrottle = properties.getStreamBandwidthBytesPerSecond() > 0
+                ? new Throttle(properties.getStreamBandwidthBytesPerSecond())
+                : null;
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = body.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+                long waitNanos = Math.max(throttle != null ? throttle.reserve(read) : 0,
+                        streamThrottle != null ? streamThrottle.reserve(read) : 0);
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String errorCode) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"utf-8\"?><Error><Code>" + errorCode
+                + "</Code><Message>Injected by the local blob server</Message></Error>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.getResponseHeaders().add("x-ms-error-code", errorCode);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    // Bytes are booked on a timeline advancing by their transfer time at the bandwidth
+    private static final class Throttle {
+
+        private final double nanosPerByte;
+        private long next = System.nanoTime();
+
+        private Throttle(long bytesPerSecond) {
+            this.nanosPerByte = 1e9 / bytesPerSecond;
+        }
+
+        // Nanoseconds until the bytes are through
+        private synchronized long reserve(int bytes) {
+            long now = System.nanoTime();
+            next = Math.max(next, now) + (long) (bytes * nanosPerByte);
+            return next - now;
+        }
+    }
+}
@@ -11,6 +11,11 @@ public class OperationCounterFile extends ProtobufFile {
         this.operationCounters = operationCounters;
     }
 
+    public OperationCounterFile(ArtifactWriter.Artifact artifact, OperationCounters operationCounters) {
+        super(artifact);
+        this.operationCounters = operationCounters;
+    }
+
     @Override
     public String getAzureBlobName() {
         return operationCounters.getDeviceID() +"/"+ getFilename();
@@ -1,11 +1,74 @@
 package flender.dib.aiq.deviceemulationservice.storage;
 import org.springframework.core.io.FileSystemResource;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
+
+/**
+ * A generated artifact, either written to its file or kept in memory with the file path only naming it.
+ */
 public abstract class ProtobufFile extends FileSystemResource {
+
+    private byte[] data;
+    private final int length;
+
     public ProtobufFile(String path) {
         super(path);
+        this.length = 0;
+    }
+
+    public ProtobufFile(ArtifactWriter.Artifact artifact) {
+        super(artifact.path());
+        this.data = artifact.data();
+        this.length = artifact.length();
     }
 
     public abstract String getAzureBlobName();
+
+    public boolean isInMemory() {
+        return data != null;
+    }
+
+    @Override
+    public boolean exists() {
+        return data != null || super.exists();
+    }
+
+    @Override
+    public boolean isReadable() {
+        return data != null || super.isReadable();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return data != null ? new ByteArrayInputStream(data, 0, length) : super.getInputStream();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return data != null ? length : super.contentLength();
+    }
+
+    /**
+     * Size of the artifact before its payload was compressed, the content length of uncompressed artifacts.
+     */
+    public long getUncompressedSize() throws IOException {
+        return contentLength();
+    }
+
+    /**
+     * Releases the artifact once it is no longer needed: the local file of a file-backed artifact is deleted,
+     * an in-memory artifact drops its data and keeps a possible debug copy on disk.
+     *
+     * @return false if the local file could not be deleted
+     */
+    public boolean discard() {
+        if (data != null) {
+            data = null;
+            return true;
+        }
+        return getFile().delete();
+    }
 }
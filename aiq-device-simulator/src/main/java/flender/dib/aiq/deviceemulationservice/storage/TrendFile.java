@@ -2,13 +2,39 @@ package flender.dib.aiq.deviceemulationservice.storage;
 
 import com.flender.vda.TrendOuterClass.Trend;
 
+import java.io.IOException;
+
 public class TrendFile extends ProtobufFile{
 
     private final Trend trend;
+    private final long bytesSaved;
 
     public TrendFile(String path, Trend trend) {
         super(path);
         this.trend = trend;
+        this.bytesSaved = 0;
+    }
+
+    public TrendFile(ArtifactWriter.Artifact artifact, Trend trend) {
+        this(artifact, trend, 0);
+    }
+
+    /**
+     * @param bytesSaved bytes the compression of the trend entries saved
+     */
+    public TrendFile(ArtifactWriter.Artifact artifact, Trend trend, long bytesSaved) {
+        super(artifact);
+        this.trend = trend;
+        this.bytesSaved = bytesSaved;
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    @Override
+    public long getUncompressedSize() throws IOException {
+        return contentLength() + bytesSaved;
     }
 
     @Override
@@ -0,0 +1,367 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import com.azure.core.exception.HttpResponseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable outbox in front of {@link AzureBlobStorage}. Every artifact is first copied into a spool directory and
+ * recorded in an append-only index, then uploaded from the spool. Failed uploads are retried with exponential
+ * backoff; artifacts still pending when the process ends are resumed from the index by {@link #resume()} on the
+ * next start, so an outage of the storage never requires regenerating the artifacts.
+ * <p>
+ * Uploads from the spool replace an existing blob of the same name, which can only be an earlier attempt of the
+ * same artifact whose transfer succeeded. An upload whose transfer succeeded but whose completion notification
+ * failed counts as uploaded. Artifacts rejected with a client error other than a timeout or throttling, and those
+ * that still fail after {@code max-attempts}, are moved to the {@value #DEAD_LETTER_DIRECTORY} directory of the
+ * spool instead of being retried forever.
+ * <p>
+ * Index lines are {@code A<tab>id<tab>size<tab>blob name} when an artifact is spooled and {@code D<tab>id} when it
+ * was uploaded. The index is compacted to the pending artifacts on resume. When the spooled artifacts would exceed
+ * the configured disk usage, new artifacts bypass the outbox and are uploaded once without retry.
+ * Without a spool directory the outbox is disabled and hands every artifact straight to the storage.
+ */
+@Component
+public class UploadOutbox {
+
+    private static final String INDEX_FILE = "index.log";
+    private static final String ADDED = "A";
+    private static final String DONE = "D";
+    private static final String DEAD_LETTER_DIRECTORY = "dead-letters";
+
+    private final AzureBlobStorage azureBlobStorage;
+    private final Path directory;
+    private final long maxBytes;
+    private final long initialRetryMillis;
+    private final long maxRetryMillis;
+    private final int maxAttempts;
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<Long, SpooledFile> pending = new LinkedHashMap<>();
+    private FileChannel index;
+    private long nextId;
+    private long spooledBytes;
+    private long deadLetterCount;
+    private boolean shutdown;
+
+    public UploadOutbox(AzureBlobStorage azureBlobStorage,
+                        @Value("${device-emulation.upload.outbox.directory:}") String directory,
+                        @Value("${device-emulation.upload.outbox.max-bytes:1073741824}") long maxBytes,
+                        @Value("${device-emulation.upload.outbox.retry-initial-seconds:5}") long initialRetrySeconds,
+                        @Value("${device-emulation.upload.outbox.retry-max-seconds:300}") long maxRetrySeconds,
+                        @Value("${device-emulation.upload.outbox.max-attempts:20}") int maxAttempts,
+                        ArtifactMetrics metrics) {
+        this.azureBlobStorage = azureBlobStorage;
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        this.maxBytes = maxBytes;
+        this.initialRetryMillis = TimeUnit.SECONDS.toMillis(initialRetrySeconds);
+        this.maxRetryMillis = TimeUnit.SECONDS.toMillis(maxRetrySeconds);
+        this.maxAttempts = maxAttempts;
+        metrics.registerGauge("artifact.outbox.pending", "Spooled files not yet uploaded",
+                this, UploadOutbox::getPendingCount);
+        metrics.registerGauge("artifact.outbox.bytes", "Bytes of the spooled files not yet uploaded",
+                this, UploadOutbox::getSpooledBytes);
+        metrics.registerGauge("artifact.outbox.dead.letters", "Spooled files given up on in this run",
+                this, UploadOutbox::getDeadLetterCount);
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized long getSpooledBytes() {
+        return spooledBytes;
+    }
+
+    public synchronized long getDeadLetterCount() {
+        return deadLetterCount;
+    }
+
+    /**
+     * Opens the index and uploads the artifacts left pending by previous runs.
+     */
+    public void resume() throws IOException {
+        // Uploads are started outside the lock, their completion needs it
+        for (SpooledFile file : openIndex()) {
+            upload(file);
+        }
+    }
+
+    private synchronized List<SpooledFile> openIndex() throws IOException {
+        if (directory == null || index != null) {
+            return List.of();
+        }
+        Files.createDirectories(directory);
+        Path indexFile = directory.resolve(INDEX_FILE);
+        Map<Long, String[]> added = new LinkedHashMap<>();
+        if (Files.exists(indexFile)) {
+            for (String line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                if (fields.length == 4 && fields[0].equals(ADDED)) {
+                    added.put(Long.parseLong(fields[1]), fields);
+                } else if (fields.length == 2 && fields[0].equals(DONE)) {
+                    added.remove(Long.parseLong(fields[1]));
+                }   // a torn last line of a crash is ignored
+                nextId = Math.max(nextId, fields.length >= 2 ? parseId(fields[1]) + 1 : nextId);
+            }
+        }
+
+        // Compact the index to the pending artifacts whose spool file survived
+        Path compacted = directory.resolve(INDEX_FILE + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (String[] fields : added.values()) {
+                long id = Long.parseLong(fields[1]);
+                Path spoolFile = spoolFile(id, fields[3]);
+                if (Files.exists(spoolFile)) {
+                    writer.write(String.join("\t", fields));
+                    writer.newLine();
+                    SpooledFile file = new SpooledFile(id, spoolFile, fields[3]);
+                    pending.put(id, file);
+                    spooledBytes += Long.parseLong(fields[2]);
+                }
+            }
+        }
+        Files.move(compacted, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteOrphans();
+        index = FileChannel.open(indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        if (!pending.isEmpty()) {
+            System.out.println("Resuming " + pending.size() + " pending uploads (" + spooledBytes + " bytes)");
+        }
+        return List.copyOf(pending.values());
+    }
+
+    /**
+     * Spools the artifact and uploads it from the spool. The returned future completes once the artifact is no
+     * longer needed by the outbox: right away when it was spooled, after the upload when it bypasses the outbox.
+     */
+    public CompletableFuture<Void> submit(ProtobufFile protobufFile) throws IOException {
+        resume();
+        SpooledFile file = directory != null ? spool(protobufFile) : null;
+        if (file == null) {
+            if (directory != null) {
+                System.err.println("Upload outbox full (" + spooledBytes + " bytes), uploading without retry: " + protobufFile.getFilename());
+            }
+            return azureBlobStorage.uploadProtobufFileAsync(protobufFile).handle((uploaded, error) -> null);
+        }
+        upload(file);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Waits until all spooled artifacts are uploaded or the timeout passed, whichever comes first.
+     *
+     * @return true if nothing is pending anymore
+     */
+    public synchronized boolean awaitEmpty(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!pending.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Stops retrying. Artifacts still pending stay spooled for the next {@link #resume()}.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        retryScheduler.shutdownNow();
+        if (!pending.isEmpty()) {
+            System.out.println(pending.size() + " uploads remain in the outbox for the next run");
+        }
+        try {
+            if (index != null) {
+                index.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close upload outbox index: " + e.getMessage());
+        }
+    }
+
+    private synchronized SpooledFile spool(ProtobufFile protobufFile) throws IOException {
+        if (shutdown) {
+            throw new IllegalStateException("Upload outbox is shut down, rejected " + protobufFile.getFilename());
+        }
+        long size = protobufFile.contentLength();
+        if (spooledBytes + size > maxBytes) {
+            return null;
+        }
+        long id = nextId++;
+        String blobName = protobufFile.getAzureBlobName();
+        Path spoolFile = spoolFile(id, blobName);
+        Path partFile = spoolFile.resolveSibling(spoolFile.getFileName() + ".part");
+        try (InputStream in = protobufFile.getInputStream(); FileChannel out = FileChannel.open(partFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            in.transferTo(Channels.newOutputStream(out));
+            out.force(true);
+        }
+        Files.move(partFile, spoolFile, StandardCopyOption.ATOMIC_MOVE);
+        appendToIndex(String.join("\t", ADDED, Long.toString(id), Long.toString(size), blobName));
+
+        SpooledFile file = new SpooledFile(id, spoolFile, blobName);
+        pending.put(id, file);
+        spooledBytes += size;
+        return file;
+    }
+
+    private void upload(SpooledFile file) {
+        azureBlobStorage.uploadProtobufFileAsync(file, true).whenComplete((uploaded, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause == null) {
+                completed(file);
+            } else if (cause instanceof AzureBlobStorage.UploadException uploadException
+                    && uploadException.getStep().equals("completion")) {
+                // The blob is stored, only the notification is lost; uploading it again would not bring that back
+                System.err.println("Completion of " + file.getFilename() + " failed after its transfer, not retrying it");
+                completed(file);
+            } else if (isPermanent(cause)) {
+                deadLetter(file, cause);
+            } else {
+                scheduleRetry(file);
+            }
+        });
+    }
+
+    private synchronized void completed(SpooledFile file) {
+        try {
+            appendToIndex(String.join("\t", DONE, Long.toString(file.id)));
+            spooledBytes -= Files.size(file.getFile().toPath());
+            Files.deleteIfExists(file.getFile().toPath());
+        } catch (IOException e) {
+            // Uploaded but still listed as pending, uploaded again on the next resume
+            System.err.println("Failed to remove uploaded file from outbox: " + e.getMessage());
+        }
+        pending.remove(file.id);
+        notifyAll();
+    }
+
+    // Keeps the file for inspection but removes it from the index, so it is not resumed either
+    private synchronized void deadLetter(SpooledFile file, Throwable error) {
+        System.err.println("Giving up on upload of " + file.getFilename() + ": " + error.getMessage());
+        try {
+            Path spoolFile = file.getFile().toPath();
+            Path deadLetters = Files.createDirectories(directory.resolve(DEAD_LETTER_DIRECTORY));
+            long size = Files.size(spoolFile);
+            Files.move(spoolFile, deadLetters.resolve(spoolFile.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            spooledBytes -= size;
+            appendToIndex(String.join("\t", DONE, Long.toString(file.id)));
+        } catch (IOException e) {
+            System.err.println("Failed to move file to the dead letters of the outbox: " + e.getMessage());
+        }
+        deadLetterCount++;
+        pending.remove(file.id);
+        notifyAll();
+    }
+
+    // Client errors other than timeouts and throttling fail the same way on every attempt
+    private static boolean isPermanent(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpResponseException httpError && httpError.getResponse() != null) {
+                int status = httpError.getResponse().getStatusCode();
+                return status >= 400 && status < 500 && status != 408 && status != 429;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void scheduleRetry(SpooledFile file) {
+        if (shutdown) {
+            return;
+        }
+        file.attempts++;
+        if (file.attempts >= maxAttempts) {
+            deadLetter(file, new IOException("Maximum of " + maxAttempts + " attempts reached"));
+            return;
+        }
+        long backoff = Math.min(maxRetryMillis, initialRetryMillis << Math.min(20, file.attempts - 1));
+        long delay = (long) (backoff * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+        System.out.println("Retrying upload of " + file.getFilename() + " in " + delay / 1000 + " s (attempt " + (file.attempts + 1) + ")");
+        retryScheduler.schedule(() -> {
+            try {
+                upload(file);
+            } catch (IllegalStateException e) {
+                // storage shut down meanwhile, the file stays spooled
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void appendToIndex(String line) throws IOException {
+        index.write(StandardCharsets.UTF_8.encode(line + "\n"));
+        index.force(false);
+    }
+
+    private Path spoolFile(long id, String blobName) {
+        return directory.resolve(id + "_" + blobName.substring(blobName.lastIndexOf('/') + 1));
+    }
+
+    // Spool files without index entry, e.g. of a crash between copying and indexing
+    private void deleteOrphans() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                int separator = name.indexOf('_');
+                if (name.startsWith(INDEX_FILE) || separator < 0) {
+                    continue;
+                }
+                long id = parseId(name.substring(0, separator));
+                if (id >= 0 && (!pending.containsKey(id) || name.endsWith(".part"))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static long parseId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class SpooledFile extends ProtobufFile {
+
+        private final long id;
+        private final String blobName;
+        private int attempts;
+
+        private SpooledFile(long id, Path path, String blobName) {
+            super(path.toString());
+            this.id = id;
+            this.blobName = blobName;
+        }
+
+        @Override
+        public String getAzureBlobName() {
+            return blobName;
+        }
+    }
+}
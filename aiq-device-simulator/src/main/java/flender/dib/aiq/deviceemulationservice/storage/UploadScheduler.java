@@ -1,46 +1,248 @@
 package flender.dib.aiq.deviceemulationservice.storage;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates and uploads the artifacts of every device on its own cadence. There is one job per device and
+ * artifact type. It runs once per period, at an offset within the period hashed from the device and the type, so
+ * the jobs of a fleet are spread evenly instead of all firing at the same minute.
+ * <p>
+ * At most {@code max-concurrent} jobs run at a time, further due jobs wait for a free worker. A job that is still
+ * running or waiting when it is due again is not queued a second time, the missed slot is coalesced into the
+ * pending run. With a state file the last completed slot of every job is kept across restarts: a job that missed
+ * slots during a downtime catches up with a single run, spread over the catch-up window to avoid a burst at start.
+ */
 @Service
 public class UploadScheduler {
 
-    private final AzureBlobStorage azureBlobStorage;
-    private final String TRIGGER_30_MIN = "0 */30 * * * *";
-    private final String TRIGGER_HOURLY = "0 10 * * * *";
-
-    public UploadScheduler(AzureBlobStorage azureBlobStorage) {
-        this.azureBlobStorage = azureBlobStorage;
-    }
-
-//    @Scheduled(cron = TRIGGER_HOURLY)
-//    public void uploadTrendFileHourly() {
-//        try {
-////            String deviceId = "7C:87:CE:EB:83:A6";
-////            String trendUuid = "30c78f70-13a8-4596-b457-13f1cfdf3673";
-//            float[] kpis0to20 = {1500, 56, 0.21f, 0.18f, 0.7f, 0.15f, 0.12f, 0.35f, 0.05f, 0.26f, 1.15f, 0.1f, 0.27f, 1.05f, 0.04f, 0.08f, 0.33f, 0.01f, 0.035f, 0.06f, 0.23f};
-//            float[] kpis21to41 = {0.26f, 0.14f, 0.16f, 0.2f, 0.11f, 0.12f, 0.17f, 0.1f, 0.05f, 0.026f, 0.055f, 0.04f, 0.032f, 0.015f, 0.024f, 0.037f};
-//            String deviceId = "ZZ:ZZ:ZZ:ZZ:ZZ:32";
-//            ProtobufFile[] trendFiles = new ProtobufFile[7];
-//
-//            trendFiles[0] = new CoreIOTrendGenerator0to20(kpis0to20, DURATION_7_DAYS, deviceId, "6c9408e0-18c2-4bbb-aa3f-c8ccd06df3de").generateCompressedTrend();
-//            trendFiles[1] = new CoreIOTrendGenerator21to41(kpis21to41, DURATION_7_DAYS, deviceId, "6c9408e0-18c2-4bbb-aa3f-c8ccd06df3de").generateCompressedTrend();
-//            trendFiles[2] = new CoreIOTrendGenerator0to20(kpis0to20, DURATION_90_DAYS, deviceId, "7fc5851f-f2aa-4006-b1cb-5fe78534ac55").generateCompressedTrend();
-//            trendFiles[3] = new CoreIOTrendGenerator21to41(kpis21to41, DURATION_90_DAYS, deviceId, "7fc5851f-f2aa-4006-b1cb-5fe78534ac55").generateCompressedTrend();
-//            trendFiles[4] = new CoreIOTrendGenerator0to20(kpis0to20, DURATION_3_YEARS, deviceId, "833fb20f-46b1-42bb-a163-76a29fe6f499").generateCompressedTrend();
-//            trendFiles[5] = new CoreIOTrendGenerator21to41(kpis21to41, DURATION_3_YEARS, deviceId, "833fb20f-46b1-42bb-a163-76a29fe6f499").generateCompressedTrend();
-//            trendFiles[6] = new CoreIOTrendGenerator0to20(kpis0to20, DURATION_60_MINUTES, deviceId, "f48b8f39-1c99-47c7-ac28-3cf4c6644fb2").generateCompressedTrend();
-//
-//            for (ProtobufFile trendFile : trendFiles) {
-//                azureBlobStorage.uploadTrendFile(trendFile);
-//                System.out.println("Uploaded file: " + trendFile.getFilename());
-//                if (!trendFile.getFile().delete()) {
-//                    System.err.println("Failed to delete local trend file: " + trendFile.getFilename());
-//                }
-//            }
-//        } catch (IOException e) {
-//            e.printStackTrace();
-//            System.err.println("Error during scheduled trend file upload: " + e.getMessage());
-//        }
-//    }
+    /**
+     * Generates and uploads one artifact type of one device.
+     */
+    @FunctionalInterface
+    public interface ArtifactJob {
+
+        /**
+         * @param slot the scheduled time of this run, the latest missed slot for a catch-up run
+         */
+        void run(Instant slot) throws Exception;
+    }
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService workers;
+    private final long catchUpWindowMillis;
+    private final Path stateFile;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Long> completedSlots = new ConcurrentHashMap<>();
+    private volatile boolean stateChanged;
+    private boolean shutdown;
+
+    public UploadScheduler(@Value("${device-emulation.schedule.max-concurrent:4}") int maxConcurrent,
+                           @Value("${device-emulation.schedule.catch-up-window-seconds:300}") long catchUpWindowSeconds,
+                           @Value("${device-emulation.schedule.state-file:}") String stateFile) throws IOException {
+        this.workers = Executors.newFixedThreadPool(maxConcurrent);
+        this.catchUpWindowMillis = TimeUnit.SECONDS.toMillis(catchUpWindowSeconds);
+        this.stateFile = stateFile.isBlank() ? null : Path.of(stateFile);
+        if (this.stateFile != null) {
+            loadState();
+            timer.scheduleWithFixedDelay(this::saveState, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Schedules the job of the device's artifact type, replacing a job already scheduled for them.
+     */
+    public synchronized void schedule(String deviceId, String artifactType, Duration period, ArtifactJob artifactJob) {
+        if (shutdown) {
+            throw new IllegalStateException("Upload scheduler is shut down, rejected " + deviceId + "/" + artifactType);
+        }
+        Job job = new Job(deviceId, deviceId + "/" + artifactType, period.toMillis(), artifactJob);
+        Job replaced = jobs.put(job.key, job);
+        if (replaced != null) {
+            replaced.cancel();
+        }
+
+        long now = System.currentTimeMillis();
+        long latestSlot = job.slotAtOrBefore(now);
+        Long completedSlot = completedSlots.get(job.key);
+        if (completedSlot != null && completedSlot < latestSlot) {
+            long missed = (latestSlot - completedSlot) / job.periodMillis;
+            long delay = catchUpWindowMillis > 0 ? Math.floorMod(Long.rotateLeft(hash(job.key), 21), catchUpWindowMillis) : 0;
+            System.out.println("Catching up " + missed + " missed runs of " + job.key + " in " + delay / 1000 + " s");
+            job.scheduleAt(latestSlot, delay);
+        } else {
+            job.scheduleAt(latestSlot + job.periodMillis, latestSlot + job.periodMillis - now);
+        }
+    }
+
+    /**
+     * Cancels all jobs of the device. Runs already started are completed.
+     */
+    public synchronized void cancel(String deviceId) {
+        jobs.values().removeIf(job -> {
+            if (job.deviceId.equals(deviceId)) {
+                job.cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public int getJobCount() {
+        return jobs.size();
+    }
+
+    /**
+     * Stops scheduling, waits for the running jobs and saves the state.
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+        }
+        timer.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.err.println("Scheduled artifact jobs still running after 1 min, stopping them");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        saveState();
+    }
+
+    private void loadState() throws IOException {
+        if (!Files.exists(stateFile)) {
+            return;
+        }
+        for (String line : Files.readAllLines(stateFile, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (fields.length == 2) {
+                completedSlots.put(fields[0], Long.parseLong(fields[1]));
+            }
+        }
+    }
+
+    private void saveState() {
+        if (stateFile == null || !stateChanged) {
+            return;
+        }
+        stateChanged = false;
+        Path tmpFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> entry : completedSlots.entrySet()) {
+                    writer.write(entry.getKey() + "\t" + entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmpFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            stateChanged = true;
+            System.err.println("Failed to save upload schedule state: " + e.getMessage());
+        }
+    }
+
+    // String.hashCode alone clusters similar device ids, the multiplication spreads them over the period
+    private static long hash(String key) {
+        long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private final class Job {
+
+        private final String deviceId;
+        private final String key;
+        private final long periodMillis;
+        private final long offsetMillis;
+        private final ArtifactJob artifactJob;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile ScheduledFuture<?> next;
+        private volatile boolean cancelled;
+
+        private Job(String deviceId, String key, long periodMillis, ArtifactJob artifactJob) {
+            if (periodMillis <= 0) {
+                throw new IllegalArgumentException("Invalid period of " + key + ": " + periodMillis + " ms");
+            }
+            this.deviceId = deviceId;
+            this.key = key;
+            this.periodMillis = periodMillis;
+            this.offsetMillis = Math.floorMod(hash(key), periodMillis);
+            this.artifactJob = artifactJob;
+        }
+
+        private long slotAtOrBefore(long time) {
+            return Math.floorDiv(time - offsetMillis, periodMillis) * periodMillis + offsetMillis;
+        }
+
+        private void scheduleAt(long slot, long delayMillis) {
+            try {
+                next = timer.schedule(() -> trigger(slot), Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // shut down meanwhile
+            }
+        }
+
+        // The next slot is taken from the clock, slots passed while the process was suspended are coalesced
+        private void trigger(long slot) {
+            if (cancelled) {
+                return;
+            }
+            if (pending.compareAndSet(false, true)) {
+                workers.execute(() -> execute(slot));
+            } else {
+                System.out.println("Skipping run of " + key + ", the previous one is still pending");
+            }
+            long now = System.currentTimeMillis();
+            long nextSlot = slotAtOrBefore(Math.max(now, slot)) + periodMillis;
+            scheduleAt(nextSlot, nextSlot - now);
+        }
+
+        private void execute(long slot) {
+            try {
+                if (!cancelled) {
+                    artifactJob.run(Instant.ofEpochMilli(slot));
+                    completedSlots.merge(key, slot, Math::max);
+                    stateChanged = true;
+                }
+            } catch (Exception e) {
+                System.err.println("Scheduled run of " + key + " failed: " + e.getMessage());
+            } finally {
+                pending.set(false);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> scheduled = next;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+/**
+ * Defines how the samples of a finer trend level are combined into one entry of a coarser level.
+ */
+public enum Aggregation {
+    MEAN,   // time weighted mean of all samples in the interval
+    MIN,
+    MAX,
+    LAST    // value at the end of the interval, like a device sampling at the coarse rate
+}
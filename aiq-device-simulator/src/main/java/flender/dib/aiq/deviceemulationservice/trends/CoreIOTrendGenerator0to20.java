@@ -4,13 +4,10 @@ import com.flender.vda.AlarmDataOuterClass.AlarmData;
 import com.flender.vda.Base.Unit;
 import com.flender.vda.TrendOuterClass.AlarmDataIndexRow;
 import com.flender.vda.TrendOuterClass.Trend;
-import com.flender.vda.TrendOuterClass.TrendEntries;
 import com.google.protobuf.FloatValue;
 import com.google.protobuf.Int32Value;
 import org.springframework.beans.factory.annotation.Value;
 
-import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
 
 public class CoreIOTrendGenerator0to20 extends TrendGenerator {
@@ -18,12 +15,12 @@ public class CoreIOTrendGenerator0to20 extends TrendGenerator {
     private static final String TREND_ID = "idx00to20";
     private float[] kpis;
 
-    public CoreIOTrendGenerator0to20(float[] kpis, TrendDuration duration, String deviceId, String jobUUID) {
+    public CoreIOTrendGenerator0to20(float[] kpis, TrendWindow duration, String deviceId, String jobUUID) {
         super(duration, deviceId, jobUUID, TREND_ID);
         this.kpis = kpis;
     }
 
-    public CoreIOTrendGenerator0to20(List<Float> kpisList, TrendDuration duration, String deviceId, String jobUUID) {
+    public CoreIOTrendGenerator0to20(List<Float> kpisList, TrendWindow duration, String deviceId, String jobUUID) {
         super(duration, deviceId, jobUUID, TREND_ID);
         kpis = new float[kpisList.size()];
         int i = 0;
@@ -80,25 +77,18 @@ public class CoreIOTrendGenerator0to20 extends TrendGenerator {
     }
 
     @Override
-    protected TrendEntries generateTrendEntries() {
-        long stopTS = Instant.now().getEpochSecond();
-        long[] linearTimestamps = generateLinearTimestamps(stopTS);
-        float[] trendData0 = generateFluctuatingConstantData(kpis[0], 0.1f);
-        float[] trendData1 = generateLongTermFluctuationData(kpis[1]);
-        List<float[]> trendDataList = new ArrayList<>();
-        trendDataList.add(trendData0);
-        trendDataList.add(trendData1);
+    protected SignalModel createDefaultSignalModel() {
+        SignalModel model = new SignalModel(kpis.length)
+                .set(0, SignalChannel.fluctuatingConstant(kpis[0], 0.1f))
+                .set(1, SignalChannel.longTermFluctuation(kpis[1]));
         for (int i = 2; i < kpis.length; i++) {
-            float[] trendData;
             if (i == 4) {   // vib-z is always used for alarm report -> generate damage-trend
-                trendData = generateDamageIndicatorData(kpis[i], kpis[i] * 0.05f, 0.9f, 90);
+                model.set(i, SignalChannel.damageIndicator(kpis[i], kpis[i] * 0.05f, 0.9f, 90));
             }
             else {
-                trendData = generateFluctuatingConstantData(kpis[i], kpis[i] * 0.05f);
+                model.set(i, SignalChannel.fluctuatingConstant(kpis[i], kpis[i] * 0.05f));
             }
-            trendDataList.add(trendData);
         }
-
-        return buildTrendEntries(linearTimestamps, 0, trendDataList.toArray(new float[0][]));
+        return model;
     }
 }
@@ -6,8 +6,6 @@ import com.flender.vda.TrendOuterClass;
 import com.google.protobuf.FloatValue;
 import com.google.protobuf.Int32Value;
 
-import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
 
 public class CoreTorqueTrendGenerator0to20 extends TrendGenerator {
@@ -15,12 +13,12 @@ public class CoreTorqueTrendGenerator0to20 extends TrendGenerator {
     private static final String TREND_ID = "idx00to20";
     private float[] kpis;
 
-    public CoreTorqueTrendGenerator0to20(float[] kpis, TrendDuration duration, String deviceId, String jobUUID) {
+    public CoreTorqueTrendGenerator0to20(float[] kpis, TrendWindow duration, String deviceId, String jobUUID) {
         super(duration, deviceId, jobUUID, TREND_ID);
         this.kpis = kpis;
     }
 
-    public CoreTorqueTrendGenerator0to20(List<Float> kpisList, TrendDuration duration, String deviceId, String jobUUID) {
+    public CoreTorqueTrendGenerator0to20(List<Float> kpisList, TrendWindow duration, String deviceId, String jobUUID) {
         super(duration, deviceId, jobUUID, TREND_ID);
         kpis = new float[kpisList.size()];
         int i = 0;
@@ -87,25 +85,16 @@ public class CoreTorqueTrendGenerator0to20 extends TrendGenerator {
     }
 
     @Override
-    protected TrendOuterClass.TrendEntries generateTrendEntries() {
-        long stopTS = Instant.now().getEpochSecond();
-        long[] linearTimestamps = generateLinearTimestamps(stopTS);
-        float[] trendData0 = generateFluctuatingConstantData(kpis[0], 0.1f);
-        float[] trendData1 = generateLongTermFluctuationData(kpis[1]);
-        float[] trendData2 = generateFluctuatingConstantData(kpis[2], 1f);
-        float[] trendData3 = generateFluctuatingConstantData(kpis[3], 1f);
-        float[] trendData4 = generateFluctuatingConstantData(kpis[4], 0.5f);
-        List<float[]> trendDataList = new ArrayList<>();
-        trendDataList.add(trendData0);
-        trendDataList.add(trendData1);
-        trendDataList.add(trendData2);
-        trendDataList.add(trendData3);
-        trendDataList.add(trendData4);
+    protected SignalModel createDefaultSignalModel() {
+        SignalModel model = new SignalModel(kpis.length)
+                .set(0, SignalChannel.fluctuatingConstant(kpis[0], 0.1f))
+                .set(1, SignalChannel.longTermFluctuation(kpis[1]))
+                .set(2, SignalChannel.fluctuatingConstant(kpis[2], 1f))
+                .set(3, SignalChannel.fluctuatingConstant(kpis[3], 1f))
+                .set(4, SignalChannel.fluctuatingConstant(kpis[4], 0.5f));
         for (int i = 5; i < kpis.length; i++) {
-            float[] trendData = generateFluctuatingConstantData(kpis[i], kpis[i] * 0.05f);
-            trendDataList.add(trendData);
+            model.set(i, SignalChannel.fluctuatingConstant(kpis[i], kpis[i] * 0.05f));
         }
-
-        return buildTrendEntries(linearTimestamps, 0, trendDataList.toArray(new float[0][]));
+        return model;
     }
 }
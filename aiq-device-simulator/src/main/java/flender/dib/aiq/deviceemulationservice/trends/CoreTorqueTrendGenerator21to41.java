@@ -4,12 +4,9 @@ import com.flender.vda.AlarmDataOuterClass.AlarmData;
 import com.flender.vda.Base.Unit;
 import com.flender.vda.TrendOuterClass.AlarmDataIndexRow;
 import com.flender.vda.TrendOuterClass.Trend;
-import com.flender.vda.TrendOuterClass.TrendEntries;
 import com.google.protobuf.FloatValue;
 import com.google.protobuf.Int32Value;
 
-import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
 
 public class CoreTorqueTrendGenerator21to41 extends TrendGenerator {
@@ -19,12 +16,12 @@ public class CoreTorqueTrendGenerator21to41 extends TrendGenerator {
     private static final int KPI_INDEX_OFFSET = 21;
     private final int DAMAGED_KPI_INDEX = -1;
 
-    public CoreTorqueTrendGenerator21to41(float[] kpis, TrendDuration duration, String deviceId, String jobUUID) {
+    public CoreTorqueTrendGenerator21to41(float[] kpis, TrendWindow duration, String deviceId, String jobUUID) {
         super(duration, deviceId, jobUUID, TREND_ID);
         this.kpis = kpis;
     }
 
-    public CoreTorqueTrendGenerator21to41(List<Float> kpisList, TrendDuration duration, String deviceId, String jobUUID) {
+    public CoreTorqueTrendGenerator21to41(List<Float> kpisList, TrendWindow duration, String deviceId, String jobUUID) {
         super(duration, deviceId, jobUUID, TREND_ID);
         kpis = new float[kpisList.size()];
         int i = 0;
@@ -65,21 +62,16 @@ public class CoreTorqueTrendGenerator21to41 extends TrendGenerator {
     }
 
     @Override
-    protected TrendEntries generateTrendEntries() {
-        long stopTS = Instant.now().getEpochSecond();
-        long[] linearTimestamps = generateLinearTimestamps(stopTS);
-        List<float[]> trendDataList = new ArrayList<>();
-        for (int i = 0; i< kpis.length; i++) {
+    protected SignalModel createDefaultSignalModel() {
+        SignalModel model = new SignalModel(kpis.length);
+        for (int i = 0; i < kpis.length; i++) {
             if (i+KPI_INDEX_OFFSET == DAMAGED_KPI_INDEX) {
-                float[] damageTrendData = generateDamageIndicatorData(kpis[i], kpis[i] * 0.05f, 0.9f, 90);
-                trendDataList.add(damageTrendData);
+                model.set(i, SignalChannel.damageIndicator(kpis[i], kpis[i] * 0.05f, 0.9f, 90));
             }
             else {
-                float[] trendData = generateFluctuatingConstantData(kpis[i], kpis[i] * 0.05f);
-                trendDataList.add(trendData);
+                model.set(i, SignalChannel.fluctuatingConstant(kpis[i], kpis[i] * 0.05f));
             }
         }
-
-        return buildTrendEntries(linearTimestamps, 0, trendDataList.toArray(new float[0][]));
+        return model;
     }
 }
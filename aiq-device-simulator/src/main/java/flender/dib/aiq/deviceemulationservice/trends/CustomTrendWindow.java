@@ -0,0 +1,46 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import flender.dib.aiq.deviceemulationservice.compression.DeflateCompressor;
+
+/**
+ * Trend window not covered by {@link TrendDuration}, labeled with its span and interval like the predefined ones,
+ * e.g. "30day-1s" or "12h-5m", so that windows of the same span do not get the same file names.
+ */
+record CustomTrendWindow(long seconds, int interval) implements TrendWindow {
+
+    // Above a day of one second entries the fastest level is used, the higher ones hardly shrink noisy samples
+    private static final long LARGE_ENTRY_COUNT = 24 * 60 * 60;
+
+    @Override
+    public long getSeconds() {
+        return seconds;
+    }
+
+    @Override
+    public int getInterval() {
+        return interval;
+    }
+
+    @Override
+    public String getLabel() {
+        return format(seconds) + "-" + format(interval);
+    }
+
+    @Override
+    public DeflateCompressor getCompressor() {
+        return seconds / interval > LARGE_ENTRY_COUNT ? DeflateCompressor.FAST : DeflateCompressor.DEFAULT;
+    }
+
+    private static String format(long seconds) {
+        if (seconds % (24 * 60 * 60) == 0) {
+            return seconds / (24 * 60 * 60) + "day";
+        }
+        if (seconds % (60 * 60) == 0) {
+            return seconds / (60 * 60) + "h";
+        }
+        if (seconds % 60 == 0) {
+            return seconds / 60 + "m";
+        }
+        return seconds + "s";
+    }
+}
@@ -4,12 +4,9 @@ import com.flender.vda.AlarmDataOuterClass.AlarmData;
 import com.flender.vda.Base.Unit;
 import com.flender.vda.TrendOuterClass.AlarmDataIndexRow;
 import com.flender.vda.TrendOuterClass.Trend;
-import com.flender.vda.TrendOuterClass.TrendEntries;
 import com.google.protobuf.FloatValue;
 import com.google.protobuf.Int32Value;
 
-import java.time.Instant;
-
 import static flender.dib.aiq.deviceemulationservice.trends.TrendDuration.DURATION_7_DAYS;
 
 public class ExampleTrendGenerator extends TrendGenerator {
@@ -57,13 +54,13 @@ public class ExampleTrendGenerator extends TrendGenerator {
     }
 
     @Override
-    protected TrendEntries generateTrendEntries() {
-        long stopTS = Instant.now().getEpochSecond();
-        long[] linearTimestamps = generateLinearTimestamps(stopTS);
-        float[] trendData0 = generateLinearData(0, 100);
-        float[] trendData1 = generateSineData();
-        float[] trendData2 = generateLinearData(500, 1000);
-
-        return buildTrendEntries(linearTimestamps, 0, trendData0, trendData1, trendData2);
+    protected SignalModel createDefaultSignalModel() {
+        SignalChannel sine = SignalChannel.fluctuatingConstant(0, 0);
+        sine.setSineAmplitude(1);
+        sine.setSinePeriodSeconds(5 * 60 * 60);
+        return new SignalModel(3)
+                .set(0, SignalChannel.linear(0, 100, 7))
+                .set(1, sine)
+                .set(2, SignalChannel.linear(500, 1000, 7));
     }
 }
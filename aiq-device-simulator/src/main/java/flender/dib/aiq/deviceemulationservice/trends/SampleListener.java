@@ -0,0 +1,16 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+/**
+ * Receives the base series of a {@link TrendPyramidGenerator} sample by sample, e.g. to count the same values the
+ * trends are derived from.
+ */
+@FunctionalInterface
+public interface SampleListener {
+
+    /**
+     * @param timestamp epoch seconds of the sample
+     * @param stepSeconds seconds the sample stands for
+     * @param values one value per signal, only valid during the call
+     */
+    void onSample(long timestamp, int stepSeconds, float[] values);
+}
@@ -0,0 +1,33 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Scalar implementation of the signal kernels, used when the vectorized kernels are disabled or unavailable.
+ */
+final class ScalarSignalKernels {
+
+    private ScalarSignalKernels() {
+    }
+
+    static void scaleByExp(float[] data, int offset, int count, float firstExponent, float exponentPerEntry) {
+        for (int i = 0; i < count; i++) {
+            data[offset + i] *= (float) Math.exp(Math.max(0f, firstExponent + i * exponentPerEntry));
+        }
+    }
+
+    static void addNoiseProduct(float[] data, int offset, int count, float range) {
+        Random random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+            data[offset + i] += (float) (random.nextGaussian() * random.nextGaussian() * 2 - 1) * range;
+        }
+    }
+
+    static void addSine(float[] data, int offset, int count, float amplitude, double firstPhase,
+                        double phasePerEntry) {
+        for (int i = 0; i < count; i++) {
+            data[offset + i] += amplitude * (float) Math.sin(firstPhase + i * phasePerEntry);
+        }
+    }
+}
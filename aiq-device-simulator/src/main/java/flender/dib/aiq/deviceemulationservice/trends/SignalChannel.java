@@ -0,0 +1,62 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import lombok.Data;
+
+/**
+ * Declarative description of one simulated signal, bindable from configuration.
+ * The value of a channel is the sum of its base value and all enabled components; a component is disabled by
+ * leaving its amplitude at zero. Damage growth multiplies the base value and keeps the signal non-negative.
+ */
+@Data
+public class SignalChannel {
+
+    /** Base value, inherits the value of the channel it replaces when not set */
+    private Float base;
+    /** Absolute fluctuation range, {@code relativeFluctuation * base} when not set */
+    private Float fluctuation;
+    private float relativeFluctuation = 0.05f;
+    /** Range of a slow, mean reverting random walk around the base value */
+    private float randomWalk;
+    private float sineAmplitude;
+    private long sinePeriodSeconds = 24 * 60 * 60;
+    /** Offset growing linearly from zero to {@code ramp} over the last {@link #rampDays} days of the trend */
+    private float ramp;
+    private int rampDays;
+    /** Offset added during the last {@link #stepDays} days of the trend */
+    private float step;
+    private int stepDays;
+    /** Exponent reached at the end of the trend by the exponential damage growth */
+    private float damageGrowth;
+    private int damageStartDays = 90;
+
+    public static SignalChannel fluctuatingConstant(float base, float fluctuation) {
+        SignalChannel channel = new SignalChannel();
+        channel.setBase(base);
+        channel.setFluctuation(fluctuation);
+        return channel;
+    }
+
+    public static SignalChannel longTermFluctuation(float base) {
+        SignalChannel channel = fluctuatingConstant(base, 0);
+        channel.setRandomWalk(0.5f);
+        return channel;
+    }
+
+    public static SignalChannel linear(float start, float end, int days) {
+        SignalChannel channel = fluctuatingConstant(start, 0);
+        channel.setRamp(end - start);
+        channel.setRampDays(days);
+        return channel;
+    }
+
+    public static SignalChannel damageIndicator(float base, float fluctuation, float growthFactor, int damageStartDays) {
+        SignalChannel channel = fluctuatingConstant(base, fluctuation);
+        channel.setDamageGrowth(growthFactor);
+        channel.setDamageStartDays(damageStartDays);
+        return channel;
+    }
+
+    float resolveFluctuation() {
+        return fluctuation != null ? fluctuation : relativeFluctuation * base;
+    }
+}
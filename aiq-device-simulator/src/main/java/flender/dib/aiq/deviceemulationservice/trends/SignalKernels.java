@@ -0,0 +1,58 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+/**
+ * Entry point for the array based signal kernels used by {@link SignalPlan#sampleBlock}.
+ * Every kernel works on {@code count} consecutive entries of one signal, starting at {@code offset}.
+ * The vectorized kernels are used if the system property {@value #VECTORIZED_PROPERTY} is {@code true} and the
+ * {@code jdk.incubator.vector} module is present, i.e. the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}. Otherwise the scalar kernels are used and the vector classes are never
+ * loaded.
+ */
+public final class SignalKernels {
+
+    public static final String VECTORIZED_PROPERTY = "device-emulation.trends.vectorized";
+
+    private static final boolean VECTORIZED = Boolean.getBoolean(VECTORIZED_PROPERTY)
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private SignalKernels() {
+    }
+
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Multiplies entry i by {@code exp(max(0, firstExponent + i * exponentPerEntry))}.
+     */
+    public static void scaleByExp(float[] data, int offset, int count, float firstExponent, float exponentPerEntry) {
+        if (VECTORIZED) {
+            VectorSignalKernels.scaleByExp(data, offset, count, firstExponent, exponentPerEntry);
+        } else {
+            ScalarSignalKernels.scaleByExp(data, offset, count, firstExponent, exponentPerEntry);
+        }
+    }
+
+    /**
+     * Adds {@code (g1 * g2 * 2 - 1) * range} to every entry, with g1 and g2 standard normal.
+     */
+    public static void addNoiseProduct(float[] data, int offset, int count, float range) {
+        if (VECTORIZED) {
+            VectorSignalKernels.addNoiseProduct(data, offset, count, range);
+        } else {
+            ScalarSignalKernels.addNoiseProduct(data, offset, count, range);
+        }
+    }
+
+    /**
+     * Adds {@code amplitude * sin(firstPhase + i * phasePerEntry)} to entry i.
+     */
+    public static void addSine(float[] data, int offset, int count, float amplitude, double firstPhase,
+                               double phasePerEntry) {
+        if (VECTORIZED) {
+            VectorSignalKernels.addSine(data, offset, count, amplitude, firstPhase, phasePerEntry);
+        } else {
+            ScalarSignalKernels.addSine(data, offset, count, amplitude, firstPhase, phasePerEntry);
+        }
+    }
+}
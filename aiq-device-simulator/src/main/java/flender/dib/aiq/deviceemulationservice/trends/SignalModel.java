@@ -0,0 +1,82 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import java.util.Map;
+
+/**
+ * The channels of one trend, indexed like the signals of the trend.
+ * A model is only a description; {@link #compile(long)} turns it into a {@link SignalPlan} that is evaluated per
+ * sample without looking at the model again.
+ */
+public class SignalModel {
+
+    private final SignalChannel[] channels;
+
+    public SignalModel(int channelCount) {
+        channels = new SignalChannel[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            channels[i] = SignalChannel.fluctuatingConstant(0, 0);
+        }
+    }
+
+    public SignalModel set(int index, SignalChannel channel) {
+        if (channel.getBase() == null) {
+            throw new IllegalArgumentException("Signal model channel " + index + " has no base value");
+        }
+        channels[index] = channel;
+        return this;
+    }
+
+    public SignalChannel get(int index) {
+        return channels[index];
+    }
+
+    public int getChannelCount() {
+        return channels.length;
+    }
+
+    /**
+     * Returns a copy of this model with the given channels replaced. A replacing channel without a base value
+     * inherits the base value of the channel it replaces.
+     */
+    public SignalModel override(Map<Integer, SignalChannel> overrides) {
+        SignalModel model = new SignalModel(channels.length);
+        System.arraycopy(channels, 0, model.channels, 0, channels.length);
+        overrides.forEach((index, channel) -> {
+            if (index < 0 || index >= channels.length) {
+                throw new IllegalArgumentException("Signal model has no channel " + index);
+            }
+            if (channel.getBase() == null) {
+                if (channels[index].getBase() == null) {
+                    throw new IllegalArgumentException("Signal model channel " + index + " has no base value to inherit");
+                }
+                SignalChannel inherited = new SignalChannel();
+                copy(channel, inherited);
+                inherited.setBase(channels[index].getBase());
+                channel = inherited;
+            }
+            model.channels[index] = channel;
+        });
+        return model;
+    }
+
+    /**
+     * @param stopTimestamp end of the trend in epoch seconds, reference for ramps, steps and damage growth
+     */
+    public SignalPlan compile(long stopTimestamp) {
+        return new SignalPlan(channels, stopTimestamp);
+    }
+
+    private static void copy(SignalChannel source, SignalChannel target) {
+        target.setFluctuation(source.getFluctuation());
+        target.setRelativeFluctuation(source.getRelativeFluctuation());
+        target.setRandomWalk(source.getRandomWalk());
+        target.setSineAmplitude(source.getSineAmplitude());
+        target.setSinePeriodSeconds(source.getSinePeriodSeconds());
+        target.setRamp(source.getRamp());
+        target.setRampDays(source.getRampDays());
+        target.setStep(source.getStep());
+        target.setStepDays(source.getStepDays());
+        target.setDamageGrowth(source.getDamageGrowth());
+        target.setDamageStartDays(source.getDamageStartDays());
+    }
+}
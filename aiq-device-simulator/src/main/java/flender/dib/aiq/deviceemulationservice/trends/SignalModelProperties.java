@@ -0,0 +1,21 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per profile replacements of the built-in channels of the trend generators, keyed by the index of the signal
+ * within the trend (0 for kpi0 and for kpi21 respectively).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-emulation.signal-model")
+public class SignalModelProperties {
+
+    private Map<Integer, SignalChannel> kpis0to20 = new HashMap<>();
+    private Map<Integer, SignalChannel> kpis21to41 = new HashMap<>();
+}
@@ -0,0 +1,236 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compiled form of a {@link SignalModel}.
+ * Every component is stored as a compact list of the channels using it plus parallel primitive parameter arrays,
+ * so a sample is a handful of tight loops over the channels that actually need the component, without
+ * interpreting channel descriptions or boxing values.
+ */
+public class SignalPlan implements SignalSampler {
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final float RANDOM_WALK_CYCLE_SECONDS = 22000.0f;
+
+    private final float[] baseValues;
+
+    private final int[] fluctuatingChannels;
+    private final float[] fluctuationRanges;
+
+    private final int[] walkingChannels;
+    private final float[] walkRanges;
+    private final float[] walkOffsets;
+
+    private final int[] sineChannels;
+    private final float[] sineAmplitudes;
+    private final double[] sineRadiansPerSecond;
+
+    private final int[] rampedChannels;
+    private final float[] rampPerSecond;
+    private final long[] rampStartTimestamps;
+    private final long[] rampStopTimestamps;
+
+    private final int[] steppedChannels;
+    private final float[] stepHeights;
+    private final long[] stepTimestamps;
+
+    private final int[] damagedChannels;
+    private final float[] damageGrowthPerSecond;
+    private final long[] damageStartTimestamps;
+
+    private final Random random = new Random();
+
+    SignalPlan(SignalChannel[] channels, long stopTimestamp) {
+        int channelCount = channels.length;
+        baseValues = new float[channelCount];
+        int fluctuatingCount = 0, walkingCount = 0, sineCount = 0, rampedCount = 0, steppedCount = 0, damagedCount = 0;
+        for (int i = 0; i < channelCount; i++) {
+            SignalChannel channel = channels[i];
+            baseValues[i] = channel.getBase();
+            if (channel.resolveFluctuation() != 0) fluctuatingCount++;
+            if (channel.getRandomWalk() != 0) walkingCount++;
+            if (channel.getSineAmplitude() != 0) sineCount++;
+            if (channel.getRamp() != 0) rampedCount++;
+            if (channel.getStep() != 0) steppedCount++;
+            if (channel.getDamageGrowth() != 0) damagedCount++;
+        }
+
+        fluctuatingChannels = new int[fluctuatingCount];
+        fluctuationRanges = new float[fluctuatingCount];
+        walkingChannels = new int[walkingCount];
+        walkRanges = new float[walkingCount];
+        walkOffsets = new float[walkingCount];
+        sineChannels = new int[sineCount];
+        sineAmplitudes = new float[sineCount];
+        sineRadiansPerSecond = new double[sineCount];
+        rampedChannels = new int[rampedCount];
+        rampPerSecond = new float[rampedCount];
+        rampStartTimestamps = new long[rampedCount];
+        rampStopTimestamps = new long[rampedCount];
+        steppedChannels = new int[steppedCount];
+        stepHeights = new float[steppedCount];
+        stepTimestamps = new long[steppedCount];
+        damagedChannels = new int[damagedCount];
+        damageGrowthPerSecond = new float[damagedCount];
+        damageStartTimestamps = new long[damagedCount];
+
+        fluctuatingCount = walkingCount = sineCount = rampedCount = steppedCount = damagedCount = 0;
+        for (int i = 0; i < channelCount; i++) {
+            SignalChannel channel = channels[i];
+            if (channel.resolveFluctuation() != 0) {
+                fluctuatingChannels[fluctuatingCount] = i;
+                fluctuationRanges[fluctuatingCount++] = channel.resolveFluctuation();
+            }
+            if (channel.getRandomWalk() != 0) {
+                walkingChannels[walkingCount] = i;
+                walkRanges[walkingCount++] = channel.getRandomWalk();
+            }
+            if (channel.getSineAmplitude() != 0) {
+                sineChannels[sineCount] = i;
+                sineAmplitudes[sineCount] = channel.getSineAmplitude();
+                sineRadiansPerSecond[sineCount++] = 2 * Math.PI / channel.getSinePeriodSeconds();
+            }
+            if (channel.getRamp() != 0) {
+                long rampSpan = Math.max(1, channel.getRampDays() * SECONDS_PER_DAY);
+                rampedChannels[rampedCount] = i;
+                rampPerSecond[rampedCount] = channel.getRamp() / rampSpan;
+                rampStartTimestamps[rampedCount] = stopTimestamp - rampSpan;
+                rampStopTimestamps[rampedCount++] = stopTimestamp;
+            }
+            if (channel.getStep() != 0) {
+                steppedChannels[steppedCount] = i;
+                stepHeights[steppedCount] = channel.getStep();
+                stepTimestamps[steppedCount++] = stopTimestamp - channel.getStepDays() * SECONDS_PER_DAY;
+            }
+            if (channel.getDamageGrowth() != 0) {
+                long damageSpan = Math.max(1, channel.getDamageStartDays() * SECONDS_PER_DAY);
+                damagedChannels[damagedCount] = i;
+                damageGrowthPerSecond[damagedCount] = channel.getDamageGrowth() / damageSpan;
+                damageStartTimestamps[damagedCount++] = stopTimestamp - damageSpan;
+            }
+        }
+    }
+
+    @Override
+    public int getSignalCount() {
+        return baseValues.length;
+    }
+
+    @Override
+    public void sample(long timestamp, int stepSeconds, float[] values) {
+        System.arraycopy(baseValues, 0, values, 0, baseValues.length);
+
+        for (int i = 0; i < damagedChannels.length; i++) {
+            int channel = damagedChannels[i];
+            long damageSeconds = timestamp - damageStartTimestamps[i];
+            if (damageSeconds > 0) {
+                values[channel] *= (float) Math.exp(damageSeconds * damageGrowthPerSecond[i]);
+            }
+        }
+
+        for (int i = 0; i < fluctuatingChannels.length; i++) {
+            values[fluctuatingChannels[i]] += (float) (random.nextGaussian() * random.nextGaussian() * 2 - 1) * fluctuationRanges[i];
+        }
+
+        for (int i = 0; i < walkingChannels.length; i++) {
+            values[walkingChannels[i]] += walk(i, stepSeconds);
+        }
+
+        for (int i = 0; i < sineChannels.length; i++) {
+            values[sineChannels[i]] += sineAmplitudes[i] * (float) Math.sin(timestamp * sineRadiansPerSecond[i]);
+        }
+
+        for (int i = 0; i < rampedChannels.length; i++) {
+            long rampSeconds = Math.min(timestamp, rampStopTimestamps[i]) - rampStartTimestamps[i];
+            if (rampSeconds > 0) {
+                values[rampedChannels[i]] += rampSeconds * rampPerSecond[i];
+            }
+        }
+
+        for (int i = 0; i < steppedChannels.length; i++) {
+            if (timestamp >= stepTimestamps[i]) {
+                values[steppedChannels[i]] += stepHeights[i];
+            }
+        }
+
+        for (int channel : damagedChannels) {
+            values[channel] = Math.max(values[channel], 0);
+        }
+    }
+
+    /**
+     * Evaluates one component at a time over the whole block, so the stateless components run as
+     * {@link SignalKernels} over the series of a channel. Only the random walk is advanced sample by sample.
+     */
+    @Override
+    public void sampleBlock(long firstTimestamp, int stepSeconds, int count, float[][] values, int offset) {
+        int end = offset + count;
+        for (int channel = 0; channel < baseValues.length; channel++) {
+            Arrays.fill(values[channel], offset, end, baseValues[channel]);
+        }
+
+        for (int i = 0; i < damagedChannels.length; i++) {
+            float growth = damageGrowthPerSecond[i];
+            SignalKernels.scaleByExp(values[damagedChannels[i]], offset, count,
+                    (float) ((firstTimestamp - damageStartTimestamps[i]) * (double) growth), stepSeconds * growth);
+        }
+
+        for (int i = 0; i < fluctuatingChannels.length; i++) {
+            SignalKernels.addNoiseProduct(values[fluctuatingChannels[i]], offset, count, fluctuationRanges[i]);
+        }
+
+        for (int i = 0; i < walkingChannels.length; i++) {
+            float[] data = values[walkingChannels[i]];
+            for (int entry = offset; entry < end; entry++) {
+                data[entry] += walk(i, stepSeconds);
+            }
+        }
+
+        for (int i = 0; i < sineChannels.length; i++) {
+            double radiansPerSecond = sineRadiansPerSecond[i];
+            SignalKernels.addSine(values[sineChannels[i]], offset, count, sineAmplitudes[i],
+                    firstTimestamp * radiansPerSecond, stepSeconds * radiansPerSecond);
+        }
+
+        for (int i = 0; i < rampedChannels.length; i++) {
+            float[] data = values[rampedChannels[i]];
+            long timestamp = firstTimestamp;
+            for (int entry = offset; entry < end; entry++, timestamp += stepSeconds) {
+                long rampSeconds = Math.min(timestamp, rampStopTimestamps[i]) - rampStartTimestamps[i];
+                if (rampSeconds > 0) {
+                    data[entry] += rampSeconds * rampPerSecond[i];
+                }
+            }
+        }
+
+        for (int i = 0; i < steppedChannels.length; i++) {
+            // First entry at or after the step
+            long secondsToStep = stepTimestamps[i] - firstTimestamp;
+            long first = secondsToStep <= 0 ? 0 : Math.min(count, (secondsToStep + stepSeconds - 1) / stepSeconds);
+            float[] data = values[steppedChannels[i]];
+            for (int entry = offset + (int) first; entry < end; entry++) {
+                data[entry] += stepHeights[i];
+            }
+        }
+
+        for (int channel : damagedChannels) {
+            float[] data = values[channel];
+            for (int entry = offset; entry < end; entry++) {
+                data[entry] = Math.max(data[entry], 0);
+            }
+        }
+    }
+
+    // Random walk with a small tendency to return to the base value. The variance of a step and the return are both
+    // proportional to the step length, so the walk has the same amplitude at every sample rate.
+    private float walk(int i, int stepSeconds) {
+        float range = walkRanges[i];
+        float offset = walkOffsets[i]
+                + (float) (random.nextGaussian() * range * 0.1 * Math.sqrt(stepSeconds / RANDOM_WALK_CYCLE_SECONDS));
+        offset -= offset * Math.min(1f, 0.01f * stepSeconds / RANDOM_WALK_CYCLE_SECONDS);
+        walkOffsets[i] = offset;
+        return offset * 0.5f + (float) (random.nextGaussian() * (range * 0.05));
+    }
+}
@@ -0,0 +1,35 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+/**
+ * Produces the values of all signals of a trend for one point in time.
+ * Unlike the array based helpers in {@link TrendGenerator}, a sampler is advanced step by step, so the same
+ * series can be sampled with a varying resolution.
+ */
+public interface SignalSampler {
+
+    int getSignalCount();
+
+    /**
+     * Advances the signals to the given timestamp and writes one value per signal into {@code values}.
+     * @param timestamp epoch seconds of the sample, strictly increasing between calls
+     * @param stepSeconds seconds elapsed since the previous sample
+     * @param values target array with at least {@link #getSignalCount()} elements
+     */
+    void sample(long timestamp, int stepSeconds, float[] values);
+
+    /**
+     * Advances the signals over {@code count} samples {@code stepSeconds} apart, the first one at
+     * {@code firstTimestamp}, and writes sample i of signal s into {@code values[s][offset + i]}.
+     * Equivalent to {@code count} calls of {@link #sample}; implementations may evaluate whole series at once.
+     * @param values target arrays, one per signal
+     */
+    default void sampleBlock(long firstTimestamp, int stepSeconds, int count, float[][] values, int offset) {
+        float[] sample = new float[getSignalCount()];
+        for (int i = 0; i < count; i++) {
+            sample(firstTimestamp + (long) i * stepSeconds, stepSeconds, sample);
+            for (int signal = 0; signal < sample.length; signal++) {
+                values[signal][offset + i] = sample[signal];
+            }
+        }
+    }
+}
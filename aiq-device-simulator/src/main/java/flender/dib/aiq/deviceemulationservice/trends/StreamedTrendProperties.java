@@ -0,0 +1,37 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Additional trends with any span and interval, e.g. long windows at one second resolution. They are generated by
+ * {@link TrendGenerator#generateStreamedTrend()} in constant memory, independent of the entry count, and uploaded
+ * from disk.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-emulation.trends")
+public class StreamedTrendProperties {
+
+    public static final String KPIS_0_TO_20 = "kpis0to20";
+    public static final String KPIS_21_TO_41 = "kpis21to41";
+
+    private List<Window> streamed = new ArrayList<>();
+
+    @Data
+    public static class Window {
+        /** Signals of the trend, {@value #KPIS_0_TO_20} or {@value #KPIS_21_TO_41} */
+        private String trend = KPIS_0_TO_20;
+        private long seconds;
+        private int interval;
+        private String jobUuid;
+
+        public TrendWindow toTrendWindow() {
+            return TrendWindow.of(seconds, interval);
+        }
+    }
+}
@@ -1,32 +1,49 @@
 package flender.dib.aiq.deviceemulationservice.trends;
 
-public enum TrendDuration {
+import flender.dib.aiq.deviceemulationservice.compression.DeflateCompressor;
 
-    DURATION_60_MINUTES(60 * 60, 1, "60m"),                                     // one entry per second
-    DURATION_7_DAYS(7 * 24 * 60 * 60, 5 * 60,  "7day"),                         // one entry per 5 minutes
-    DURATION_90_DAYS(90 * 24 * 60 * 60, 60 * 60, "90day"),                      // one entry per hour
-    DURATION_3_YEARS(3L * 365 * 24 * 60 * 60, 60 * 60 * 24, "3y"),              // one entry per day
-    DURATION_20_YEARS(20L * 26*14 * 24 * 60 * 60, 60 * 60 * 24 * 14, "20y");    // one entry per 14 days
+/**
+ * The trend windows of the devices. The 60 minute trend has the most entries and is generated most often, it is
+ * compressed with the fastest level; the few entries of the long trends are worth the best level.
+ * {@code TrendCompressionBenchmark} charts ratio against time per duration to revisit these levels.
+ */
+public enum TrendDuration implements TrendWindow {
+
+    DURATION_60_MINUTES(60 * 60, 1, "60m", DeflateCompressor.FAST),                            // one entry per second
+    DURATION_7_DAYS(7 * 24 * 60 * 60, 5 * 60,  "7day", DeflateCompressor.DEFAULT),             // one entry per 5 minutes
+    DURATION_90_DAYS(90 * 24 * 60 * 60, 60 * 60, "90day", DeflateCompressor.DEFAULT),          // one entry per hour
+    DURATION_3_YEARS(3L * 365 * 24 * 60 * 60, 60 * 60 * 24, "3y", DeflateCompressor.BEST),     // one entry per day
+    DURATION_20_YEARS(20L * 26*14 * 24 * 60 * 60, 60 * 60 * 24 * 14, "20y", DeflateCompressor.BEST);  // one entry per 14 days
 
     private final long seconds;
     private final int interval;
     private final String label;
+    private final DeflateCompressor compressor;
 
-    TrendDuration(long seconds, int interval, String label) {
+    TrendDuration(long seconds, int interval, String label, DeflateCompressor compressor) {
         this.seconds = seconds;
         this.interval = interval;
         this.label = label;
+        this.compressor = compressor;
     }
 
+    @Override
     public long getSeconds() {
         return seconds;
     }
 
+    @Override
     public String getLabel() {
         return label;
     }
 
+    @Override
     public int getInterval() {
         return interval;
     }
+
+    @Override
+    public DeflateCompressor getCompressor() {
+        return compressor;
+    }
 }
@@ -5,42 +5,57 @@ import com.flender.vda.TrendOuterClass.Trend;
 import com.flender.vda.TrendOuterClass.TrendEntries;
 import com.flender.vda.TrendOuterClass.TrendEntry;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Int32Value;
 import com.google.protobuf.Timestamp;
+import flender.dib.aiq.deviceemulationservice.compression.DeflateCompressor;
+import flender.dib.aiq.deviceemulationservice.storage.ArtifactWriter;
 import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
 import flender.dib.aiq.deviceemulationservice.storage.TrendFile;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
-import java.util.Random;
 import java.util.UUID;
 import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 public abstract class TrendGenerator {
 
     protected final int entryCount;
-    protected final TrendDuration duration;
+    protected final TrendWindow duration;
     protected final String deviceId;
     protected final String jobUUID;
     protected final String trendId;
     public final String TREND_PATH = "TrendOutputs/";
-    private static final Random random = new Random();
+    private DeflateCompressor compressor;
+    private ArtifactWriter artifactWriter = ArtifactWriter.FILES;
+    private SignalModel signalModel;
 
-    public TrendGenerator(TrendDuration duration, String deviceId, String jobUUID, String trendId) {
+    private static final int STREAM_CHUNK_ENTRIES = 4096;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    public TrendGenerator(TrendWindow duration, String deviceId, String jobUUID, String trendId) {
         this.duration = duration;
         this.deviceId = deviceId;
         this.jobUUID = jobUUID;
         this.trendId = trendId;
-        entryCount = 1 + (int) duration.getSeconds() /duration.getInterval();
+        this.compressor = duration.getCompressor();
+        // Only used by the in-memory paths, generateStreamedTrend() is not limited to int entries
+        entryCount = (int) Math.min(Integer.MAX_VALUE, 1 + duration.getSeconds() / duration.getInterval());
     }
 
     private String generateFileName() {
@@ -59,28 +74,104 @@ public abstract class TrendGenerator {
                 timestamp);
     }
 
+    /**
+     * Sets the compressor used for the trend entries instead of the one of the trend window.
+     */
+    public TrendGenerator setCompressor(DeflateCompressor compressor) {
+        this.compressor = compressor;
+        return this;
+    }
+
+    public TrendGenerator setArtifactWriter(ArtifactWriter artifactWriter) {
+        this.artifactWriter = artifactWriter;
+        return this;
+    }
+
     public ProtobufFile generateUncompressedTrend() throws IOException {
-        Trend trend = buildTrend(false);
-        return writeToFile(generateFileName(), trend);
+        Trend trend = buildTrend(generateTrendEntries(), false);
+        return writeToFile(generateFileName(), trend, 0);
     }
 
     public ProtobufFile generateCompressedTrend() throws IOException {
-        Trend trend = buildTrend(true);
-        return writeToFile(generateFileName(), trend);
+        TrendEntries trendEntries = generateTrendEntries();
+        Trend trend = buildTrend(trendEntries, true);
+        return writeToFile(generateFileName(), trend, bytesSaved(trendEntries, trend));
     }
 
-    private Trend buildTrend(boolean compress) {
-        Trend.Builder trendBuilder = Trend.newBuilder()
-                .setDeviceID(deviceId)
-                .setJobUUID(convertUUIDToByteString(UUID.fromString(jobUUID)))
-                .setMeasurementUUID(convertUUIDToByteString(UUID.randomUUID()));
+    /**
+     * Generates a compressed trend from signal data produced elsewhere, e.g. by a {@link TrendPyramidGenerator}.
+     * @param timestamps one timestamp per entry
+     * @param dataArrays one array per signal, each with one value per entry
+     */
+    public ProtobufFile generateCompressedTrend(long[] timestamps, float[][] dataArrays) throws IOException {
+        TrendEntries trendEntries = buildTrendEntries(timestamps, 0, dataArrays);
+        Trend trend = buildTrend(trendEntries, true);
+        return writeToFile(generateFileName(), trend, bytesSaved(trendEntries, trend));
+    }
 
-        addUnits(trendBuilder);
-        addAlarms(trendBuilder);
-        TrendEntries trendEntries = generateTrendEntries();
+    /**
+     * Generates a compressed trend of the signal model in chunks of {@value #STREAM_CHUNK_ENTRIES} entries.
+     * Each chunk is sampled as one block, then encoded and compressed into a spool file right away, so memory use
+     * does not depend on the number of entries and long high-resolution windows can be generated in a small heap.
+     * For the same reason the trend file is always written to disk, also when the artifact writer keeps artifacts
+     * in memory.
+     */
+    public ProtobufFile generateStreamedTrend() throws IOException {
+        long now = Instant.now().getEpochSecond();
+        long stopTime = now - now % duration.getInterval();
+        long startTime = stopTime - duration.getSeconds();
+        long streamedEntryCount = 1 + duration.getSeconds() / duration.getInterval();
+        SignalSampler sampler = createSignalSampler(now);
+        float[][] chunkValues = new float[sampler.getSignalCount()][STREAM_CHUNK_ENTRIES];
+
+        Path spoolFile = Files.createTempFile("trend", ".part");
+        long uncompressedLength = 0;
+        try {
+            Deflater deflater = compressor.acquire();
+            try (OutputStream out = new DeflaterOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(spoolFile)), deflater, STREAM_BUFFER_SIZE)) {
+                TrendEntries.Builder chunkBuilder = TrendEntries.newBuilder();
+                for (long first = 0; first < streamedEntryCount; first += STREAM_CHUNK_ENTRIES) {
+                    int count = (int) Math.min(STREAM_CHUNK_ENTRIES, streamedEntryCount - first);
+                    long firstTimestamp = startTime + first * duration.getInterval();
+                    sampler.sampleBlock(firstTimestamp, duration.getInterval(), count, chunkValues, 0);
+                    for (int i = 0; i < count; i++) {
+                        long timestamp = firstTimestamp + (long) i * duration.getInterval();
+                        TrendEntry.Builder entryBuilder = TrendEntry.newBuilder()
+                                .setTimeStamp(Timestamp.newBuilder().setSeconds(timestamp).setNanos(0))
+                                .setAlarmDataIndexRow(Int32Value.of(0));
+                        for (float[] signalValues : chunkValues) {
+                            entryBuilder.addValues(signalValues[i]);
+                        }
+                        chunkBuilder.addEntries(entryBuilder.build());
+                    }
+
+                    // Serialized messages concatenate to their merge, so the chunks add up to one TrendEntries
+                    TrendEntries chunk = chunkBuilder.build();
+                    chunk.writeTo(out);
+                    uncompressedLength += chunk.getSerializedSize();
+                    chunkBuilder.clear();
+                }
+            } finally {
+                compressor.release(deflater);
+            }
+
+            Trend header = buildTrendHeader().setCompression(Compression.ZLIB).build();
+            return writeToFile(generateFileName(), header, spoolFile, uncompressedLength);
+        } finally {
+            Files.deleteIfExists(spoolFile);
+        }
+    }
+
+    private static long bytesSaved(TrendEntries trendEntries, Trend trend) {
+        return trendEntries.getSerializedSize() - trend.getTrendEntriesBytes().size();
+    }
+
+    private Trend buildTrend(TrendEntries trendEntries, boolean compress) {
+        Trend.Builder trendBuilder = buildTrendHeader();
 
         if (compress) {
-            byte[] compressedData = compressData(trendEntries.toByteArray());
+            byte[] compressedData = compressor.compress(trendEntries.toByteArray());
             trendBuilder.setTrendEntriesBytes(ByteString.copyFrom(compressedData))
                     .setCompression(Compression.ZLIB);
         } else {
@@ -91,6 +182,17 @@ public abstract class TrendGenerator {
         return trendBuilder.build();
     }
 
+    private Trend.Builder buildTrendHeader() {
+        Trend.Builder trendBuilder = Trend.newBuilder()
+                .setDeviceID(deviceId)
+                .setJobUUID(convertUUIDToByteString(UUID.fromString(jobUUID)))
+                .setMeasurementUUID(convertUUIDToByteString(UUID.randomUUID()));
+
+        addUnits(trendBuilder);
+        addAlarms(trendBuilder);
+        return trendBuilder;
+    }
+
     private ByteString convertUUIDToByteString(UUID uuid) {
         ByteBuffer buffer = ByteBuffer.allocate(16);
         buffer.putLong(uuid.getMostSignificantBits());
@@ -102,91 +204,64 @@ public abstract class TrendGenerator {
 
     protected abstract void addAlarms(Trend.Builder trendBuilder);
 
-    protected abstract TrendEntries generateTrendEntries();
-
-    protected long[] generateLinearTimestamps(long stopTime) {
-        stopTime = stopTime - stopTime % duration.getInterval();       // Abrunden, um Einträge in DB zu überschreiben
-        long startTime = stopTime - duration.getSeconds();
-        long[] timestamps = new long[entryCount];
-        for (int i = 0; i < entryCount; i++) {
-            timestamps[i] = startTime + (i * duration.getSeconds() / (entryCount - 1));
-        }
-        return timestamps;
-    }
-
-    protected float[] generateLinearData(float start, float end) {
-        float[] data = new float[entryCount];
-        for (int i = 0; i < entryCount; i++) {
-            data[i] = start + (end - start) * i / (entryCount - 1);
+    /**
+     * Samples the signal model once per entry, the last entry at the current time.
+     */
+    protected TrendEntries generateTrendEntries() {
+        long now = Instant.now().getEpochSecond();
+        long[] timestamps = generateLinearTimestamps(now);
+        SignalSampler sampler = createSignalSampler(now);
+        float[] values = new float[sampler.getSignalCount()];
+        float[][] dataArrays = new float[values.length][entryCount];
+        if (duration.getSeconds() % duration.getInterval() == 0) {
+            // The timestamps are exactly one interval apart
+            sampler.sampleBlock(timestamps[0], duration.getInterval(), entryCount, dataArrays, 0);
+        } else {
+            for (int i = 0; i < entryCount; i++) {
+                sampler.sample(timestamps[i], duration.getInterval(), values);
+                for (int signal = 0; signal < values.length; signal++) {
+                    dataArrays[signal][i] = values[signal];
+                }
+            }
         }
-        return data;
+        return buildTrendEntries(timestamps, 0, dataArrays);
     }
 
-    protected float[] generateFluctuatingConstantData(float baseValue, float fluctuationRange) {
-        float[] data = new float[entryCount];
-        for (int i = 0; i < entryCount; i++) {
-            float fluctuation = (float) (random.nextGaussian() * random.nextGaussian() * 2 - 1) * fluctuationRange;
-            data[i] = baseValue + fluctuation;
-        }
-        return data;
+    /**
+     * Creates a sampler producing the signals of {@link #getSignalModel()} step by step.
+     * @param stopTimestamp end of the sampled period in epoch seconds
+     */
+    protected SignalSampler createSignalSampler(long stopTimestamp) {
+        return getSignalModel().compile(stopTimestamp);
     }
 
-    protected float[] generateLongTermFluctuationData(float baseValue) {
-        float[] data = new float[entryCount];
-        float fluctuationRange = 0.5f;
-        float cycleLength = 22000.0f / ((float) duration.getSeconds() / entryCount); // Convert to data points
-
-        float trendFactor = baseValue;
-        float trendChangeRate = fluctuationRange / cycleLength; // Adjust trend changes based on cycle length
+    /**
+     * Built-in signals of this trend, used unless a model is set with {@link #setSignalModel(SignalModel)}.
+     */
+    protected abstract SignalModel createDefaultSignalModel();
 
-        for (int i = 0; i < entryCount; i++) {
-            // Random walk factor with dampened changes based on cycle length
-            trendFactor += (float) (random.nextGaussian() * trendChangeRate);
-
-            // Add a tendency for trendFactor to return to baseValue over time
-            trendFactor += (baseValue - trendFactor) * 0.01f; // Small correction factor
-
-            // Additional noise component for unpredictability
-            float noise = (float) (random.nextGaussian() * (fluctuationRange * 0.05)); // Reduce excessive noise
-
-            // Ensure values stay within a reasonable range around baseValue
-            data[i] = baseValue + (trendFactor - baseValue) * 0.5f + noise;
+    public SignalModel getSignalModel() {
+        if (signalModel == null) {
+            signalModel = createDefaultSignalModel();
         }
-        return data;
+        return signalModel;
     }
 
-    protected float[] generateDamageIndicatorData(float baseValue, float fluctuationRange, float growthFactor, int damageStartDays) {
-        float[] data = new float[entryCount];
-        long damageStartTime = duration.getSeconds() - ((long) damageStartDays * 24 * 60 * 60); // Time when damage starts (in seconds)
-        long timePerEntry = duration.getSeconds() / entryCount;
-
-        for (int i = 0; i < entryCount; i++) {
-            long currentTime = i * timePerEntry;
-            float fluctuation = 10* (float) (random.nextGaussian() * (fluctuationRange / 3)); // Normal fluctuation
-
-            if (currentTime >= damageStartTime) {
-                // Exponential growth once damage starts
-                float damageMultiplier = (float) Math.exp((currentTime - damageStartTime) / (float) (duration.getSeconds() - damageStartTime) * growthFactor);
-                data[i] = baseValue * damageMultiplier + fluctuation;
-            } else {
-                data[i] = baseValue + fluctuation;
-            }
-            if (data[i] < 0) {
-                data[i] = 0;
-            }
-        }
-        return data;
+    public TrendGenerator setSignalModel(SignalModel signalModel) {
+        this.signalModel = signalModel;
+        return this;
     }
 
-    protected float[] generateSineData() {
-        float[] data = new float[entryCount];
+    protected long[] generateLinearTimestamps(long stopTime) {
+        stopTime = stopTime - stopTime % duration.getInterval();       // Abrunden, um Einträge in DB zu überschreiben
+        long startTime = stopTime - duration.getSeconds();
+        long[] timestamps = new long[entryCount];
         for (int i = 0; i < entryCount; i++) {
-            data[i] = (float) Math.sin(i * 0.1);
+            timestamps[i] = startTime + (i * duration.getSeconds() / (entryCount - 1));
         }
-        return data;
+        return timestamps;
     }
 
-
     protected TrendEntries buildTrendEntries(long[] timestamps, int alarmDataIndexRow, float[]... dataArrays) {
         if (Arrays.stream(dataArrays).anyMatch(arr -> arr.length != entryCount)) {
             throw new IllegalArgumentException("All data arrays must have the same length as entryCount.");
@@ -211,32 +286,51 @@ public abstract class TrendGenerator {
     }
 
 
-    private ProtobufFile writeToFile(String filename, Trend trend) throws IOException {
+    private ProtobufFile writeToFile(String filename, Trend trend, long bytesSaved) throws IOException {
         byte[] dataBytes = trend.toByteArray();
         byte[] crcBytes = calculateCRC32(dataBytes);
 
-        try (FileOutputStream fos = new FileOutputStream(TREND_PATH+filename)) {
-            fos.write(dataBytes);
-            fos.write(crcBytes);
-            return new TrendFile(TREND_PATH+filename, trend);
+        try (ArtifactWriter.Output out = artifactWriter.open(TREND_PATH, filename, dataBytes.length + crcBytes.length)) {
+            out.write(dataBytes);
+            out.write(crcBytes);
+            return new TrendFile(out.finish(), trend, bytesSaved);
         }
     }
 
-    private byte[] calculateCRC32(byte[] data) {
+    // Writes the header followed by the spooled entries as trendEntriesBytes field, without loading them into memory
+    private ProtobufFile writeToFile(String filename, Trend header, Path compressedEntries, long uncompressedLength)
+            throws IOException {
+        long entriesLength = Files.size(compressedEntries);
+        if (entriesLength > Integer.MAX_VALUE) {
+            throw new IOException("Compressed trend entries exceed the protobuf size limit: " + entriesLength + " bytes");
+        }
+
         CRC32 crc = new CRC32();
-        crc.update(data);
-        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue()).array();
+        int expectedSize = (int) Math.min(Integer.MAX_VALUE - 8, header.getSerializedSize() + 16 + entriesLength);
+        // Only in memory mode the output directory may not exist yet
+        Files.createDirectories(Path.of(TREND_PATH));
+        try (ArtifactWriter.Output artifactOut = ArtifactWriter.FILES.open(TREND_PATH, filename, expectedSize)) {
+            CheckedOutputStream out = new CheckedOutputStream(artifactOut, crc);
+            CodedOutputStream codedOut = CodedOutputStream.newInstance(out);
+            header.writeTo(codedOut);
+            codedOut.writeRawBytes(trendEntriesBytesTag());
+            codedOut.writeUInt32NoTag((int) entriesLength);
+            codedOut.flush();
+            Files.copy(compressedEntries, out);
+            artifactOut.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue()).array());
+            return new TrendFile(artifactOut.finish(), header, uncompressedLength - entriesLength);
+        }
     }
 
-    private byte[] compressData(byte[] data) {
-        Deflater deflater = new Deflater();
-        deflater.setInput(data);
-        deflater.finish();
-
-        byte[] buffer = new byte[data.length + 100];
-        int length = deflater.deflate(buffer);
-        deflater.end();
+    // Tag of the trendEntriesBytes field, taken from a serialized probe instead of hard coding the field number
+    private static byte[] trendEntriesBytesTag() {
+        byte[] probe = Trend.newBuilder().setTrendEntriesBytes(ByteString.copyFrom(new byte[1])).build().toByteArray();
+        return Arrays.copyOf(probe, probe.length - 2);     // strip length 1 and the single payload byte
+    }
 
-        return Arrays.copyOf(buffer, length);
+    private byte[] calculateCRC32(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue()).array();
     }
 }
@@ -0,0 +1,210 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import flender.dib.aiq.deviceemulationservice.storage.ArtifactMetrics;
+import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Generates several trend durations of the same signals from one base series.
+ * The base series is synthesized once, always at the finest resolution any requested duration needs at that point
+ * in time, and every duration is derived from it by streaming downsampling. Coarse trends thereby stay consistent
+ * with the fine ones and the signals are synthesized only once instead of once per duration.
+ */
+public class TrendPyramidGenerator {
+
+    private final Function<TrendDuration, TrendGenerator> generatorFactory;
+    private final TrendDuration[] durations;
+    private final Map<Integer, Aggregation> signalAggregations = new HashMap<>();
+    private Aggregation defaultAggregation = Aggregation.MEAN;
+    private SampleListener sampleListener;
+    private ArtifactMetrics metrics;
+
+    /**
+     * @param generatorFactory creates the generator providing signals and trend metadata for a duration
+     * @param durations the durations to generate, the interval of each one has to be a multiple of all finer intervals
+     */
+    public TrendPyramidGenerator(Function<TrendDuration, TrendGenerator> generatorFactory, TrendDuration... durations) {
+        if (durations.length == 0) {
+            throw new IllegalArgumentException("At least one duration is required.");
+        }
+        TrendDuration[] sorted = durations.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(TrendDuration::getInterval));
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i].getInterval() % sorted[i - 1].getInterval() != 0) {
+                throw new IllegalArgumentException("Interval of " + sorted[i] + " is not a multiple of the interval of " + sorted[i - 1]);
+            }
+        }
+        this.generatorFactory = generatorFactory;
+        this.durations = durations.clone();
+    }
+
+    public TrendPyramidGenerator setAggregation(Aggregation aggregation) {
+        this.defaultAggregation = aggregation;
+        return this;
+    }
+
+    public TrendPyramidGenerator setAggregation(int signal, Aggregation aggregation) {
+        signalAggregations.put(signal, aggregation);
+        return this;
+    }
+
+    /**
+     * Receives every sample of the base series, in time order, while the trends are generated.
+     */
+    public TrendPyramidGenerator setSampleListener(SampleListener sampleListener) {
+        this.sampleListener = sampleListener;
+        return this;
+    }
+
+    /**
+     * Records the shared sampling and the encoding of every duration.
+     */
+    public TrendPyramidGenerator setMetrics(ArtifactMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Generates one compressed trend file per duration, in the order the durations were given.
+     */
+    public ProtobufFile[] generateCompressedTrends() throws IOException {
+        long now = Instant.now().getEpochSecond();
+        Level[] levels = new Level[durations.length];
+        for (int i = 0; i < durations.length; i++) {
+            levels[i] = new Level(generatorFactory.apply(durations[i]), now);
+        }
+
+        Level finest = Arrays.stream(levels).min(Comparator.comparingInt(level -> level.interval)).orElseThrow();
+        SignalSampler sampler = finest.generator.createSignalSampler(now);
+        int signalCount = sampler.getSignalCount();
+        Aggregation[] aggregations = new Aggregation[signalCount];
+        for (int i = 0; i < signalCount; i++) {
+            aggregations[i] = signalAggregations.getOrDefault(i, defaultAggregation);
+        }
+        for (Level level : levels) {
+            level.allocate(signalCount, aggregations);
+        }
+
+        long samplingStart = System.nanoTime();
+        float[] values = new float[signalCount];
+        long timestamp = Arrays.stream(levels).mapToLong(level -> level.activation).min().orElseThrow();
+        long end = Arrays.stream(levels).mapToLong(level -> level.stop).max().orElseThrow();
+        while (timestamp < end) {
+            int step = nextStep(levels, timestamp);
+            timestamp += step;
+            sampler.sample(timestamp, step, values);
+            if (sampleListener != null) {
+                sampleListener.onSample(timestamp, step, values);
+            }
+            for (Level level : levels) {
+                level.accept(timestamp, step, values);
+            }
+        }
+
+        if (metrics != null) {
+            metrics.recordTrendSampling(System.nanoTime() - samplingStart);
+        }
+
+        ProtobufFile[] trendFiles = new ProtobufFile[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            Level level = levels[i];
+            trendFiles[i] = metrics != null
+                    ? metrics.recordGeneration(ArtifactMetrics.TREND, durations[i].name(),
+                            () -> level.generator.generateCompressedTrend(level.timestamps, level.data))
+                    : level.generator.generateCompressedTrend(level.timestamps, level.data);
+        }
+        return trendFiles;
+    }
+
+    // Finest interval of all running levels, shortened so that no level starts or ends between two samples
+    private int nextStep(Level[] levels, long timestamp) {
+        long step = Long.MAX_VALUE;
+        for (Level level : levels) {
+            if (timestamp < level.activation) {
+                step = Math.min(step, level.activation - timestamp);
+            } else if (timestamp < level.stop) {
+                step = Math.min(step, Math.min(level.interval, level.stop - timestamp));
+            }
+        }
+        return (int) step;
+    }
+
+    private static final class Level {
+        private final TrendGenerator generator;
+        private final int interval;
+        private final long start;
+        private final long stop;
+        private final long activation;
+        private final long[] timestamps;
+        private float[][] data;
+        private Aggregation[] aggregations;
+
+        // Accumulator of the entry currently being filled
+        private double[] sums;
+        private float[] minimums;
+        private float[] maximums;
+        private float[] lasts;
+        private long weight;
+
+        private Level(TrendGenerator generator, long now) {
+            this.generator = generator;
+            this.interval = generator.duration.getInterval();
+            this.stop = now - now % interval;
+            this.start = stop - generator.duration.getSeconds();
+            this.activation = start - interval;
+            this.timestamps = generator.generateLinearTimestamps(now);
+        }
+
+        private void allocate(int signalCount, Aggregation[] aggregations) {
+            this.aggregations = aggregations;
+            data = new float[signalCount][generator.entryCount];
+            sums = new double[signalCount];
+            minimums = new float[signalCount];
+            maximums = new float[signalCount];
+            lasts = new float[signalCount];
+            reset();
+        }
+
+        private void accept(long timestamp, int step, float[] values) {
+            if (timestamp <= activation || timestamp > stop) {
+                return;
+            }
+            for (int i = 0; i < values.length; i++) {
+                float value = values[i];
+                sums[i] += (double) value * step;
+                minimums[i] = Math.min(minimums[i], value);
+                maximums[i] = Math.max(maximums[i], value);
+                lasts[i] = value;
+            }
+            weight += step;
+
+            // Entry i covers the interval (timestamps[i] - interval, timestamps[i]]
+            if ((timestamp - start) % interval == 0) {
+                int entry = (int) ((timestamp - start) / interval);
+                for (int i = 0; i < values.length; i++) {
+                    data[i][entry] = switch (aggregations[i]) {
+                        case MEAN -> (float) (sums[i] / weight);
+                        case MIN -> minimums[i];
+                        case MAX -> maximums[i];
+                        case LAST -> lasts[i];
+                    };
+                }
+                reset();
+            }
+        }
+
+        private void reset() {
+            Arrays.fill(sums, 0);
+            Arrays.fill(minimums, Float.POSITIVE_INFINITY);
+            Arrays.fill(maximums, Float.NEGATIVE_INFINITY);
+            weight = 0;
+        }
+    }
+}
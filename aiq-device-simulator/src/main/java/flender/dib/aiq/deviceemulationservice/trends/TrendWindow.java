@@ -0,0 +1,32 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import flender.dib.aiq.deviceemulationservice.compression.DeflateCompressor;
+
+/**
+ * Time span and resolution of a trend. The predefined windows of the devices are listed in {@link TrendDuration},
+ * any other combination can be created with {@link #of(long, int)}.
+ */
+public interface TrendWindow {
+
+    long getSeconds();
+
+    /** Seconds between two entries */
+    int getInterval();
+
+    /** Short name used in the trend file name */
+    String getLabel();
+
+    /** Compression of the trend entries, chosen for the number of entries and how often the trend is generated */
+    DeflateCompressor getCompressor();
+
+    /**
+     * @param seconds length of the window, a multiple of {@code interval}
+     * @param interval seconds between two entries
+     */
+    static TrendWindow of(long seconds, int interval) {
+        if (seconds <= 0 || interval <= 0 || seconds % interval != 0) {
+            throw new IllegalArgumentException("Invalid trend window of " + seconds + "s with an interval of " + interval + "s");
+        }
+        return new CustomTrendWindow(seconds, interval);
+    }
+}
@@ -0,0 +1,100 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import flender.dib.aiq.deviceemulationservice.GaussianNoiseBlock;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vectorized implementation of the signal kernels on the incubating Vector API.
+ * Noise is read from the {@link GaussianNoiseBlock} and {@code exp} is replaced by a polynomial approximation with
+ * a relative error below 1e-4, which is far below the simulated noise. Only loaded through {@link SignalKernels}
+ * when the {@code jdk.incubator.vector} module is present; compiling this class also requires
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+final class VectorSignalKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final FloatVector IOTA = FloatVector.fromArray(SPECIES, iota(), 0);
+
+    private static final float LOG2_E = 1.4426950408889634f;
+    // Taylor coefficients of 2^f = e^(f * ln 2) for f in [0, 1)
+    private static final float C1 = 0.6931472f;
+    private static final float C2 = 0.2402265f;
+    private static final float C3 = 0.05550411f;
+    private static final float C4 = 0.009618129f;
+    private static final float C5 = 0.001333355f;
+
+    private VectorSignalKernels() {
+    }
+
+    static void scaleByExp(float[] data, int offset, int count, float firstExponent, float exponentPerEntry) {
+        int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            FloatVector exponent = IOTA.add(i).fma(exponentPerEntry, firstExponent).max(0f);
+            FloatVector.fromArray(SPECIES, data, offset + i).mul(exp(exponent)).intoArray(data, offset + i);
+        }
+        for (; i < count; i++) {
+            data[offset + i] *= (float) Math.exp(Math.max(0f, firstExponent + i * exponentPerEntry));
+        }
+    }
+
+    static void addNoiseProduct(float[] data, int offset, int count, float range) {
+        float[] noise = GaussianNoiseBlock.values();
+        int offset1 = GaussianNoiseBlock.randomOffset();
+        int offset2 = GaussianNoiseBlock.randomOffset();
+        int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            FloatVector noise1 = FloatVector.fromArray(SPECIES, noise, (offset1 + i) & GaussianNoiseBlock.MASK);
+            FloatVector noise2 = FloatVector.fromArray(SPECIES, noise, (offset2 + i) & GaussianNoiseBlock.MASK);
+            // data + (noise1 * noise2 * 2 - 1) * range
+            noise1.mul(noise2).fma(2 * range, -range).add(FloatVector.fromArray(SPECIES, data, offset + i))
+                    .intoArray(data, offset + i);
+        }
+        for (; i < count; i++) {
+            float product = noise[(offset1 + i) & GaussianNoiseBlock.MASK] * noise[(offset2 + i) & GaussianNoiseBlock.MASK];
+            data[offset + i] += (product * 2 - 1) * range;
+        }
+    }
+
+    static void addSine(float[] data, int offset, int count, float amplitude, double firstPhase,
+                        double phasePerEntry) {
+        float floatPhasePerEntry = (float) phasePerEntry;
+        int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            // Reduce the phase of the first lane in double precision, float precision only covers the lane offsets
+            float phase = (float) Math.IEEEremainder(firstPhase + i * phasePerEntry, 2 * Math.PI);
+            IOTA.fma(floatPhasePerEntry, phase).lanewise(VectorOperators.SIN).mul(amplitude)
+                    .add(FloatVector.fromArray(SPECIES, data, offset + i)).intoArray(data, offset + i);
+        }
+        for (; i < count; i++) {
+            data[offset + i] += amplitude * (float) Math.sin(firstPhase + i * phasePerEntry);
+        }
+    }
+
+    // e^x = 2^k * 2^f with k = floor(x * log2(e)) and f in [0, 1)
+    static FloatVector exp(FloatVector x) {
+        FloatVector y = x.mul(LOG2_E).max(-126f).min(127f);
+        FloatVector k = ((IntVector) y.convert(VectorOperators.F2I, 0)).convert(VectorOperators.I2F, 0).reinterpretAsFloats();
+        VectorMask<Float> truncatedUp = y.lt(k);
+        k = k.sub(1f, truncatedUp);
+        FloatVector f = y.sub(k);
+        FloatVector twoPowF = f.fma(C5, C4).mul(f).add(C3).mul(f).add(C2).mul(f).add(C1).mul(f).add(1f);
+        IntVector exponentBits = ((IntVector) k.convert(VectorOperators.F2I, 0)).add(127).lanewise(VectorOperators.LSHL, 23);
+        return twoPowF.mul(exponentBits.reinterpretAsFloats());
+    }
+
+    private static float[] iota() {
+        float[] iota = new float[LANES];
+        for (int i = 0; i < LANES; i++) {
+            iota[i] = i;
+        }
+        return iota;
+    }
+}
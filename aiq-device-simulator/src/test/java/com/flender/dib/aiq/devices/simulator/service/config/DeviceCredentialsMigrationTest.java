@@ -0,0 +1,50 @@
+package com.flender.dib.aiq.devices.simulator.service.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeviceCredentialsMigrationTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:migration-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        // Layout before the credentials were moved, with the table Hibernate adds on startup
+        jdbcTemplate.execute("create table devices (id varchar(255) primary key, environment varchar(255), "
+            + "status varchar(255), type varchar(255), private_key varchar(4000), certificate varchar(4000))");
+        jdbcTemplate.execute("create table device_credentials (device_id varchar(255) primary key, "
+            + "private_key varchar(4000), certificate varchar(4000))");
+        jdbcTemplate.update("insert into devices values ('AA:01', 'DEV', 'STOPPED', 'AIQ_CORE', 'key-1', 'cert-1')");
+        jdbcTemplate.update("insert into devices values ('AA:02', 'PROD', 'CONNECTED', 'AIQ_CORE', 'key-2', 'cert-2')");
+    }
+
+    @Test
+    void migrate_ShouldMoveCredentialsAndDropColumnsOnce() {
+        DeviceCredentialsMigration migration = new DeviceCredentialsMigration(jdbcTemplate, null);
+
+        migration.migrate();
+        migration.migrate();
+
+        List<Map<String, Object>> credentials = jdbcTemplate.queryForList(
+            "select device_id, private_key, certificate from device_credentials order by device_id");
+        assertEquals(List.of(
+            Map.of("DEVICE_ID", "AA:01", "PRIVATE_KEY", "key-1", "CERTIFICATE", "cert-1"),
+            Map.of("DEVICE_ID", "AA:02", "PRIVATE_KEY", "key-2", "CERTIFICATE", "cert-2")
+        ), credentials);
+
+        List<String> columns = jdbcTemplate.queryForList(
+            "select column_name from information_schema.columns where table_name = 'DEVICES' order by ordinal_position",
+            String.class);
+        assertEquals(List.of("ID", "ENVIRONMENT", "STATUS", "TYPE"), columns);
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from devices", Integer.class));
+    }
+}
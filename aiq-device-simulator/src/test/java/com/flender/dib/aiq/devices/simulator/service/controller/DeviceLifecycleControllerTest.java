@@ -0,0 +1,91 @@
+package com.flender.dib.aiq.devices.simulator.service.controller;
+
+import com.flender.dib.aiq.devices.simulator.service.dto.DeviceFlapsDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.DeviceTimelineEntryDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.FlapStatisticsDTO;
+import com.flender.dib.aiq.devices.simulator.service.service.DeviceJournalService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DeviceLifecycleController.class)
+class DeviceLifecycleControllerTest {
+
+    private static final Instant FROM = Instant.parse("2025-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2025-01-02T00:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @MockBean
+    private DeviceJournalService deviceJournalService;
+
+    @Test
+    void getTimeline_ShouldReturnStatusPeriods() throws Exception {
+        List<DeviceTimelineEntryDTO> timeline = List.of(
+            new DeviceTimelineEntryDTO("CONNECTING", "OPENING_CLIENT", FROM, FROM.plusSeconds(5), 5000),
+            new DeviceTimelineEntryDTO("CONNECTED", "CONNECTION_OK", FROM.plusSeconds(5), null, 86395000)
+        );
+        
+        when(deviceJournalService.getTimeline("AA:BB:CC:DD:EE:01", FROM, TO)).thenReturn(timeline);
+        
+        mockMvc.perform(get("/devices/AA:BB:CC:DD:EE:01/timeline")
+                .param("from", FROM.toString())
+                .param("to", TO.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].status").value("CONNECTING"))
+                .andExpect(jsonPath("$[0].reason").value("OPENING_CLIENT"))
+                .andExpect(jsonPath("$[0].durationMillis").value(5000))
+                .andExpect(jsonPath("$[1].status").value("CONNECTED"))
+                .andExpect(jsonPath("$[1].until").doesNotExist());
+    }
+
+    @Test
+    void getTimeline_ShouldReturnBadRequestForInvalidTime() throws Exception {
+        mockMvc.perform(get("/devices/AA:BB:CC:DD:EE:01/timeline").param("from", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTimeline_ShouldReturnBadRequestForReversedRange() throws Exception {
+        mockMvc.perform(get("/devices/AA:BB:CC:DD:EE:01/timeline")
+                .param("from", TO.toString())
+                .param("to", FROM.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getFlapStatistics_ShouldReturnFleetStatistics() throws Exception {
+        FlapStatisticsDTO statistics = new FlapStatisticsDTO(FROM, TO, 2, 9, 3, List.of(
+            new DeviceFlapsDTO("AA:BB:CC:DD:EE:02", 6, 3, 42000)
+        ));
+        
+        when(deviceJournalService.getFlapStatistics(FROM, TO, 1)).thenReturn(statistics);
+        
+        mockMvc.perform(get("/devices/flaps")
+                .param("from", FROM.toString())
+                .param("to", TO.toString())
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.devices").value(2))
+                .andExpect(jsonPath("$.drops").value(3))
+                .andExpect(jsonPath("$.topDevices[0].deviceId").value("AA:BB:CC:DD:EE:02"))
+                .andExpect(jsonPath("$.topDevices[0].connectingMillis").value(42000));
+    }
+
+    @Test
+    void getFlapStatistics_ShouldReturnBadRequestForInvalidLimit() throws Exception {
+        mockMvc.perform(get("/devices/flaps").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
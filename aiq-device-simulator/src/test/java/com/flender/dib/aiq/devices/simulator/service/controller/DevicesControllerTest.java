@@ -1,6 +1,10 @@
 package com.flender.dib.aiq.devices.simulator.service.controller;
 
+import com.flender.dib.aiq.devices.simulator.service.dto.DevicePage;
 import com.flender.dib.aiq.devices.simulator.service.dto.DeviceResponseDTO;
+import com.flender.dib.aiq.devices.simulator.service.dto.FleetStatsDTO;
+import com.flender.dib.aiq.devices.simulator.service.exception.DeviceStateException;
+import com.flender.dib.aiq.devices.simulator.service.service.DeviceEventService;
 import com.flender.dib.aiq.devices.simulator.service.service.DeviceService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,11 +12,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -25,6 +33,9 @@ class DevicesControllerTest {
     
     @MockBean
     private DeviceService deviceService;
+    
+    @MockBean
+    private DeviceEventService deviceEventService;
 
     @Test
     void getAllDevices_ShouldReturnListOfDevices() throws Exception {
@@ -49,6 +60,58 @@ class DevicesControllerTest {
                 .andExpect(jsonPath("$[1].type").value("AIQ_CORE_TORQUE"));
     }
 
+    @Test
+    void getDevicePage_ShouldReturnDevicesAndNextCursor() throws Exception {
+        DevicePage mockPage = new DevicePage(List.of(
+            new DeviceResponseDTO("AA:BB:CC:DD:EE:01", "DEV", "CONNECTED", "AIQ_CORE"),
+            new DeviceResponseDTO("AA:BB:CC:DD:EE:02", "DEV", "CONNECTED", "AIQ_CORE")
+        ), "AA:BB:CC:DD:EE:02");
+        
+        when(deviceService.getDevicePage(isNull(), eq(2),
+                eq("connected"), isNull(), isNull(), isNull())).thenReturn(mockPage);
+        
+        mockMvc.perform(get("/devices/page").param("limit", "2").param("status", "connected"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.devices.length()").value(2))
+                .andExpect(jsonPath("$.devices[0].id").value("AA:BB:CC:DD:EE:01"))
+                .andExpect(jsonPath("$.devices[0].privateKey").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("AA:BB:CC:DD:EE:02"));
+    }
+
+    @Test
+    void getDevicePage_ShouldMapRejectedRequestToBadRequest() throws Exception {
+        when(deviceService.getDevicePage(any(), any(), any(), any(), any(), any()))
+                .thenThrow(new DeviceStateException("Limit must be between 1 and 1000"));
+        
+        mockMvc.perform(get("/devices/page").param("limit", "5000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getFleetStats_ShouldReturnCounters() throws Exception {
+        FleetStatsDTO mockStats = new FleetStatsDTO(3,
+            Map.of("STOPPED", 1L, "STARTING", 0L, "CONNECTING", 0L, "CONNECTED", 2L),
+            Map.of("AIQ_CORE", 2L, "AIQ_CORE_TORQUE", 1L),
+            Map.of("DEV", 1L, "TEST", 0L, "PROD", 2L));
+        
+        when(deviceService.getFleetStats()).thenReturn(mockStats);
+        
+        mockMvc.perform(get("/devices/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.byStatus.CONNECTED").value(2))
+                .andExpect(jsonPath("$.byType.AIQ_CORE_TORQUE").value(1))
+                .andExpect(jsonPath("$.byEnvironment.PROD").value(2));
+    }
+
+    @Test
+    void streamDeviceEvents_ShouldPassLastEventId() throws Exception {
+        when(deviceEventService.subscribe(eq("abc-42"), any())).thenReturn(new SseEmitter());
+        
+        mockMvc.perform(get("/devices/events").header("Last-Event-ID", "abc-42"))
+                .andExpect(request().asyncStarted());
+    }
+
     @Test
     void createDevice_ShouldCreateNewDevice() throws Exception {
         DeviceResponseDTO mockDevice = new DeviceResponseDTO("AA:BB:CC:DD:EE:03", "PROD", "STOPPED", "AIQ_CORE");
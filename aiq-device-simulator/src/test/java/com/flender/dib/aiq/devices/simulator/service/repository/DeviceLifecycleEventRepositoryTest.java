@@ -0,0 +1,76 @@
+package com.flender.dib.aiq.devices.simulator.service.repository;
+
+import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceLifecycleEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class DeviceLifecycleEventRepositoryTest {
+
+    private static final Instant START = Instant.parse("2025-01-31T12:00:00Z");
+
+    @Autowired
+    private DeviceLifecycleEventRepository eventRepository;
+
+    @Test
+    void findTopFlaps_ShouldCountTransitionsDropsAndConnectingTime() {
+        record("AA:01", Device.Status.CONNECTING, 0);
+        record("AA:01", Device.Status.CONNECTED, 10);
+        record("AA:01", Device.Status.CONNECTING, 20);
+        record("AA:01", Device.Status.CONNECTING, 25);
+        record("AA:01", Device.Status.CONNECTED, 40);
+        record("AA:01", Device.Status.CONNECTING, 50);
+        record("AA:02", Device.Status.CONNECTED, 0);
+        record("AA:02", Device.Status.CONNECTING, 30);
+        record("AA:03", Device.Status.STOPPED, 0);
+        record("AA:04", Device.Status.CONNECTING, 200);
+
+        List<DeviceFlaps> flaps = eventRepository.findTopFlaps(START, START.plusSeconds(100),
+            START.plusSeconds(60), 2);
+
+        assertEquals(List.of("AA:01", "AA:02"), flaps.stream().map(DeviceFlaps::getDeviceId).toList());
+        DeviceFlaps first = flaps.get(0);
+        assertEquals(5, first.getTransitions());
+        assertEquals(2, first.getDrops());
+        // 0-10, 20-40 and 50 until the end
+        assertEquals(40_000L, first.getConnectingMillis());
+        DeviceFlaps second = flaps.get(1);
+        assertEquals(2, second.getTransitions());
+        assertEquals(1, second.getDrops());
+        assertEquals(30_000L, second.getConnectingMillis());
+        assertEquals(3, first.getTotalDevices());
+        assertEquals(8L, first.getTotalTransitions());
+        assertEquals(3L, first.getTotalDrops());
+    }
+
+    @Test
+    void deleteOlderThan_ShouldKeepLastEventOfEachDevice() {
+        record("AA:01", Device.Status.CONNECTING, 0);
+        record("AA:01", Device.Status.CONNECTED, 10);
+        record("AA:01", Device.Status.CONNECTING, 200);
+        record("AA:02", Device.Status.CONNECTING, 0);
+        record("AA:02", Device.Status.CONNECTED, 10);
+
+        int deleted = eventRepository.deleteOlderThan(START.plusSeconds(100));
+
+        assertEquals(3, deleted);
+        List<DeviceLifecycleEvent> remaining = eventRepository.findAll().stream()
+            .sorted(Comparator.comparing(DeviceLifecycleEvent::getDeviceId))
+            .toList();
+        assertEquals(List.of("AA:01", "AA:02"), remaining.stream().map(DeviceLifecycleEvent::getDeviceId).toList());
+        assertEquals(START.plusSeconds(200), remaining.get(0).getOccurredAt());
+        assertEquals(Device.Status.CONNECTED, remaining.get(1).getStatus());
+    }
+
+    private void record(String deviceId, Device.Status status, long seconds) {
+        eventRepository.saveAndFlush(new DeviceLifecycleEvent(null, deviceId, status, "TEST", START.plusSeconds(seconds)));
+    }
+}
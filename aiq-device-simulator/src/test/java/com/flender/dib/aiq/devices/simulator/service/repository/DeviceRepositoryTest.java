@@ -0,0 +1,76 @@
+package com.flender.dib.aiq.devices.simulator.service.repository;
+
+import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class DeviceRepositoryTest {
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @BeforeEach
+    void setUp() {
+        deviceRepository.saveAll(List.of(
+            new Device("AA:01", Device.Environment.DEV, Device.Status.CONNECTED, Device.Type.AIQ_CORE),
+            new Device("AA:02", Device.Environment.PROD, Device.Status.STOPPED, Device.Type.AIQ_CORE),
+            new Device("AA:03", Device.Environment.DEV, Device.Status.CONNECTED, Device.Type.AIQ_CORE_TORQUE),
+            new Device("AA:04", Device.Environment.DEV, Device.Status.CONNECTED, Device.Type.AIQ_CORE),
+            new Device("AA%05", Device.Environment.DEV, Device.Status.CONNECTED, Device.Type.AIQ_CORE),
+            new Device("AA_06", Device.Environment.DEV, Device.Status.CONNECTED, Device.Type.AIQ_CORE),
+            new Device("AB\\07", Device.Environment.TEST, Device.Status.CONNECTING, Device.Type.AIQ_CORE)
+        ));
+    }
+
+    @Test
+    void findSummariesAfter_ShouldWalkAllDevicesPageByPage() {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        List<DeviceSummary> page;
+        do {
+            page = deviceRepository.findSummariesAfter(cursor, null, null, null, null, 3);
+            page.forEach(device -> ids.add(device.getId()));
+            cursor = page.isEmpty() ? null : page.get(page.size() - 1).getId();
+        } while (page.size() == 3);
+
+        assertEquals(List.of("AA%05", "AA:01", "AA:02", "AA:03", "AA:04", "AA_06", "AB\\07"), ids);
+    }
+
+    @Test
+    void findSummariesAfter_ShouldCombineFiltersWithCursor() {
+        List<DeviceSummary> devices = deviceRepository.findSummariesAfter("AA:01", Device.Status.CONNECTED,
+            Device.Type.AIQ_CORE, Device.Environment.DEV, "AA:", 10);
+
+        assertEquals(List.of("AA:04"), ids(devices));
+        assertEquals(Device.Environment.DEV, devices.get(0).getEnvironment());
+        assertEquals(Device.Status.CONNECTED, devices.get(0).getStatus());
+        assertEquals(Device.Type.AIQ_CORE, devices.get(0).getType());
+    }
+
+    @Test
+    void findSummariesAfter_ShouldApplyEachFilterAlone() {
+        assertEquals(List.of("AA:02"), ids(deviceRepository.findSummariesAfter(null, Device.Status.STOPPED, null, null, null, 10)));
+        assertEquals(List.of("AA:03"), ids(deviceRepository.findSummariesAfter(null, null, Device.Type.AIQ_CORE_TORQUE, null, null, 10)));
+        assertEquals(List.of("AB\\07"), ids(deviceRepository.findSummariesAfter(null, null, null, Device.Environment.TEST, null, 10)));
+    }
+
+    @Test
+    void findSummariesAfter_ShouldMatchWildcardsOfPrefixLiterally() {
+        assertEquals(List.of("AA%05"), ids(deviceRepository.findSummariesAfter(null, null, null, null, "AA%", 10)));
+        assertEquals(List.of("AA_06"), ids(deviceRepository.findSummariesAfter(null, null, null, null, "AA_", 10)));
+        assertEquals(List.of("AB\\07"), ids(deviceRepository.findSummariesAfter(null, null, null, null, "AB\\", 10)));
+        assertEquals(List.of(), ids(deviceRepository.findSummariesAfter(null, null, null, null, "A_:", 10)));
+    }
+
+    private static List<String> ids(List<DeviceSummary> devices) {
+        return devices.stream().map(DeviceSummary::getId).toList();
+    }
+}
@@ -0,0 +1,186 @@
+package com.flender.dib.aiq.devices.simulator.service.service;
+
+import com.flender.dib.aiq.devices.simulator.service.dto.DeviceResponseDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceEventServiceTest {
+
+    private static final List<DeviceResponseDTO> SNAPSHOT = List.of(device("AA:01", "STOPPED"));
+
+    // Flushes are triggered by the tests, the scheduled ones never run during a test
+    private final DeviceEventService eventService = new DeviceEventService(3_600_000, 100, 2, 3600, 300) {
+        @Override
+        SseEmitter createEmitter(long timeoutMillis) {
+            return new RecordingEmitter(timeoutMillis);
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        eventService.shutdown();
+    }
+
+    @Test
+    void subscribe_ShouldStartNewClientsWithSnapshot() {
+        RecordingEmitter emitter = subscribe(null);
+
+        assertEquals(1, emitter.events.size());
+        assertTrue(emitter.text(0).contains("event:snapshot"));
+        assertEquals(SNAPSHOT, emitter.devices(0));
+        assertEquals(300_000L, emitter.getTimeout());
+    }
+
+    @Test
+    void flush_ShouldCoalesceChangesOfDevice() {
+        RecordingEmitter emitter = subscribe(null);
+
+        eventService.publish(device("AA:01", "CONNECTING"));
+        eventService.publish(device("AA:02", "STARTING"));
+        eventService.publish(device("AA:01", "CONNECTED"));
+        eventService.flush();
+
+        await(() -> emitter.events.size() == 2);
+        assertTrue(emitter.text(1).contains("event:status"));
+        List<DeviceResponseDTO> devices = emitter.devices(1);
+        assertEquals(2, devices.size());
+        assertTrue(devices.contains(device("AA:01", "CONNECTED")));
+        assertTrue(devices.contains(device("AA:02", "STARTING")));
+    }
+
+    @Test
+    void subscribe_ShouldResumeFromLastEventId() {
+        RecordingEmitter first = subscribe(null);
+        eventService.publish(device("AA:01", "CONNECTING"));
+        eventService.flush();
+        await(() -> first.events.size() == 2);
+        String lastEventId = first.eventId(1);
+
+        eventService.publish(device("AA:02", "STARTING"));
+        eventService.flush();
+        eventService.publish(device("AA:02", "CONNECTED"));
+        eventService.flush();
+
+        RecordingEmitter resumed = subscribe(lastEventId);
+        assertTrue(resumed.text(0).contains("event:status"));
+        assertEquals(List.of(device("AA:02", "CONNECTED")), resumed.devices(0));
+
+        RecordingEmitter unknown = subscribe("earlier-run-1");
+        assertTrue(unknown.text(0).contains("event:snapshot"));
+    }
+
+    @Test
+    void flush_ShouldDisconnectSubscriberThatFallsBehind() {
+        RecordingEmitter slow = subscribe(null);
+        RecordingEmitter fast = subscribe(null);
+        slow.blocked = new CountDownLatch(1);
+
+        try {
+            // One event in flight and the backlog of two fit, the fourth exceeds it in any case
+            for (int i = 0; i < 4; i++) {
+                eventService.publish(device("AA:01", i % 2 == 0 ? "CONNECTING" : "CONNECTED"));
+                eventService.flush();
+            }
+
+            await(() -> slow.completed);
+            assertEquals(1, eventService.getSubscriberCount());
+            await(() -> fast.events.size() == 5);
+        } finally {
+            slow.blocked.countDown();
+        }
+    }
+
+    private RecordingEmitter subscribe(String lastEventId) {
+        return (RecordingEmitter) eventService.subscribe(lastEventId, () -> SNAPSHOT);
+    }
+
+    private static DeviceResponseDTO device(String id, String status) {
+        return new DeviceResponseDTO(id, "DEV", status, "AIQ_CORE");
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 5 s");
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Keeps the sent events instead of writing them to a response. Sending blocks while {@link #blocked} is set.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<Set<ResponseBodyEmitter.DataWithMediaType>> events = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch blocked;
+        private volatile boolean completed;
+
+        private RecordingEmitter(long timeoutMillis) {
+            super(timeoutMillis);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            send(builder.build());
+        }
+
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(event);
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void completeWithError(Throwable error) {
+            completed = true;
+        }
+
+        private String text(int index) {
+            StringBuilder text = new StringBuilder();
+            events.get(index).stream()
+                .filter(data -> data.getData() instanceof String)
+                .forEach(data -> text.append(data.getData()));
+            return text.toString();
+        }
+
+        private String eventId(int index) {
+            return text(index).lines()
+                .filter(line -> line.startsWith("id:"))
+                .map(line -> line.substring("id:".length()))
+                .findFirst()
+                .orElseThrow();
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<DeviceResponseDTO> devices(int index) {
+            return events.get(index).stream()
+                .filter(data -> data.getData() instanceof List)
+                .map(data -> (List<DeviceResponseDTO>) data.getData())
+                .findFirst()
+                .orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.flender.dib.aiq.devices.simulator.service.service;
+
+import com.flender.dib.aiq.devices.simulator.service.dto.DeviceResponseDTO;
+import com.flender.dib.aiq.devices.simulator.service.mapper.DeviceMapper;
+import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.model.DeviceLifecycleEvent;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceCredentialsRepository;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceLifecycleEventRepository;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeviceServiceTest {
+
+    private final DeviceRepository deviceRepository = mock(DeviceRepository.class);
+    private final List<String> persisted = new CopyOnWriteArrayList<>();
+    private final List<String> published = new CopyOnWriteArrayList<>();
+    private final DeviceEventService eventService = new DeviceEventService(3_600_000, 100, 100, 3600, 300) {
+        @Override
+        public void publish(DeviceResponseDTO device) {
+            published.add(device.getStatus());
+            super.publish(device);
+        }
+    };
+    private final DeviceJournalService journalService = new DeviceJournalService(
+        mock(DeviceLifecycleEventRepository.class), 100, 100, 3_600_000, 30, 24, 60);
+    private final FleetStatisticsService statisticsService =
+        new FleetStatisticsService(deviceRepository, new SimpleMeterRegistry());
+    private final DeviceService deviceService = new DeviceService(deviceRepository,
+        mock(DeviceCredentialsRepository.class), new DeviceMapper(), eventService, journalService, statisticsService);
+
+    @AfterEach
+    void tearDown() {
+        eventService.shutdown();
+        journalService.shutdown();
+    }
+
+    @Test
+    void updateDeviceStatusInternal_ShouldPublishTransitionsOfDeviceInPersistOrder() throws InterruptedException {
+        Device device = new Device("AA:01", Device.Environment.DEV, Device.Status.CONNECTING, Device.Type.AIQ_CORE);
+        Thread[] second = new Thread[1];
+        when(deviceRepository.updateStatus(any(), any())).thenAnswer(invocation -> {
+            Device.Status status = invocation.getArgument(1);
+            persisted.add(status.name());
+            if (second[0] == null) {
+                // A second transition of the device races the first one between persisting and publishing it
+                second[0] = Thread.startVirtualThread(() -> deviceService.updateDeviceStatusInternal(
+                    device, Device.Status.CONNECTED, DeviceLifecycleEvent.STATUS_UPDATE));
+                Thread.sleep(200);
+            }
+            return 1;
+        });
+
+        deviceService.updateDeviceStatusInternal(device, Device.Status.CONNECTING, DeviceLifecycleEvent.STATUS_UPDATE);
+        second[0].join();
+
+        assertEquals(List.of("CONNECTING", "CONNECTED"), persisted);
+        assertEquals(persisted, published);
+        assertEquals(1L, statisticsService.getStats().getByStatus().get("CONNECTED"));
+        assertEquals(0L, statisticsService.getStats().getByStatus().get("CONNECTING"));
+    }
+}
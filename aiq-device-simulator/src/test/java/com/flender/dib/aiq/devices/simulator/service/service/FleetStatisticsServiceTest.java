@@ -0,0 +1,88 @@
+package com.flender.dib.aiq.devices.simulator.service.service;
+
+import com.flender.dib.aiq.devices.simulator.service.dto.FleetStatsDTO;
+import com.flender.dib.aiq.devices.simulator.service.model.Device;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceRepository;
+import com.flender.dib.aiq.devices.simulator.service.repository.DeviceSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FleetStatisticsServiceTest {
+
+    private final DeviceRepository deviceRepository = mock(DeviceRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FleetStatisticsService statisticsService =
+        new FleetStatisticsService(deviceRepository, meterRegistry);
+
+    @Test
+    void loadCounters_ShouldCountDevicesOfDatabase() {
+        when(deviceRepository.findAllSummaries()).thenReturn(List.of(
+            summary("AA:01", Device.Status.CONNECTED, Device.Type.AIQ_CORE, Device.Environment.DEV),
+            summary("AA:02", Device.Status.CONNECTED, Device.Type.AIQ_CORE_TORQUE, Device.Environment.PROD),
+            summary("AA:03", Device.Status.STOPPED, Device.Type.AIQ_CORE, Device.Environment.PROD)));
+
+        statisticsService.loadCounters();
+        statisticsService.loadCounters();
+
+        FleetStatsDTO stats = statisticsService.getStats();
+        assertEquals(3, stats.getTotal());
+        assertEquals(2L, stats.getByStatus().get("CONNECTED"));
+        assertEquals(1L, stats.getByStatus().get("STOPPED"));
+        assertEquals(0L, stats.getByStatus().get("CONNECTING"));
+        assertEquals(1L, stats.getByType().get("AIQ_CORE_TORQUE"));
+        assertEquals(2L, stats.getByEnvironment().get("PROD"));
+        assertEquals(2.0, meterRegistry.get("simulator.devices.status").tag("status", "CONNECTED").gauge().value());
+    }
+
+    @Test
+    void statusChanged_ShouldMoveDeviceBetweenStatusesAndCountNewDevices() {
+        when(deviceRepository.findAllSummaries()).thenReturn(List.of(
+            summary("AA:01", Device.Status.STOPPED, Device.Type.AIQ_CORE, Device.Environment.DEV)));
+        statisticsService.loadCounters();
+
+        statisticsService.statusChanged(device("AA:01"), Device.Status.STARTING);
+        statisticsService.statusChanged(device("AA:01"), Device.Status.STARTING);
+        statisticsService.statusChanged(device("AA:02"), Device.Status.STOPPED);
+
+        FleetStatsDTO stats = statisticsService.getStats();
+        assertEquals(2, stats.getTotal());
+        assertEquals(1L, stats.getByStatus().get("STARTING"));
+        assertEquals(1L, stats.getByStatus().get("STOPPED"));
+        assertEquals(2L, stats.getByEnvironment().get("DEV"));
+    }
+
+    private static Device device(String id) {
+        return new Device(id, Device.Environment.DEV, null, Device.Type.AIQ_CORE);
+    }
+
+    private static DeviceSummary summary(String id, Device.Status status, Device.Type type,
+                                         Device.Environment environment) {
+        return new DeviceSummary() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public Device.Environment getEnvironment() {
+                return environment;
+            }
+
+            @Override
+            public Device.Status getStatus() {
+                return status;
+            }
+
+            @Override
+            public Device.Type getType() {
+                return type;
+            }
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package flender.dib.aiq.deviceemulationservice;
+
+import com.flender.vda.Base;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Compares the former allocating {@link ByteBuffer} encoding of classification cells with {@link ByteCodec},
+ * on the histogram sizes of the classification generators.
+ * Run with {@code mvn -Pemulation-service test-compile exec:exec@benchmarks -Djmh.args=ByteCodec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteCodecBenchmark {
+
+    @Param({"TEMP_SPEED", "SPEED_TORQUE", "START_TEMP"})
+    public String histogram;
+
+    private long[] counts;
+    private Base.ValueType valueType;
+    private int length;
+    private byte[] target;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        int cellCount = switch (histogram) {
+            case "TEMP_SPEED" -> 100 * 175;
+            case "SPEED_TORQUE" -> 100 * 100;
+            case "START_TEMP" -> 175;
+            default -> throw new IllegalArgumentException("Unknown histogram " + histogram);
+        };
+        valueType = histogram.equals("SPEED_TORQUE") ? Base.ValueType.UINT64 : Base.ValueType.UINT32;
+        length = ByteUtils.lengthOfValueType(valueType);
+        counts = new Random(1).longs(cellCount, 0, 1 << 30).toArray();
+        target = new byte[cellCount * length];
+        buffer = ByteBuffer.allocate(cellCount * length).order(LITTLE_ENDIAN);
+
+        byte[] expected = byteBuffer().clone();
+        if (!Arrays.equals(expected, byteCodec()) || !Arrays.equals(expected, byteCodecBuffer().array())) {
+            throw new IllegalStateException("Encodings differ for " + histogram);
+        }
+    }
+
+    // The encoding used by the classification generators before ByteCodec
+    @Benchmark
+    public byte[] byteBuffer() {
+        for (int i = 0; i < counts.length; i++) {
+            ByteBuffer cell = ByteBuffer.allocate(length).order(LITTLE_ENDIAN);
+            if (length == 4) {
+                cell.putInt((int) counts[i]);
+            } else {
+                cell.putLong(counts[i]);
+            }
+            System.arraycopy(cell.array(), 0, target, i * length, length);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public byte[] byteCodec() {
+        for (int i = 0; i < counts.length; i++) {
+            ByteCodec.put(target, i * length, valueType, counts[i]);
+        }
+        return target;
+    }
+
+    // The buffer variant, as used by the mapped counters
+    @Benchmark
+    public ByteBuffer byteCodecBuffer() {
+        for (int i = 0; i < counts.length; i++) {
+            ByteCodec.put(buffer, i * length, valueType, counts[i]);
+        }
+        return buffer;
+    }
+}
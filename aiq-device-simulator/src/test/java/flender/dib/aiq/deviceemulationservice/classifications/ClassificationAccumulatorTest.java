@@ -0,0 +1,79 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClassificationAccumulatorTest {
+
+    @Test
+    void add_ShouldCountValueInItsClassAndClampToOutermostClasses() {
+        // 100 speed classes of 30 rpm
+        ClassificationAccumulator accumulator = new ClassificationAccumulator(ClassificationDimensions.SPEED);
+
+        accumulator.add(45f, 2);
+        accumulator.add(-10f, 3);
+        accumulator.add(5000f, 4);
+        accumulator.add(Float.NaN, 5);
+
+        long[] counts = accumulator.snapshot();
+        assertEquals(2, counts[1]);
+        assertEquals(3, counts[0]);
+        assertEquals(4, counts[99]);
+        assertEquals(9, accumulator.getSampleCount());
+    }
+
+    @Test
+    void add_ShouldCountPairWithFirstDimensionAsColumns() {
+        ClassificationAccumulator accumulator = new ClassificationAccumulator(ClassificationDimensions.SPEED,
+                ClassificationDimensions.TEMPERATURE);
+
+        // Speed class 50, temperature class 100 (60 to 61 °C)
+        accumulator.add(1510f, 60.5f, 7);
+        accumulator.add(1510f, Float.NaN, 1);
+
+        long[] counts = accumulator.snapshot();
+        assertEquals(100 * 175, counts.length);
+        assertEquals(7, counts[50 + 100 * 100]);
+        assertEquals(7, accumulator.getSampleCount());
+    }
+
+    @Test
+    void constructor_ShouldContinueExistingCounters() {
+        HeapClassificationCounters counters = new HeapClassificationCounters(175, Base.ValueType.UINT32);
+        counters.add(3, 10);
+        counters.add(170, 5);
+
+        ClassificationAccumulator accumulator = new ClassificationAccumulator(counters, ClassificationDimensions.TEMPERATURE);
+        accumulator.add(-39.5f, 1);
+
+        assertEquals(16, accumulator.getSampleCount());
+        assertEquals(1, counters.get(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClassificationAccumulator(counters, ClassificationDimensions.SPEED));
+    }
+
+    @Test
+    void encodedSnapshot_ShouldEncodeCountersWithTheirValueTypeAndClearShouldReset() {
+        HeapClassificationCounters counters = new HeapClassificationCounters(175, Base.ValueType.UINT32);
+        ClassificationAccumulator accumulator = new ClassificationAccumulator(counters, ClassificationDimensions.TEMPERATURE);
+        accumulator.add(0.5f, 70_000);
+        accumulator.add(134.9f, 1);
+
+        ClassificationAccumulator.EncodedSnapshot snapshot = accumulator.encodedSnapshot();
+        ByteBuffer data = snapshot.data().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(175 * 4, data.remaining());
+        assertEquals(70_000, data.getInt(40 * 4));
+        assertEquals(1, data.getInt(174 * 4));
+        assertEquals(70_001, snapshot.sampleCount());
+
+        accumulator.clear();
+        assertEquals(0, accumulator.getSampleCount());
+        assertEquals(0, counters.get(40));
+    }
+}
@@ -0,0 +1,73 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GaussianPeakRendererTest {
+
+    @Test
+    void render_ShouldAddSeparablePeakWithoutNoise() {
+        long[] counts = new long[20 * 10];
+        counts[0] = 3;
+
+        new GaussianPeakRenderer(20, 10).addPeak(8, 4, 1000, 2, 0).render(counts);
+
+        for (int row = 0; row < 10; row++) {
+            for (int column = 0; column < 20; column++) {
+                double distanceSquared = (column - 8) * (column - 8) + (row - 4) * (row - 4);
+                long expected = (long) (1000 * Math.exp(-distanceSquared / 8));
+                long initial = column == 0 && row == 0 ? 3 : 0;
+                // The outer product may round differently than the exponential of the summed distances
+                long difference = counts[column + row * 20] - initial - expected;
+                assertTrue(Math.abs(difference) <= 1, "cell " + column + "/" + row + " differs by " + difference);
+            }
+        }
+        assertEquals(1000, counts[8 + 4 * 20]);
+    }
+
+    @Test
+    void render_ShouldClipPeaksAtMatrixBordersAndSkipPeaksOutside() {
+        long[] counts = new long[30];
+
+        new GaussianPeakRenderer(30, 1)
+                .addPeak(-1, 0, 100, 1, 0)
+                .addPeak(60, 0, 1000, 2, 0)
+                .addPeak(15, 0, 0.5, 2, 0)
+                .render(counts);
+
+        assertEquals((long) (100 * Math.exp(-0.5)), counts[0]);
+        assertEquals((long) (100 * Math.exp(-2)), counts[1]);
+        for (int column = 5; column < 30; column++) {
+            assertEquals(0, counts[column]);
+        }
+    }
+
+    @Test
+    void render_ShouldVaryCountsByRelativeNoise() {
+        long[] counts = new long[101];
+
+        new GaussianPeakRenderer(101, 1).addPeak(50, 0, 1_000_000, 1000, 0.1).render(counts);
+
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (long count : counts) {
+            double relative = count / 1_000_000.0 - 1;
+            sum += relative;
+            sumOfSquares += relative * relative;
+        }
+        // The peak is almost flat over the matrix, so the counts vary by the noise only
+        assertEquals(0, sum / counts.length, 0.03);
+        double deviation = Math.sqrt(sumOfSquares / counts.length);
+        assertTrue(deviation > 0.07 && deviation < 0.13, "deviation " + deviation);
+    }
+
+    @Test
+    void render_ShouldRejectSmallerTarget() {
+        GaussianPeakRenderer renderer = new GaussianPeakRenderer(10, 10);
+        assertThrows(IllegalArgumentException.class, () -> renderer.render(new long[99]));
+        assertThrows(IllegalArgumentException.class, () -> new GaussianPeakRenderer(0, 1));
+    }
+}
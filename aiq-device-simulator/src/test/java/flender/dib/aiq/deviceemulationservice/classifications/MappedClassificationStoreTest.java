@@ -0,0 +1,115 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import com.flender.vda.Base;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedClassificationStoreTest {
+
+    private static final String DEVICE_ID = "AA:BB:CC:DD:EE:FF";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void counters_ShouldContinueCountsOfPreviousStore() throws IOException {
+        MappedClassificationStore store = new MappedClassificationStore(directory);
+        ClassificationCounters counters = store.counters(DEVICE_ID, "temp-speed", 100, Base.ValueType.UINT32);
+        counters.add(3, 5);
+        counters.add(3, 2);
+        counters.add(99, 1);
+        store.close();
+
+        ClassificationCounters reopened = new MappedClassificationStore(directory)
+                .counters(DEVICE_ID, "temp-speed", 100, Base.ValueType.UINT32);
+
+        assertTrue(Files.exists(directory.resolve("aabbccddeeff_temp-speed.cls")));
+        assertEquals(7, reopened.get(3));
+        assertEquals(1, reopened.get(99));
+        ByteBuffer encoded = reopened.encoded().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(400, encoded.remaining());
+        assertEquals(7, encoded.getInt(3 * 4));
+    }
+
+    @Test
+    void counters_ShouldStartFromZeroWhenSizeChanged() throws IOException {
+        MappedClassificationStore store = new MappedClassificationStore(directory);
+        store.counters(DEVICE_ID, "speed-torque", 100, Base.ValueType.UINT64).add(10, 1L << 40);
+        store.close();
+
+        ClassificationCounters resized = new MappedClassificationStore(directory)
+                .counters(DEVICE_ID, "speed-torque", 200, Base.ValueType.UINT64);
+
+        assertEquals(200, resized.getCellCount());
+        for (int cell = 0; cell < 200; cell++) {
+            assertEquals(0, resized.get(cell));
+        }
+        assertEquals(1600, Files.size(directory.resolve("aabbccddeeff_speed-torque.cls")));
+    }
+
+    @Test
+    void progress_ShouldBeNoneForNewDeviceAndPersistUpdates() throws IOException {
+        MappedClassificationStore store = new MappedClassificationStore(directory);
+        ClassificationProgress progress = store.progress(DEVICE_ID);
+        assertEquals(ClassificationProgress.NONE, progress.getFirstTimestamp());
+        assertEquals(ClassificationProgress.NONE, progress.getLastTimestamp());
+        progress.update(1_700_000_000L, 1_700_003_600L);
+        store.close();
+
+        ClassificationProgress reopened = new MappedClassificationStore(directory).progress(DEVICE_ID);
+
+        assertEquals(1_700_000_000L, reopened.getFirstTimestamp());
+        assertEquals(1_700_003_600L, reopened.getLastTimestamp());
+    }
+
+    @Test
+    void deviceClassifications_ShouldCountEachSampleOnceAcrossRuns() throws IOException {
+        MappedClassificationStore store = new MappedClassificationStore(directory);
+        DeviceClassifications first = new DeviceClassifications(store, DEVICE_ID, 0, 1, -1);
+        first.onSample(1000, 60, new float[]{1500, 60});
+        first.onSample(1060, 60, new float[]{1500, 60});
+        store.close();
+
+        DeviceClassifications second = new DeviceClassifications(new MappedClassificationStore(directory), DEVICE_ID,
+                0, 1, -1);
+        // The regenerated history overlaps the samples counted by the first run
+        second.onSample(1060, 60, new float[]{1500, 60});
+        second.onSample(1120, 60, new float[]{1500, 60});
+
+        assertEquals(180, second.getTempSpeed().getSampleCount());
+        // Like a device that is switched on again, each run counts a start with its first sample
+        assertEquals(2, second.getStartTemp().getSampleCount());
+        assertEquals(940, second.getFirstSampleTime().getEpochSecond());
+        assertEquals(1120, second.getLastSampleTime().getEpochSecond());
+    }
+
+    @Test
+    void deviceClassifications_ShouldClearCountersWithoutProgress() throws IOException {
+        MappedClassificationStore store = new MappedClassificationStore(directory);
+        store.counters(DEVICE_ID, "temp-speed", 100 * 175, Base.ValueType.UINT32).add(0, 42);
+        store.close();
+
+        DeviceClassifications classifications = new DeviceClassifications(new MappedClassificationStore(directory),
+                DEVICE_ID, 0, 1, -1);
+
+        assertEquals(0, classifications.getTempSpeed().getSampleCount());
+    }
+
+    @Test
+    void counters_ShouldRejectTypesWithoutAtomicUpdates() throws IOException {
+        MappedClassificationStore store = new MappedClassificationStore(directory);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> store.counters(DEVICE_ID, "start-temp", 175, Base.ValueType.UINT16));
+    }
+}
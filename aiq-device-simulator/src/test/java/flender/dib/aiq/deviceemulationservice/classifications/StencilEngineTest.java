@@ -0,0 +1,92 @@
+package flender.dib.aiq.deviceemulationservice.classifications;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StencilEngineTest {
+
+    private static final int COLUMNS = 10;
+
+    @Test
+    void spread_ShouldPassFactorOfInnerCellsToTheirNeighbours() {
+        StencilEngine stencil = new StencilEngine(COLUMNS, 8);
+        stencil.cells()[cell(5, 5)] = 1000;
+        stencil.cells()[cell(0, 2)] = 300;
+
+        stencil.spread(0.5, 0.5, 0);
+
+        long[] cells = stencil.cells();
+        assertEquals(1000, cells[cell(5, 5)]);
+        assertEquals(500, cells[cell(4, 5)]);
+        assertEquals(500, cells[cell(6, 5)]);
+        assertEquals(500, cells[cell(5, 4)]);
+        assertEquals(500, cells[cell(5, 6)]);
+        // Border cells keep their value but do not spread
+        assertEquals(300, cells[cell(0, 2)]);
+        assertEquals(0, cells[cell(1, 2)]);
+        assertEquals(3300, sum(cells));
+    }
+
+    @Test
+    void smooth_ShouldWeightCenterAndNeighboursAndEmptyBorders() {
+        StencilEngine stencil = new StencilEngine(COLUMNS, 8);
+        long[] cells = stencil.cells();
+        cells[cell(5, 5)] = 1000;
+        cells[cell(4, 5)] = 500;
+        cells[cell(6, 5)] = 500;
+        cells[cell(5, 4)] = 500;
+        cells[cell(5, 6)] = 500;
+        cells[cell(9, 3)] = 200;
+
+        stencil.smooth(0.4, 0.15, 1, 1);
+
+        cells = stencil.cells();
+        assertEquals(700, cells[cell(5, 5)]);
+        assertEquals((long) (0.4 * 500 + 0.15 * 1000), cells[cell(4, 5)]);
+        assertEquals((long) (0.15 * 1000), cells[cell(4, 4)]);
+        assertEquals(0, cells[cell(9, 3)]);
+        assertEquals((long) (0.15 * 200), cells[cell(8, 3)]);
+    }
+
+    @Test
+    void passes_ShouldNotDependOnSchedulingForSameSeed() {
+        long[] first = randomPasses(new StencilEngine(100, 175, new SplittableRandom(42)));
+        long[] second = randomPasses(new StencilEngine(100, 175, new SplittableRandom(42)));
+
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void constructor_ShouldRejectMatricesWithoutInnerCells() {
+        assertThrows(IllegalArgumentException.class, () -> new StencilEngine(2, 10));
+        assertThrows(IllegalArgumentException.class, () -> new StencilEngine(10, 2));
+    }
+
+    private static long[] randomPasses(StencilEngine stencil) {
+        long[] cells = stencil.cells();
+        for (int cell = 0; cell < cells.length; cell += 7) {
+            cells[cell] = 10_000 + cell;
+        }
+        stencil.spread(0.5, 0.5, 0.25);
+        stencil.spread(0.6, 1.4, 0.25);
+        stencil.smooth(0.4, 0.15, 0.8, 1.2);
+        return stencil.cells().clone();
+    }
+
+    private static int cell(int column, int row) {
+        return column + row * COLUMNS;
+    }
+
+    private static long sum(long[] cells) {
+        long sum = 0;
+        for (long cell : cells) {
+            sum += cell;
+        }
+        return sum;
+    }
+}
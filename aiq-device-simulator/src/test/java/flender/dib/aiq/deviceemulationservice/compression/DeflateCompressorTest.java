@@ -0,0 +1,97 @@
+package flender.dib.aiq.deviceemulationservice.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeflateCompressorTest {
+
+    @Test
+    void compress_ShouldProduceZlibStreamOfInput() throws Exception {
+        byte[] data = repetitiveData(100_000);
+
+        byte[] compressed = DeflateCompressor.DEFAULT.compress(data);
+
+        assertTrue(compressed.length < data.length / 10);
+        assertArrayEquals(data, inflate(compressed, data.length));
+    }
+
+    @Test
+    void compress_ShouldKeepIncompressibleInputThatExpands() throws Exception {
+        byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+
+        byte[] compressed = DeflateCompressor.BEST.compress(data);
+
+        assertTrue(compressed.length > data.length);
+        assertArrayEquals(data, inflate(compressed, data.length));
+    }
+
+    @Test
+    void compress_ShouldCompressRangeOfArrayAndRemainingBytesOfBuffer() throws Exception {
+        byte[] data = repetitiveData(10_000);
+        byte[] range = Arrays.copyOfRange(data, 100, 5_100);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length).put(data).position(100).limit(5_100);
+
+        assertArrayEquals(range, inflate(DeflateCompressor.FAST.compress(data, 100, 5_000), range.length));
+        assertArrayEquals(range, inflate(DeflateCompressor.FAST.compress(direct), range.length));
+        assertEquals(100, direct.position());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeflateCompressor.FAST.compress(data, 100, 5_000, out);
+        assertArrayEquals(range, inflate(out.toByteArray(), range.length));
+    }
+
+    @Test
+    void release_ShouldResetPooledDeflaterToLevelAndStrategy() throws Exception {
+        DeflateCompressor compressor = new DeflateCompressor(1, Deflater.FILTERED);
+        byte[] data = repetitiveData(10_000);
+        byte[] expected = compressor.compress(data);
+
+        Deflater deflater = compressor.acquire();
+        deflater.setLevel(9);
+        deflater.setStrategy(Deflater.HUFFMAN_ONLY);
+        deflater.setInput(data);
+        deflater.finish();
+        deflater.deflate(new byte[20_000]);
+        compressor.release(deflater);
+
+        assertArrayEquals(expected, compressor.compress(data));
+    }
+
+    @Test
+    void constructor_ShouldRejectInvalidLevelAndStrategy() {
+        assertThrows(IllegalArgumentException.class, () -> new DeflateCompressor(10, Deflater.DEFAULT_STRATEGY));
+        assertThrows(IllegalArgumentException.class, () -> new DeflateCompressor(6, 5));
+    }
+
+    // Float-like records with slowly changing values, compressible like trend entries
+    private static byte[] repetitiveData(int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (int i = 0; buffer.remaining() >= 4; i++) {
+            buffer.putFloat(1500 + (i % 64) * 0.5f);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] inflate(byte[] compressed, int length) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        byte[] inflated = new byte[length + 1];
+        int count = inflater.inflate(inflated);
+        assertTrue(inflater.finished());
+        inflater.end();
+        return Arrays.copyOf(inflated, count);
+    }
+}
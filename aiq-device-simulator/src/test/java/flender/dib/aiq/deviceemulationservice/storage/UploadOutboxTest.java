@@ -0,0 +1,207 @@
+package flender.dib.aiq.deviceemulationservice.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadOutboxTest {
+
+    @TempDir
+    Path directory;
+
+    private ScriptedStorage storage;
+    private UploadOutbox outbox;
+
+    @AfterEach
+    void tearDown() {
+        if (outbox != null) {
+            outbox.shutdown();
+        }
+        if (storage != null) {
+            storage.shutdown();
+        }
+    }
+
+    @Test
+    void resume_ShouldUploadPendingFilesAndCompactIndex() throws Exception {
+        Path spool = directory.resolve("outbox");
+        Files.createDirectories(spool);
+        Files.writeString(spool.resolve("0_a.dxtd"), "pending");
+        Files.writeString(spool.resolve("1_b.dxtd"), "uploaded");
+        Files.writeString(spool.resolve("7_orphan.dxtd"), "never indexed");
+        Files.writeString(spool.resolve("3_c.dxtd.part"), "torn copy");
+        Files.writeString(spool.resolve("index.log"), String.join("\n",
+                "A\t0\t7\tdevice/trends/a.dxtd",
+                "A\t1\t8\tdevice/trends/b.dxtd",
+                "D\t1",
+                "A\t2\t5\tdevice/trends/missing.dxtd",
+                "A\t3\t9\tdevice/tr"));
+        storage = new ScriptedStorage();
+        outbox = outbox(spool, 20);
+
+        outbox.resume();
+
+        assertTrue(outbox.awaitEmpty(5, TimeUnit.SECONDS));
+        assertEquals(List.of("device/trends/a.dxtd"), storage.blobNames());
+        assertEquals(0, outbox.getSpooledBytes());
+        try (var files = Files.list(spool)) {
+            assertEquals(List.of("index.log"), files.map(file -> file.getFileName().toString()).toList());
+        }
+        // Compacted to the entry of the existing spool file, then marked uploaded
+        assertEquals(List.of("A\t0\t7\tdevice/trends/a.dxtd", "D\t0"),
+                Files.readAllLines(spool.resolve("index.log"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void submit_ShouldContinueIdsOfResumedIndex() throws Exception {
+        Path spool = directory.resolve("outbox");
+        Files.createDirectories(spool);
+        Files.writeString(spool.resolve("index.log"), "A\t4\t1\tdevice/trends/a.dxtd\nD\t4\n");
+        storage = new ScriptedStorage();
+        outbox = outbox(spool, 20);
+
+        outbox.submit(file("b.dxtd", "content"));
+
+        assertTrue(outbox.awaitEmpty(5, TimeUnit.SECONDS));
+        assertEquals(List.of("5_b.dxtd"), storage.fileNames());
+    }
+
+    @Test
+    void submit_ShouldMoveFileToDeadLettersAfterMaxAttempts() throws Exception {
+        Path spool = directory.resolve("outbox");
+        storage = new ScriptedStorage(new IOException("unavailable"), new IOException("unavailable"));
+        outbox = outbox(spool, 2);
+
+        outbox.submit(file("a.dxtd", "content"));
+
+        assertTrue(outbox.awaitEmpty(5, TimeUnit.SECONDS));
+        assertEquals(2, storage.blobNames().size());
+        assertEquals(1, outbox.getDeadLetterCount());
+        assertEquals("content", Files.readString(spool.resolve("dead-letters").resolve("0_a.dxtd")));
+        assertTrue(Files.notExists(spool.resolve("0_a.dxtd")));
+        assertEquals("D\t0", Files.readAllLines(spool.resolve("index.log")).get(1));
+    }
+
+    @Test
+    void submit_ShouldCountFailedCompletionAsUploaded() throws Exception {
+        Path spool = directory.resolve("outbox");
+        storage = new ScriptedStorage(new AzureBlobStorage.UploadException("completion", new IOException("hub down")));
+        outbox = outbox(spool, 20);
+
+        outbox.submit(file("a.dxtd", "content"));
+
+        assertTrue(outbox.awaitEmpty(5, TimeUnit.SECONDS));
+        assertEquals(1, storage.blobNames().size());
+        assertEquals(0, outbox.getPendingCount());
+        assertEquals(0, outbox.getDeadLetterCount());
+        assertTrue(Files.notExists(spool.resolve("0_a.dxtd")));
+    }
+
+    @Test
+    void submit_ShouldRetryTransferFailuresUntilUploaded() throws Exception {
+        Path spool = directory.resolve("outbox");
+        storage = new ScriptedStorage(new AzureBlobStorage.UploadException("transfer", new IOException("reset")));
+        outbox = outbox(spool, 20);
+
+        outbox.submit(file("a.dxtd", "content"));
+
+        assertTrue(outbox.awaitEmpty(5, TimeUnit.SECONDS));
+        assertEquals(2, storage.blobNames().size());
+        assertEquals(0, outbox.getDeadLetterCount());
+        assertTrue(Files.notExists(spool.resolve("dead-letters")));
+    }
+
+    private UploadOutbox outbox(Path spool, int maxAttempts) {
+        return new UploadOutbox(storage, spool.toString(), 1 << 20, 0, 0, maxAttempts, metrics());
+    }
+
+    private ProtobufFile file(String name, String content) throws IOException {
+        Path path = Files.writeString(directory.resolve(name), content);
+        return new TestFile(path, "device/trends/" + name);
+    }
+
+    private static ArtifactMetrics metrics() {
+        return new ArtifactMetrics(new SimpleMeterRegistry(), "CORE_WIFI");
+    }
+
+    /**
+     * Fails the first uploads with the given errors and succeeds afterwards, recording every attempt.
+     */
+    private static final class ScriptedStorage extends AzureBlobStorage {
+
+        private final ConcurrentLinkedQueue<Throwable> failures;
+        private final List<ProtobufFile> attempts = Collections.synchronizedList(new ArrayList<>());
+
+        private ScriptedStorage(Throwable... failures) {
+            super(new UnusedBackend(), 1, 1, 1, new BlobHttpProperties(), new BlockUploadProperties(),
+                    new SimpleMeterRegistry(), metrics());
+            this.failures = new ConcurrentLinkedQueue<>(List.of(failures));
+        }
+
+        @Override
+        public CompletableFuture<ProtobufFile> uploadProtobufFileAsync(ProtobufFile protobufFile, boolean overwrite) {
+            attempts.add(protobufFile);
+            Throwable failure = failures.poll();
+            return failure == null ? CompletableFuture.completedFuture(protobufFile) : CompletableFuture.failedFuture(failure);
+        }
+
+        private List<String> blobNames() {
+            synchronized (attempts) {
+                return attempts.stream().map(ProtobufFile::getAzureBlobName).toList();
+            }
+        }
+
+        private List<String> fileNames() {
+            synchronized (attempts) {
+                return attempts.stream().map(ProtobufFile::getFilename).toList();
+            }
+        }
+    }
+
+    private static final class UnusedBackend implements BlobStorageBackend {
+
+        @Override
+        public UploadTarget requestUpload(String blobName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void completeUpload(UploadTarget target, boolean success) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class TestFile extends ProtobufFile {
+
+        private final String blobName;
+
+        private TestFile(Path path, String blobName) {
+            super(path.toString());
+            this.blobName = blobName;
+        }
+
+        @Override
+        public String getAzureBlobName() {
+            return blobName;
+        }
+    }
+}
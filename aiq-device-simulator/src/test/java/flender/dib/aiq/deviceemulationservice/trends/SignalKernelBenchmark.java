@@ -0,0 +1,113 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the vectorized signal kernels, and sampling a block of a signal plan entry by entry with
+ * sampling it as one block. The block benchmarks use the vectorized kernels only when run with
+ * {@code -Djmh.args="SignalKernel -jvmArgsAppend -Ddevice-emulation.trends.vectorized=true"}.
+ * Run with {@code mvn -Pemulation-service test-compile exec:exec@benchmarks -Djmh.args=SignalKernel}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SignalKernelBenchmark {
+
+    private static final long STOP = 1_760_000_000L;
+
+    // One streamed chunk and a 60 minute trend at one entry per second
+    @Param({"4096", "3601"})
+    public int entryCount;
+
+    private float[] data;
+    private float[][] block;
+    private float[] values;
+    private SignalPlan plan;
+
+    @Setup
+    public void setUp() {
+        data = new float[entryCount];
+        Arrays.fill(data, 1);
+        SignalChannel sine = SignalChannel.fluctuatingConstant(1500, 15);
+        sine.setSineAmplitude(40);
+        SignalModel model = new SignalModel(4)
+                .set(0, sine)
+                .set(1, SignalChannel.fluctuatingConstant(0.7f, 0.035f))
+                .set(2, SignalChannel.damageIndicator(0.21f, 0.01f, 0.9f, 1))
+                .set(3, SignalChannel.linear(0, 100, 1));
+        plan = model.compile(STOP);
+        block = new float[model.getChannelCount()][entryCount];
+        values = new float[model.getChannelCount()];
+    }
+
+    // Tiny exponents, so that the repeatedly scaled data stays finite
+    @Benchmark
+    public float[] scalarScaleByExp() {
+        ScalarSignalKernels.scaleByExp(data, 0, entryCount, 0, 1e-10f);
+        return data;
+    }
+
+    @Benchmark
+    public float[] vectorScaleByExp() {
+        VectorSignalKernels.scaleByExp(data, 0, entryCount, 0, 1e-10f);
+        return data;
+    }
+
+    @Benchmark
+    public float[] scalarAddNoiseProduct() {
+        ScalarSignalKernels.addNoiseProduct(data, 0, entryCount, 0.035f);
+        return data;
+    }
+
+    @Benchmark
+    public float[] vectorAddNoiseProduct() {
+        VectorSignalKernels.addNoiseProduct(data, 0, entryCount, 0.035f);
+        return data;
+    }
+
+    @Benchmark
+    public float[] scalarAddSine() {
+        ScalarSignalKernels.addSine(data, 0, entryCount, 40, STOP * 0.001, 0.001);
+        return data;
+    }
+
+    @Benchmark
+    public float[] vectorAddSine() {
+        VectorSignalKernels.addSine(data, 0, entryCount, 40, STOP * 0.001, 0.001);
+        return data;
+    }
+
+    @Benchmark
+    public float[][] planSample() {
+        long first = STOP - entryCount;
+        for (int i = 0; i < entryCount; i++) {
+            plan.sample(first + i, 1, values);
+            for (int signal = 0; signal < values.length; signal++) {
+                block[signal][i] = values[signal];
+            }
+        }
+        return block;
+    }
+
+    @Benchmark
+    public float[][] planSampleBlock() {
+        plan.sampleBlock(STOP - entryCount, 1, entryCount, block, 0);
+        return block;
+    }
+}
@@ -0,0 +1,84 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Compares the vectorized kernels with the scalar ones, the surefire configuration adds the vector module
+class SignalKernelsTest {
+
+    // Not a multiple of any vector length, so the scalar tail of the vector kernels runs too
+    private static final int COUNT = 1003;
+    private static final int OFFSET = 5;
+
+    @Test
+    void scaleByExp_ShouldMatchScalarKernelWithinApproximationError() {
+        float[] scalar = filled(2.5f);
+        float[] vector = filled(2.5f);
+
+        // Exponent below zero for the first 100 entries, growing to about 9 at the end
+        ScalarSignalKernels.scaleByExp(scalar, OFFSET, COUNT, -0.9f, 0.009f);
+        VectorSignalKernels.scaleByExp(vector, OFFSET, COUNT, -0.9f, 0.009f);
+
+        for (int i = 0; i < scalar.length; i++) {
+            assertEquals(scalar[i], vector[i], Math.abs(scalar[i]) * 1e-4f);
+        }
+        assertEquals(2.5f, vector[OFFSET]);
+        assertEquals(0f, vector[OFFSET - 1]);
+    }
+
+    @Test
+    void addSine_ShouldMatchScalarKernelAtEpochPhases() {
+        float[] scalar = filled(10f);
+        float[] vector = filled(10f);
+        double radiansPerSecond = 2 * Math.PI / (24 * 60 * 60);
+        long firstTimestamp = 1_760_000_000L;
+
+        ScalarSignalKernels.addSine(scalar, OFFSET, COUNT, 3f, firstTimestamp * radiansPerSecond, 60 * radiansPerSecond);
+        VectorSignalKernels.addSine(vector, OFFSET, COUNT, 3f, firstTimestamp * radiansPerSecond, 60 * radiansPerSecond);
+
+        for (int i = 0; i < scalar.length; i++) {
+            assertEquals(scalar[i], vector[i], 1e-4f);
+        }
+    }
+
+    @Test
+    void addNoiseProduct_ShouldAddNoiseOfScalarKernelDistribution() {
+        float[] scalar = new float[200_000];
+        float[] vector = new float[200_000];
+
+        ScalarSignalKernels.addNoiseProduct(scalar, 0, scalar.length, 0.5f);
+        VectorSignalKernels.addNoiseProduct(vector, 0, vector.length, 0.5f);
+
+        // (g1 * g2 * 2 - 1) * range has the mean -range and the standard deviation 2 * range
+        assertEquals(-0.5, mean(scalar), 0.02);
+        assertEquals(-0.5, mean(vector), 0.02);
+        assertEquals(1.0, standardDeviation(scalar), 0.02);
+        assertEquals(1.0, standardDeviation(vector), 0.02);
+    }
+
+    private static float[] filled(float value) {
+        float[] data = new float[OFFSET + COUNT + 5];
+        Arrays.fill(data, OFFSET, OFFSET + COUNT, value);
+        return data;
+    }
+
+    private static double mean(float[] data) {
+        double sum = 0;
+        for (float value : data) {
+            sum += value;
+        }
+        return sum / data.length;
+    }
+
+    private static double standardDeviation(float[] data) {
+        double mean = mean(data);
+        double sum = 0;
+        for (float value : data) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / data.length);
+    }
+}
@@ -0,0 +1,60 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignalPlanTest {
+
+    private static final long DAY = 24 * 60 * 60;
+    private static final long STOP = 1_760_000_000L;
+
+    @Test
+    void sampleBlock_ShouldMatchSamplesOfDeterministicComponents() {
+        SignalChannel sine = SignalChannel.fluctuatingConstant(100, 0);
+        sine.setSineAmplitude(5);
+        sine.setSinePeriodSeconds(DAY);
+        SignalChannel step = SignalChannel.fluctuatingConstant(20, 0);
+        step.setStep(7);
+        step.setStepDays(3);
+        SignalModel model = new SignalModel(4)
+                .set(0, sine)
+                .set(1, SignalChannel.linear(10, 30, 5))
+                .set(2, step)
+                .set(3, SignalChannel.damageIndicator(0.5f, 0, 2, 4));
+
+        // Ten days at one entry per five minutes, the ramp, the step and the damage start within the block
+        int stepSeconds = 300;
+        int count = (int) (10 * DAY / stepSeconds) + 1;
+        long first = STOP - 10 * DAY;
+        float[][] block = new float[4][count + 2];
+        model.compile(STOP).sampleBlock(first, stepSeconds, count, block, 2);
+
+        SignalPlan plan = model.compile(STOP);
+        float[] values = new float[4];
+        for (int i = 0; i < count; i++) {
+            plan.sample(first + (long) i * stepSeconds, stepSeconds, values);
+            for (int signal = 0; signal < values.length; signal++) {
+                assertEquals(values[signal], block[signal][2 + i], Math.abs(values[signal]) * 1e-4f);
+            }
+        }
+        assertEquals(20f, block[2][2]);
+        assertEquals(27f, block[2][count + 1]);
+        assertEquals(30f, block[1][count + 1], 1e-3f);
+        assertEquals(0.5f * (float) Math.exp(2), block[3][count + 1], 1e-3f);
+    }
+
+    @Test
+    void sampleBlock_ShouldKeepRandomWalkAroundBase() {
+        SignalModel model = new SignalModel(1).set(0, SignalChannel.longTermFluctuation(50));
+        int count = 100_000;
+        float[][] block = new float[1][count];
+
+        model.compile(STOP).sampleBlock(STOP - count, 1, count, block, 0);
+
+        for (float value : block[0]) {
+            assertTrue(Math.abs(value - 50) < 1, "walk left its range: " + value);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import flender.dib.aiq.deviceemulationservice.compression.DeflateCompressor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Compression time of real trend payloads per {@link TrendDuration}, level and strategy, to choose the compressor
+ * of each duration. The compression ratio of every combination is printed during the setup of its trial.
+ * Run with {@code mvn -Pemulation-service test-compile exec:exec@benchmarks -Djmh.args=TrendCompression}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrendCompressionBenchmark {
+
+    private static final float[] KPIS_0_TO_20 = {1500, 56, 0.21f, 0.18f, 0.7f, 0.15f, 0.12f, 0.35f, 0.05f, 0.26f, 1.15f,
+            0.1f, 0.27f, 1.05f, 0.04f, 0.08f, 0.33f, 0.01f, 0.035f, 0.06f, 0.23f};
+
+    @Param({"DURATION_60_MINUTES", "DURATION_7_DAYS", "DURATION_90_DAYS", "DURATION_3_YEARS"})
+    public TrendDuration duration;
+
+    @Param({"1", "3", "6", "9"})
+    public int level;
+
+    @Param({"DEFAULT", "FILTERED"})
+    public String strategy;
+
+    private byte[] payload;
+    private DeflateCompressor compressor;
+
+    @Setup
+    public void setUp() {
+        payload = new CoreIOTrendGenerator0to20(KPIS_0_TO_20, duration, "ZZ:ZZ:ZZ:ZZ:ZZ:ZZ",
+                "30c78f70-13a8-4596-b457-13f1cfdf3673").generateTrendEntries().toByteArray();
+        compressor = new DeflateCompressor(level, strategy.equals("FILTERED") ? Deflater.FILTERED : Deflater.DEFAULT_STRATEGY);
+        int compressedLength = compressor.compress(payload).length;
+        System.out.printf("%n%s level %d %s: %d of %d bytes, ratio %.2f%n", duration, level, strategy,
+                compressedLength, payload.length, payload.length / (double) compressedLength);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return compressor.compress(payload);
+    }
+}
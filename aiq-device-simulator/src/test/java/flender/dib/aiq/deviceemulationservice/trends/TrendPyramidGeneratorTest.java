@@ -0,0 +1,143 @@
+package flender.dib.aiq.deviceemulationservice.trends;
+
+import com.flender.vda.TrendOuterClass.Trend;
+import flender.dib.aiq.deviceemulationservice.storage.ProtobufFile;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendPyramidGeneratorTest {
+
+    private final Map<TrendDuration, CapturingTrendGenerator> generators = new EnumMap<>(TrendDuration.class);
+
+    @Test
+    void generateCompressedTrends_ShouldSampleFinestLevelOncePerEntry() throws Exception {
+        new TrendPyramidGenerator(this::generator, TrendDuration.DURATION_7_DAYS, TrendDuration.DURATION_60_MINUTES)
+                .generateCompressedTrends();
+
+        CapturingTrendGenerator hour = generators.get(TrendDuration.DURATION_60_MINUTES);
+        assertEquals(3601, hour.timestamps.length);
+        for (int i = 0; i < hour.timestamps.length; i++) {
+            assertEquals(signal(hour.timestamps[i]), hour.data[0][i]);
+        }
+    }
+
+    @Test
+    void generateCompressedTrends_ShouldAggregateFinerSamplesPerSignal() throws Exception {
+        new TrendPyramidGenerator(this::generator, TrendDuration.DURATION_60_MINUTES, TrendDuration.DURATION_7_DAYS)
+                .setAggregation(1, Aggregation.MAX)
+                .setAggregation(2, Aggregation.LAST)
+                .setAggregation(3, Aggregation.MIN)
+                .generateCompressedTrends();
+
+        long hourStart = generators.get(TrendDuration.DURATION_60_MINUTES).timestamps[0];
+        CapturingTrendGenerator week = generators.get(TrendDuration.DURATION_7_DAYS);
+        int checkedFineEntries = 0;
+        for (int i = 0; i < week.timestamps.length; i++) {
+            long timestamp = week.timestamps[i];
+            assertEquals(signal(timestamp), week.data[2][i]);
+            if (timestamp - 300 >= hourStart) {
+                // Covered by 300 samples of one second
+                double sum = 0;
+                float maximum = Float.NEGATIVE_INFINITY;
+                float minimum = Float.POSITIVE_INFINITY;
+                for (long second = timestamp - 299; second <= timestamp; second++) {
+                    sum += signal(second);
+                    maximum = Math.max(maximum, signal(second));
+                    minimum = Math.min(minimum, signal(second));
+                }
+                assertEquals((float) (sum / 300), week.data[0][i]);
+                assertEquals(maximum, week.data[1][i]);
+                assertEquals(minimum, week.data[3][i]);
+                checkedFineEntries++;
+            } else if (timestamp < hourStart - 300) {
+                // Covered by a single sample of five minutes
+                assertEquals(signal(timestamp), week.data[0][i]);
+                assertEquals(signal(timestamp), week.data[1][i]);
+                assertEquals(signal(timestamp), week.data[3][i]);
+            }
+        }
+        // The last hour holds 11 or 12 entries, depending on how far the hour is past the last full five minutes
+        assertTrue(checkedFineEntries >= 11);
+    }
+
+    @Test
+    void generateCompressedTrends_ShouldPassContiguousSamplesToListener() throws Exception {
+        List<long[]> samples = new ArrayList<>();
+        new TrendPyramidGenerator(this::generator, TrendDuration.DURATION_60_MINUTES, TrendDuration.DURATION_7_DAYS)
+                .setSampleListener((timestamp, stepSeconds, values) -> samples.add(new long[]{timestamp, stepSeconds}))
+                .generateCompressedTrends();
+
+        for (int i = 1; i < samples.size(); i++) {
+            assertEquals(samples.get(i - 1)[0], samples.get(i)[0] - samples.get(i)[1]);
+        }
+        // Every second of the last hour, plus the one before it in case the step reaching the hour is one second
+        long secondSamples = samples.stream().filter(sample -> sample[1] == 1).count();
+        assertEquals(3601, secondSamples, 1);
+        long[] hourTimestamps = generators.get(TrendDuration.DURATION_60_MINUTES).timestamps;
+        assertEquals(hourTimestamps[hourTimestamps.length - 1], samples.get(samples.size() - 1)[0]);
+    }
+
+    private TrendGenerator generator(TrendDuration duration) {
+        CapturingTrendGenerator generator = new CapturingTrendGenerator(duration);
+        generators.put(duration, generator);
+        return generator;
+    }
+
+    // Sawtooth over ten minutes, exact in float
+    private static float signal(long timestamp) {
+        return timestamp % 600;
+    }
+
+    private static final class CapturingTrendGenerator extends TrendGenerator {
+
+        private long[] timestamps;
+        private float[][] data;
+
+        private CapturingTrendGenerator(TrendDuration duration) {
+            super(duration, "AA:BB:CC:DD:EE:FF", "30c78f70-13a8-4596-b457-13f1cfdf3673", "0");
+        }
+
+        @Override
+        protected SignalSampler createSignalSampler(long stopTimestamp) {
+            return new SignalSampler() {
+                @Override
+                public int getSignalCount() {
+                    return 4;
+                }
+
+                @Override
+                public void sample(long timestamp, int stepSeconds, float[] values) {
+                    Arrays.fill(values, signal(timestamp));
+                }
+            };
+        }
+
+        @Override
+        public ProtobufFile generateCompressedTrend(long[] timestamps, float[][] dataArrays) {
+            this.timestamps = timestamps;
+            this.data = dataArrays;
+            return null;
+        }
+
+        @Override
+        protected void addUnits(Trend.Builder trendBuilder) {
+        }
+
+        @Override
+        protected void addAlarms(Trend.Builder trendBuilder) {
+        }
+
+        @Override
+        protected SignalModel createDefaultSignalModel() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}